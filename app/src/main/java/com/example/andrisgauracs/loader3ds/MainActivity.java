@@ -84,6 +84,8 @@ public class MainActivity extends AppCompatActivity  {
     public boolean onCreateOptionsMenu(Menu menu) {
         MenuInflater inflater = getMenuInflater();
         inflater.inflate(R.menu.main_menu, menu);
+        //The parser benchmark is a tool for developers, so release builds do not show it
+        menu.findItem(R.id.run_benchmark).setVisible(BuildConfig.DEBUG);
         return true;
     }
     @Override
@@ -114,6 +116,23 @@ public class MainActivity extends AppCompatActivity  {
                 });
                 dialog.show();
                 return true;
+            case R.id.run_benchmark:
+                if (!BuildConfig.DEBUG) return true;
+                Toast.makeText(this, "Benchmark started", Toast.LENGTH_SHORT).show();
+                //The benchmark does not use OpenGL, so it can run on its own thread
+                new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        final String report = ParserBenchmark.run(MainActivity.this, 20);
+                        runOnUiThread(new Runnable() {
+                            @Override
+                            public void run() {
+                                Toast.makeText(MainActivity.this, report, Toast.LENGTH_LONG).show();
+                            }
+                        });
+                    }
+                }).start();
+                return true;
             default:
                 return super.onOptionsItemSelected(item);
         }
@@ -0,0 +1,129 @@
+package com.example.andrisgauracs.loader3ds;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Parses and prepares models on a bounded pool of worker threads.
+ *
+ * Each load returns a Future, so the GL thread can keep drawing, while the models are loading. The only work,
+ * that is left for the GL thread, is Parser3ds.upload, which draw calls on its first frame.
+ * Prepared models are kept in a MeshCache, so after the first launch they are only memory-mapped.
+ */
+public class ModelLoader {
+
+    /** Idle workers are stopped after this time, so the pool does not hold threads after loading */
+    private static final long KEEP_ALIVE_SECONDS = 5;
+
+    private static final String TAG = "ModelLoader";
+
+    private final Context mContext;
+    private final TextureResolver mTextures;
+    private final MeshCache meshCache;
+    private final ThreadPoolExecutor executor;
+
+    /**
+     * Uses one worker per CPU core
+     * @param context - Main application context (needed to access resources)
+     */
+    public ModelLoader(final Context context) {
+        this(context, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param context - Main application context (needed to access resources)
+     * @param threads - Maximum number of models, that are loaded at the same time
+     */
+    public ModelLoader(final Context context, int threads) {
+        mContext = context.getApplicationContext();
+        mTextures = new ResourceTextureResolver(mContext);
+        meshCache = new MeshCache(new File(mContext.getCacheDir(), "meshes"));
+        executor = new ThreadPoolExecutor(threads, threads, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new WorkerFactory());
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * @param rawId - the 3ds object from "raw" resource folder
+     * @see Parser3ds#Parser3ds(java.io.InputStream, Context)
+     */
+    public Future<Parser3ds> load(final int rawId) {
+        return load(rawId, null);
+    }
+
+    /**
+     * @param rawId - the 3ds object from "raw" resource folder
+     * @param model_texture - texture, that is used, since the original file has not specified one. Can be null.
+     * @see Parser3ds#Parser3ds(java.io.InputStream, TextureResolver, String)
+     */
+    public Future<Parser3ds> load(final int rawId, final String model_texture) {
+        return executor.submit(new Callable<Parser3ds>() {
+            @Override
+            public Parser3ds call() throws Exception {
+                return loadModel(rawId, model_texture);
+            }
+        });
+    }
+
+    /**
+     * Prepared models are taken from the mesh cache, when it has them. Otherwise the model is parsed
+     * and written to the cache for the next launch.
+     */
+    private Parser3ds loadModel(int rawId, String model_texture) throws IOException {
+        byte[] source = BufferChunkInput.readFully(mContext.getResources().openRawResource(rawId));
+        String key = MeshCache.key(source, model_texture);
+        try {
+            List<Object3ds> cached = meshCache.read(key);
+            if (cached != null) {
+                return new Parser3ds(cached, mTextures);
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Could not read cached " + key, e);
+        }
+
+        Parser3ds model = new Parser3ds(ByteBuffer.wrap(source), mTextures, model_texture);
+        //The cache keeps the batches and the compact vertices, so they are only built once
+        model.batchObjects();
+        model.compactVertices();
+        //The cache has no keyframer, so an animated model is parsed on every launch
+        if (model.getAnimation() != null) return model;
+        try {
+            meshCache.write(key, model.getModels());
+        } catch (IOException e) {
+            Log.w(TAG, "Could not cache " + key, e);
+        }
+        return model;
+    }
+
+    /**
+     * Stops the workers. Models, that are already queued, are still loaded.
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private static class WorkerFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "ModelLoader-" + count.incrementAndGet());
+            //Loading should not slow down the GL and UI threads
+            thread.setPriority(Thread.NORM_PRIORITY - 1);
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
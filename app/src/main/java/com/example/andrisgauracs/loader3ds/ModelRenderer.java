@@ -0,0 +1,158 @@
+package com.example.andrisgauracs.loader3ds;
+
+import android.content.Context;
+
+/**
+ * Loads the models into OpenGL ES 2.0 and draws them
+ */
+public class ModelRenderer implements ModelUploader, TextureCache.Loader {
+
+    /** Memory for the textures of the models, that are not displayed, see TextureCache */
+    public static final long DEFAULT_TEXTURE_BUDGET = 32 * 1024 * 1024;
+
+    private final GL mGL;
+    private final Context mActivityContext;
+    private final TextureCache mTextureCache;
+    private final TextureHelper.Format mTextureFormat;
+    /** Null, when the textures are loaded at full resolution right away */
+    private final TextureStreamer mTextureStreamer;
+
+    private final ModelDrawer mDrawer = new ModelDrawer();
+    /** Textures or buffers were uploaded or deleted without the GLStateCache, so its bindings are stale */
+    private boolean mBindingsChanged;
+
+    /**
+     * @param gl - The GL, that the textures and buffers are uploaded with
+     * @param context - Main application context (needed to access resources)
+     */
+    public ModelRenderer(final GL gl, final Context context) {
+        this(gl, context, DEFAULT_TEXTURE_BUDGET, TextureHelper.Format.MIPMAPPED, true);
+    }
+
+    /**
+     * @param gl - The GL, that the textures and buffers are uploaded with
+     * @param context - Main application context (needed to access resources)
+     * @param textureBudget - Texture memory in bytes, above which unused textures are deleted
+     * @param textureFormat - How the textures are stored, see TextureHelper.Format
+     * @param progressive - Show a low resolution preview of each texture first (see TextureStreamer)
+     */
+    public ModelRenderer(final GL gl, final Context context, long textureBudget, TextureHelper.Format textureFormat, boolean progressive) {
+        mGL = gl;
+        mActivityContext = context;
+        mTextureCache = new TextureCache(this, textureBudget);
+        mTextureFormat = textureFormat;
+        mTextureStreamer = progressive
+                ? new TextureStreamer(gl, context, textureFormat, TextureStreamer.maxTextureBytes(context)) : null;
+    }
+
+    /**
+     * Objects and models, that use the same texture resource, share one texture
+     */
+    @Override
+    public int loadTexture(int textureResource) {
+        return mTextureCache.acquire(textureResource);
+    }
+
+    @Override
+    public void releaseTexture(int textureResource) {
+        mTextureCache.release(textureResource);
+    }
+
+    @Override
+    public int loadTexture(int textureResource, int[] bytes) {
+        mBindingsChanged = true;
+        if (mTextureStreamer != null) {
+            return mTextureStreamer.loadTexture(textureResource, bytes);
+        }
+        return TextureHelper.loadTexture(mGL, mActivityContext, textureResource, mTextureFormat, bytes);
+    }
+
+    @Override
+    public void deleteTexture(int handle) {
+        TextureHelper.deleteTexture(mGL, handle);
+        mBindingsChanged = true;
+    }
+
+    @Override
+    public void uploadBuffers(Object3ds object) {
+        BufferHelper.upload(mGL, object);
+        mBindingsChanged = true;
+    }
+
+    @Override
+    public void releaseBuffers(Object3ds object) {
+        BufferHelper.release(mGL, object);
+        mBindingsChanged = true;
+    }
+
+    /**
+     * Must be called, when a new GL context is created, since the cached textures were lost with the old one
+     */
+    public void onContextCreated() {
+        mTextureCache.clear();
+        if (mTextureStreamer != null) {
+            mTextureStreamer.onContextCreated();
+        }
+    }
+
+    /**
+     * @return - Draws the models, e.g. for its culling statistics
+     */
+    public ModelDrawer getDrawer() { return mDrawer; }
+
+    /**
+     * @return - The shared textures, e.g. for their hit, miss and memory statistics
+     */
+    public TextureCache getTextureCache() { return mTextureCache; }
+
+    /**
+     * @param model - A loaded model. It is uploaded first, if it has not been yet.
+     * @param mvp - All the transformation matrices stored in a single array for convenience
+     * @param program - The shader program, that is in use
+     * @param mLightPosInEyeSpace - Light position in Eye Space Handle for the shader
+     * @param state - Skips the GL calls, that would not change anything
+     */
+    public void draw(Parser3ds model, float[][] mvp, ShaderProgram program, float[] mLightPosInEyeSpace, GLStateCache state) {
+
+        if (!model.isUploaded()) model.upload(this);
+        invalidateBindings(state);
+        mDrawer.draw(model, mvp, program, mLightPosInEyeSpace, state);
+    }
+
+    /**
+     * @param scene - Loaded models, placed in the scene. The ones, that are not uploaded yet, are uploaded first.
+     * @param program - The shader program, that is in use
+     * @param mLightPosInEyeSpace - Light position in Eye Space Handle for the shader
+     * @param state - Skips the GL calls, that would not change anything
+     */
+    public void draw(Scene scene, ShaderProgram program, float[] mLightPosInEyeSpace, GLStateCache state) {
+
+        upload(scene.getRoot());
+        invalidateBindings(state);
+        mDrawer.draw(scene, program, mLightPosInEyeSpace, state);
+    }
+
+    /**
+     * Uploads the textures, that finished decoding, and makes the state forget its bindings, if anything was
+     * uploaded or deleted since the last draw (including models, that were released in between)
+     */
+    private void invalidateBindings(GLStateCache state) {
+        if (mTextureStreamer != null && mTextureStreamer.uploadDecoded(mTextureCache)) {
+            mBindingsChanged = true;
+        }
+        if (mBindingsChanged) {
+            state.invalidateBindings();
+            mBindingsChanged = false;
+        }
+    }
+
+    private void upload(SceneNode node) {
+        Parser3ds model = node.getModel();
+        if (model != null && !model.isUploaded()) {
+            model.upload(this);
+        }
+        for (int i = 0; i < node.getChildren().size(); i++) {
+            upload(node.getChildren().get(i));
+        }
+    }
+}
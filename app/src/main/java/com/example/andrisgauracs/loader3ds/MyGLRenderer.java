@@ -1,13 +1,15 @@
 package com.example.andrisgauracs.loader3ds;
 
 import android.content.Context;
-import android.opengl.GLES20;
 import android.opengl.GLSurfaceView;
 import android.opengl.Matrix;
 import android.os.SystemClock;
+import android.util.Log;
 
 import java.lang.reflect.Field;
 import java.util.ArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 import javax.microedition.khronos.opengles.GL10;
 import javax.microedition.khronos.egl.EGLConfig;
@@ -18,6 +20,8 @@ import javax.microedition.khronos.egl.EGLConfig;
 public class MyGLRenderer implements GLSurfaceView.Renderer {
 
     private final Context mActivityContext;
+    /** All the GL calls go through this, see GL */
+    private final GL mGL;
 
     /**
      * Model view projection matrices for 3d transforms
@@ -27,6 +31,10 @@ public class MyGLRenderer implements GLSurfaceView.Renderer {
     private float[] mProjectionMatrix = new float[16];
     private float[] mMVPMatrix = new float[16];
 
+    /** The shown model is placed in the scene with its own node, which caches its matrices, while it does not move */
+    private final Scene mScene = new Scene();
+    private final SceneNode mModelNode = new SceneNode();
+
     private float[] mLightModelMatrix = new float[16];
     /** Used to hold a light centered on the origin in model space. We need a 4th coordinate so we can get translations to work when
      *  we multiply this by our transformation matrices. */
@@ -35,29 +43,32 @@ public class MyGLRenderer implements GLSurfaceView.Renderer {
     private final float[] mLightPosInWorldSpace = new float[4];
     /** Used to hold the transformed position of the light in eye space (after transformation via modelview matrix) */
     private final float[] mLightPosInEyeSpace = new float[4];
-    /** This will be used to pass in the light position. */
-    int mLightPosHandle;
-
     private Parser3ds[] model;
+    private ArrayList<Future<Parser3ds>> loading;
+    private final ModelLoader mModelLoader;
+    private final ModelRenderer mModelRenderer;
 
     private int currentObject = 0;
+    /** The model, that was drawn in the last frame. Its textures and buffers are released, when another one is shown. */
+    private int drawnObject = 0;
 
     // These still work without volatile, but refreshes are not guaranteed to happen.
     public volatile float mDeltaX;
     public volatile float mDeltaY;
 
-    int mMVPMatrixHandle;
-    int mMVMatrixHandle;
-    /** This will be used to pass in model texture coordinate information. */
-    int mTextureCoordinateHandle;
-    int mTextureUniformHandle;
+    /** The model program. Its locations are looked up once, when it is linked. */
+    private ShaderProgram mProgram;
 
-    private int mProgramHandle;
-    int mPositionHandle;
-    int mNormalHandle;
+    /** This is our light point program. */
+    private ShaderProgram mPointProgram;
+    private int mPointMVPMatrixHandle;
+    private int mPointPositionHandle;
 
-    /** This is a handle to our light point program. */
-    private int mPointProgramHandle;
+    /** Skips the GL calls, that would not change anything */
+    private final GLStateCache mGLState;
+    /** The issued and elided GL calls are logged after this many frames */
+    private static final int STATS_FRAMES = 300;
+    private int mFrames;
 
     /** Store the accumulated rotation. */
     private final float[] mAccumulatedRotation = new float[16];
@@ -73,6 +84,11 @@ public class MyGLRenderer implements GLSurfaceView.Renderer {
 
         //We need to pass the Main activity context
         mActivityContext = activityContext;
+        mModelLoader = new ModelLoader(activityContext);
+        mGL = new AndroidGL();
+        mGLState = new GLStateCache(mGL);
+        mModelRenderer = new ModelRenderer(mGL, activityContext);
+        mScene.getRoot().addChild(mModelNode);
 
     }
 
@@ -80,17 +96,19 @@ public class MyGLRenderer implements GLSurfaceView.Renderer {
     public void onSurfaceCreated(GL10 glUnused, EGLConfig config) {
 
         /**
-         * @param model All the 3ds models from the "raw" resource folder are loaded in this array
+         * @param model All the 3ds models from the "raw" resource folder are loaded in this array.
+         * They are parsed on the loader's worker threads, and each one is shown as soon as it is ready.
          */
-        model = new Parser3ds[]{
-                //This is passed with a default constructor
-                new Parser3ds(mActivityContext.getResources().openRawResource(R.raw.crate),mActivityContext),
-                //In this case, the 3rd parameter "red_car" is the name of the texture, since a default texture was not provided in the original 3ds file
-                new Parser3ds(mActivityContext.getResources().openRawResource(R.raw.car),mActivityContext,"red_car"),
-                new Parser3ds(mActivityContext.getResources().openRawResource(R.raw.fighter),mActivityContext,"fighter"),
-                new Parser3ds(mActivityContext.getResources().openRawResource(R.raw.landlord),mActivityContext),
-                new Parser3ds(mActivityContext.getResources().openRawResource(R.raw.mobile_nokia),mActivityContext),
-        };
+        mModelRenderer.onContextCreated();
+        model = new Parser3ds[5];
+        loading = new ArrayList<Future<Parser3ds>>();
+        //This is passed with a default constructor
+        loading.add(mModelLoader.load(R.raw.crate));
+        //In this case, the 2nd parameter "red_car" is the name of the texture, since a default texture was not provided in the original 3ds file
+        loading.add(mModelLoader.load(R.raw.car, "red_car"));
+        loading.add(mModelLoader.load(R.raw.fighter, "fighter"));
+        loading.add(mModelLoader.load(R.raw.landlord));
+        loading.add(mModelLoader.load(R.raw.mobile_nokia));
 
         //This will be used for touch rotation
         Matrix.setIdentityM(mAccumulatedRotation, 0);
@@ -99,29 +117,30 @@ public class MyGLRenderer implements GLSurfaceView.Renderer {
         final String vertexShader = RawResourceReader.readTextFileFromRawResource(mActivityContext, R.raw.vertex_shader);
         final String fragmentShader = RawResourceReader.readTextFileFromRawResource(mActivityContext, R.raw.fragment_shader);
 
-        final int vertexShaderHandle = ShaderHelper.compileShader(GLES20.GL_VERTEX_SHADER, vertexShader);
-        final int fragmentShaderHandle = ShaderHelper.compileShader(GLES20.GL_FRAGMENT_SHADER, fragmentShader);
-
-        mProgramHandle = ShaderHelper.createAndLinkProgram(vertexShaderHandle, fragmentShaderHandle,
-                new String[] {"a_Position", "a_TexCoordinate","a_Normal"});
+        mProgram = new ShaderProgram(mGL, vertexShader, fragmentShader,
+                new String[] {"a_Position", "a_TexCoordinate","a_Normal"},
+                new String[] {"u_MVPMatrix", "u_MVMatrix", "u_LightPos", "u_Texture", "u_TextureTransform"});
 
         // Define a simple shader program for our point.
         final String pointVertexShader = RawResourceReader.readTextFileFromRawResource(mActivityContext, R.raw.point_vertex_shader);
         final String pointFragmentShader = RawResourceReader.readTextFileFromRawResource(mActivityContext, R.raw.point_fragment_shader);
 
-        final int pointVertexShaderHandle = ShaderHelper.compileShader(GLES20.GL_VERTEX_SHADER, pointVertexShader);
-        final int pointFragmentShaderHandle = ShaderHelper.compileShader(GLES20.GL_FRAGMENT_SHADER, pointFragmentShader);
-        mPointProgramHandle = ShaderHelper.createAndLinkProgram(pointVertexShaderHandle, pointFragmentShaderHandle,
-                new String[] {"a_Position"});
+        mPointProgram = new ShaderProgram(mGL, pointVertexShader, pointFragmentShader,
+                new String[] {"a_Position"}, new String[] {"u_MVPMatrix"});
+        mPointMVPMatrixHandle = mPointProgram.getUniform("u_MVPMatrix");
+        mPointPositionHandle = mPointProgram.getAttribute("a_Position");
+
+        //Everything GL had is gone with the old context
+        mGLState.invalidate();
 
         // Set the background frame color
-        GLES20.glClearColor(0.0f, 0.0f, 0.0f, 1.0f);
+        mGL.glClearColor(0.0f, 0.0f, 0.0f, 1.0f);
 
         // Use culling to remove back faces.
-        GLES20.glEnable(GLES20.GL_CULL_FACE);
+        mGL.glEnable(GL.GL_CULL_FACE);
 
         // Enable depth testing
-        GLES20.glEnable(GLES20.GL_DEPTH_TEST);
+        mGL.glEnable(GL.GL_DEPTH_TEST);
 
         // Position the eye in front of the origin.
         final float eyeX = 0.0f;
@@ -142,6 +161,7 @@ public class MyGLRenderer implements GLSurfaceView.Renderer {
         // NOTE: In OpenGL 1, a ModelView matrix is used, which is a combination of a model and
         // view matrix. In OpenGL 2, we can keep track of these matrices separately if we choose.
         Matrix.setLookAtM(mViewMatrix, 0, eyeX, eyeY, eyeZ, lookX, lookY, lookZ, upX, upY, upZ);
+        mScene.setView(mViewMatrix, 0);
 
     }
 
@@ -150,15 +170,8 @@ public class MyGLRenderer implements GLSurfaceView.Renderer {
     @Override
     public void onDrawFrame(GL10 unused) {
 
-        GLES20.glClear(GLES20.GL_DEPTH_BUFFER_BIT | GLES20.GL_COLOR_BUFFER_BIT);
-        GLES20.glUseProgram(mProgramHandle);
-        mMVPMatrixHandle = GLES20.glGetUniformLocation(mProgramHandle, "u_MVPMatrix");
-        mMVMatrixHandle = GLES20.glGetUniformLocation(mProgramHandle, "u_MVMatrix");
-        mLightPosHandle = GLES20.glGetUniformLocation(mProgramHandle, "u_LightPos");
-        mTextureUniformHandle = GLES20.glGetUniformLocation(mProgramHandle, "u_Texture");
-        mPositionHandle = GLES20.glGetAttribLocation(mProgramHandle, "a_Position");
-        mNormalHandle = GLES20.glGetAttribLocation(mProgramHandle, "a_Normal");
-        mTextureCoordinateHandle = GLES20.glGetAttribLocation(mProgramHandle, "a_TexCoordinate");
+        mGL.glClear(GL.GL_DEPTH_BUFFER_BIT | GL.GL_COLOR_BUFFER_BIT);
+        mGLState.useProgram(mProgram);
 
         // Calculate position of the light. Rotate and then push into the distance.
         Matrix.setIdentityM(mLightModelMatrix, 0);
@@ -190,36 +203,51 @@ public class MyGLRenderer implements GLSurfaceView.Renderer {
         Matrix.multiplyMM(mTemporaryMatrix, 0, mModelMatrix, 0, mAccumulatedRotation, 0);
         System.arraycopy(mTemporaryMatrix, 0, mModelMatrix, 0, 16);
 
-        Matrix.multiplyMM(mMVPMatrix, 0, mViewMatrix, 0, mModelMatrix, 0);
-
-        // Pass in the modelview matrix.
-        GLES20.glUniformMatrix4fv(mMVMatrixHandle, 1, false, mMVPMatrix, 0);
-
-        // This multiplies the modelview matrix by the projection matrix, and stores the result in the MVP matrix
-        // (which now contains model * view * projection).
-        Matrix.multiplyMM(mTemporaryMatrix, 0, mProjectionMatrix, 0, mMVPMatrix, 0);
-        System.arraycopy(mTemporaryMatrix, 0, mMVPMatrix, 0, 16);
-
-        //These are the matrices, that we need to pass to our 3ds object for computation
-        float[][] mvp_matrices = new float[][]{mModelMatrix,mViewMatrix,mProjectionMatrix,mTemporaryMatrix,mMVPMatrix};
+        //The node only computes its matrices again, when the model was rotated
+        mModelNode.setLocalMatrix(mModelMatrix, 0);
 
         /**
          * The matrices are set, and now we can execute the draw function. This draws the current 3D model.
-         * @see The draw function of the Parser3ds class, for more info on the input parameters
+         * @see The draw function of the ModelRenderer class, for more info on the input parameters
          */
-        model[currentObject].draw(mvp_matrices,mMVPMatrixHandle,mLightPosHandle,mLightPosInEyeSpace,mPositionHandle,mNormalHandle,mTextureCoordinateHandle,mMVMatrixHandle);
+        int shown = currentObject;
+        if (shown != drawnObject) {
+            //The textures stay cached within the budget, so switching back is fast
+            if (model[drawnObject] != null) {
+                model[drawnObject].release(mModelRenderer);
+            }
+            drawnObject = shown;
+        }
+        mModelNode.setModel(getModel(shown));
+        //Only evaluated, when the model has a keyframer animation. The time wraps every hour, so a float
+        //still has the precision of a millisecond.
+        mModelNode.setAnimationTime((SystemClock.uptimeMillis() % 3600000L) / 1000f);
+        mModelRenderer.draw(mScene, mProgram, mLightPosInEyeSpace, mGLState);
 
         // Draw a point to indicate the light.
-        GLES20.glUseProgram(mPointProgramHandle);
+        mGLState.useProgram(mPointProgram);
         drawLight();
 
+        if (++mFrames == STATS_FRAMES) {
+            Log.v("GLStateCache", "GL calls per frame: issued=" + mGLState.getIssuedCount() / mFrames
+                    + " elided=" + mGLState.getElidedCount() / mFrames
+                    + " culled objects=" + mModelRenderer.getDrawer().getCulledCount() / mFrames
+                    + " reduced objects=" + mModelRenderer.getDrawer().getReducedCount() / mFrames
+                    + " matrix updates=" + mModelRenderer.getDrawer().getMatrixUpdateCount() / mFrames);
+            mGLState.resetCounters();
+            mModelRenderer.getDrawer().resetCounters();
+            mFrames = 0;
+        }
+
     }
 
     @Override
     public void onSurfaceChanged(GL10 glUnused, int width, int height)
     {
         // Set the OpenGL viewport to the same size as the surface.
-        GLES20.glViewport(0, 0, width, height);
+        mGL.glViewport(0, 0, width, height);
+        //The levels of detail are picked by their error in pixels
+        mModelRenderer.getDrawer().setViewportHeight(height);
 
         // Create a new perspective projection matrix. The height will stay the same
         // while the width will vary as per aspect ratio.
@@ -232,27 +260,40 @@ public class MyGLRenderer implements GLSurfaceView.Renderer {
         final float far = 10.0f;
 
         Matrix.frustumM(mProjectionMatrix, 0, left, right, bottom, top, near, far);
+        mScene.setProjection(mProjectionMatrix, 0);
     }
 
     private void drawLight()
     {
-        final int pointMVPMatrixHandle = GLES20.glGetUniformLocation(mPointProgramHandle, "u_MVPMatrix");
-        final int pointPositionHandle = GLES20.glGetAttribLocation(mPointProgramHandle, "a_Position");
-
         // Pass in the position.
-        GLES20.glVertexAttrib3f(pointPositionHandle, mLightPosInModelSpace[0], mLightPosInModelSpace[1], mLightPosInModelSpace[2]);
+        mGL.glVertexAttrib3f(mPointPositionHandle, mLightPosInModelSpace[0], mLightPosInModelSpace[1], mLightPosInModelSpace[2]);
 
         // Since we are not using a buffer object, disable vertex arrays for this attribute.
-        GLES20.glDisableVertexAttribArray(pointPositionHandle);
+        mGLState.disableVertexAttribArray(mPointPositionHandle);
 
         // Pass in the transformation matrix.
         Matrix.multiplyMM(mMVPMatrix, 0, mViewMatrix, 0, mLightModelMatrix, 0);
         Matrix.multiplyMM(mTemporaryMatrix, 0, mProjectionMatrix, 0, mMVPMatrix, 0);
         System.arraycopy(mTemporaryMatrix, 0, mMVPMatrix, 0, 16);
-        GLES20.glUniformMatrix4fv(pointMVPMatrixHandle, 1, false, mMVPMatrix, 0);
+        mGLState.uniformMatrix4fv(mPointMVPMatrixHandle, mMVPMatrix, 0);
 
         // Draw the point.
-        GLES20.glDrawArrays(GLES20.GL_POINTS, 0, 1);
+        mGLState.drawArrays(GL.GL_POINTS, 0, 1);
+    }
+
+    /**
+     * A model, that has just finished loading, is uploaded by the ModelRenderer, when it is drawn
+     * @return - The model, or null while it is still loading
+     */
+    private Parser3ds getModel(int pos) {
+        if (model[pos] == null && loading.get(pos).isDone()) {
+            try {
+                model[pos] = loading.get(pos).get();
+            } catch (InterruptedException | ExecutionException e) {
+                throw new RuntimeException("Error loading model " + pos, e);
+            }
+        }
+        return model[pos];
     }
 
     public void setCurrentObject(int pos) {
@@ -260,7 +301,10 @@ public class MyGLRenderer implements GLSurfaceView.Renderer {
     }
 
     public void changeScale(float val) {
-        model[currentObject].changeScale(val);
+        Parser3ds current = model[currentObject];
+        if (current != null) {
+            current.changeScale(val);
+        }
     }
 
 }
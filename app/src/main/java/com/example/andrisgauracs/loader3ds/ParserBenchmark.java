@@ -0,0 +1,74 @@
+package com.example.andrisgauracs.loader3ds;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Locale;
+
+/**
+ * Compares the byte-by-byte stream reader with the bulk ByteBuffer reader on the bundled models.
+ * Both paths include reading the raw resource, so the cost of loading the file into memory is counted too.
+ */
+public class ParserBenchmark {
+
+    private static final String TAG = "ParserBenchmark";
+
+    /** Iterations, that are run before measuring, so both paths are compiled by the JIT */
+    private static final int WARMUP = 5;
+
+    public static final int[] MODELS = {R.raw.crate, R.raw.car, R.raw.fighter, R.raw.landlord, R.raw.mobile_nokia};
+
+    /**
+     * @param context - Main application context (needed to access resources)
+     * @param iterations - How many times each model is parsed with each reader
+     * @return - One line per model with the average parse time of both readers
+     */
+    public static String run(Context context, int iterations) {
+        StringBuilder report = new StringBuilder();
+        for (int id : MODELS) {
+            String name = context.getResources().getResourceEntryName(id);
+            try {
+                for (int i = 0; i < WARMUP; i++) {
+                    parseStream(context, id);
+                    parseBuffer(context, id);
+                }
+                long streamTime = 0;
+                long bufferTime = 0;
+                //The two readers are interleaved, so neither gets an advantage from the device warming up
+                for (int i = 0; i < iterations; i++) {
+                    long start = System.nanoTime();
+                    parseStream(context, id);
+                    streamTime += System.nanoTime() - start;
+
+                    start = System.nanoTime();
+                    parseBuffer(context, id);
+                    bufferTime += System.nanoTime() - start;
+                }
+                double streamMs = streamTime / 1e6 / iterations;
+                double bufferMs = bufferTime / 1e6 / iterations;
+                String line = String.format(Locale.US, "%s: stream %.2f ms, buffer %.2f ms (%.1fx)",
+                        name, streamMs, bufferMs, streamMs / bufferMs);
+                Log.i(TAG, line);
+                report.append(line).append('\n');
+            } catch (IOException e) {
+                Log.e(TAG, "Could not read " + name, e);
+            }
+        }
+        return report.toString();
+    }
+
+    private static Parser3ds parseStream(Context context, int id) throws IOException {
+        InputStream file = context.getResources().openRawResource(id);
+        try {
+            return new Parser3ds(new StreamChunkInput(file));
+        } finally {
+            file.close();
+        }
+    }
+
+    private static Parser3ds parseBuffer(Context context, int id) throws IOException {
+        return new Parser3ds(BufferChunkInput.fromStream(context.getResources().openRawResource(id)));
+    }
+}
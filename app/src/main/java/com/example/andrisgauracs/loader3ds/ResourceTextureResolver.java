@@ -0,0 +1,23 @@
+package com.example.andrisgauracs.loader3ds;
+
+import android.content.Context;
+
+/**
+ * Looks the textures up in the app's drawable resources
+ */
+public class ResourceTextureResolver implements TextureResolver {
+
+    private final Context mActivityContext;
+
+    /**
+     * @param context - Main application context (needed to access resources)
+     */
+    public ResourceTextureResolver(final Context context) {
+        mActivityContext = context;
+    }
+
+    @Override
+    public int getTextureResource(String name) {
+        return mActivityContext.getResources().getIdentifier(name, "drawable", mActivityContext.getPackageName());
+    }
+}
@@ -3,44 +3,385 @@ package com.example.andrisgauracs.loader3ds;
 import android.content.Context;
 import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
-import android.opengl.GLES20;
+import android.opengl.ETC1Util;
 import android.opengl.GLUtils;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
 public class TextureHelper
 {
-    public static int loadTexture(final Context context, final int resourceId)
+    /** How a texture is stored in GPU memory */
+    public enum Format
     {
-        final int[] textureHandle = new int[1];
+        /** The full size bitmap as RGBA, without mipmaps */
+        RGBA,
+        /** RGBA with a generated mip chain and trilinear filtering. The bitmap is scaled to a power of two first. */
+        MIPMAPPED,
+        /** ETC1 compressed mip chain, cached on disk after the first load. Has no alpha channel. */
+        ETC1
+    }
+
+    /** Folder in the cache directory, where the compressed mip chains are kept */
+    private static final String ETC1_CACHE = "etc1";
+    private static final int ETC1_MAGIC = 0x45544331; // "ETC1"
+    /** A mip chain from 2^31 pixels down to 1 has 32 levels, so a cached file with more is corrupt */
+    private static final int MAX_ETC1_LEVELS = 32;
+
+    public static void deleteTexture(final GL gl, final int handle)
+    {
+        final int[] textureHandle = {handle};
+        gl.glDeleteTextures(1, textureHandle, 0);
+    }
+
+    /**
+     * A texture, that is decoded (and compressed) and ready to be uploaded. Preparing it does not need the GL
+     * thread, so it can be done in the background (see TextureStreamer).
+     */
+    public static class TextureData
+    {
+        private final Format format;
+        private Bitmap bitmap;
+        private ETC1Util.ETC1Texture[] levels;
+
+        private TextureData(final Format format)
+        {
+            this.format = format;
+        }
+
+        /**
+         * @return - Memory size of the texture, once it is uploaded
+         */
+        public int getByteSize()
+        {
+            if (levels != null)
+            {
+                int bytes = 0;
+                for (ETC1Util.ETC1Texture level : levels)
+                {
+                    bytes += level.getData().capacity();
+                }
+                return bytes;
+            }
+            // The mip chain adds a third to the size of the base level
+            return format == Format.MIPMAPPED ? bitmap.getByteCount() * 4 / 3 : bitmap.getByteCount();
+        }
+
+        /**
+         * Frees the decoded data, if the texture is not uploaded after all
+         */
+        public void recycle()
+        {
+            if (bitmap != null)
+            {
+                bitmap.recycle();
+            }
+            bitmap = null;
+            levels = null;
+        }
+    }
+
+    /**
+     * Must be called on the GL thread, since it asks the GPU, which formats it supports
+     * @return - The format, or MIPMAPPED for ETC1, where the GPU does not support ETC1
+     */
+    public static Format supportedFormat(final Format format)
+    {
+        if (format == Format.ETC1 && !ETC1Util.isETC1Supported())
+        {
+            return Format.MIPMAPPED;
+        }
+        return format;
+    }
 
-        GLES20.glGenTextures(1, textureHandle, 0);
+    /**
+     * @param format - How the texture is stored. ETC1 falls back to MIPMAPPED, where the GPU does not support it.
+     * @param bytes - Receives the memory size of the uploaded texture at index 0
+     */
+    public static int loadTexture(final GL gl, final Context context, final int resourceId, final Format format, final int[] bytes)
+    {
+        final TextureData data = prepareTexture(context, resourceId, supportedFormat(format), 1);
+        bytes[0] = data.getByteSize();
+        final int textureHandle = createTexture(gl);
+        uploadTexture(gl, textureHandle, data);
+        return textureHandle;
+    }
+
+    /**
+     * Decodes the image and converts it to the format. Can be called on any thread.
+     * @param format - A format, that the GPU supports (see supportedFormat)
+     * @param sampleSize - The image is decoded at 1/sampleSize of its width and height
+     */
+    public static TextureData prepareTexture(final Context context, final int resourceId, final Format format, final int sampleSize)
+    {
+        final TextureData data = new TextureData(format);
+        if (format != Format.ETC1)
+        {
+            final Bitmap bitmap = decode(context, resourceId, sampleSize);
+            // OpenGL ES 2.0 can only generate mipmaps for power of two textures
+            data.bitmap = format == Format.MIPMAPPED ? toPowerOfTwo(bitmap) : bitmap;
+            return data;
+        }
 
-        if (textureHandle[0] != 0)
+        // The compressed mip chain is encoded once and stored in the cache directory, keyed by the image data,
+        // so later loads skip both the bitmap decoding and the encoding.
+        File file = null;
+        try
         {
-            final BitmapFactory.Options options = new BitmapFactory.Options();
-            options.inScaled = false;	// No pre-scaling
+            final byte[] source = BufferChunkInput.readFully(context.getResources().openRawResource(resourceId));
+            final String key = MeshCache.key(source, sampleSize == 1 ? null : "sample" + sampleSize);
+            file = new File(new File(context.getCacheDir(), ETC1_CACHE), key + ".pkm");
+            data.levels = readEtc1(file);
+        }
+        catch (IOException e)
+        {
+            e.printStackTrace();
+        }
+
+        if (data.levels == null)
+        {
+            data.levels = encodeEtc1(toPowerOfTwo(decode(context, resourceId, sampleSize)));
+            if (file != null)
+            {
+                try
+                {
+                    writeEtc1(file, data.levels);
+                }
+                catch (IOException e)
+                {
+                    e.printStackTrace();
+                }
+            }
+        }
+        return data;
+    }
+
+    /**
+     * Loads the data into the texture, replacing what it had before. Must be called on the GL thread.
+     * The decoded data is freed afterwards.
+     */
+    public static void uploadTexture(final GL gl, final int textureHandle, final TextureData data)
+    {
+        gl.glBindTexture(GL.GL_TEXTURE_2D, textureHandle);
 
-            // Read in the resource
-            final Bitmap bitmap = BitmapFactory.decodeResource(context.getResources(), resourceId, options);
+        switch (data.format)
+        {
+            case ETC1:
+                gl.glTexParameteri(GL.GL_TEXTURE_2D, GL.GL_TEXTURE_MIN_FILTER, GL.GL_LINEAR_MIPMAP_LINEAR);
+                gl.glTexParameteri(GL.GL_TEXTURE_2D, GL.GL_TEXTURE_MAG_FILTER, GL.GL_LINEAR);
+                for (int level = 0; level < data.levels.length; level++)
+                {
+                    // The format is only ETC1, where the GPU supports it, so the level is uploaded as it is
+                    final ETC1Util.ETC1Texture etc1 = data.levels[level];
+                    gl.glCompressedTexImage2D(GL.GL_TEXTURE_2D, level, GL.GL_ETC1_RGB8_OES, etc1.getWidth(), etc1.getHeight(), 0,
+                            etc1.getData().capacity(), etc1.getData());
+                }
+                break;
+            case MIPMAPPED:
+                gl.glTexParameteri(GL.GL_TEXTURE_2D, GL.GL_TEXTURE_MIN_FILTER, GL.GL_LINEAR_MIPMAP_LINEAR);
+                gl.glTexParameteri(GL.GL_TEXTURE_2D, GL.GL_TEXTURE_MAG_FILTER, GL.GL_LINEAR);
+                // GLUtils reads the pixels straight from the bitmap, so bitmaps are not uploaded through gl
+                GLUtils.texImage2D(GL.GL_TEXTURE_2D, 0, data.bitmap, 0);
+                gl.glGenerateMipmap(GL.GL_TEXTURE_2D);
+                break;
+            default:
+                gl.glTexParameteri(GL.GL_TEXTURE_2D, GL.GL_TEXTURE_MIN_FILTER, GL.GL_NEAREST);
+                gl.glTexParameteri(GL.GL_TEXTURE_2D, GL.GL_TEXTURE_MAG_FILTER, GL.GL_NEAREST);
+                GLUtils.texImage2D(GL.GL_TEXTURE_2D, 0, data.bitmap, 0);
+                break;
+        }
 
-            // Bind to the texture in OpenGL
-            GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, textureHandle[0]);
+        data.recycle();
+    }
 
-            // Set filtering
-            GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_MIN_FILTER, GLES20.GL_NEAREST);
-            GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_MAG_FILTER, GLES20.GL_NEAREST);
+    /**
+     * Reads only the size of the image
+     * @return - The smallest power of two sample size, at which the decoded image has at most maxSide pixels on
+     * each side and takes at most maxBytes as an RGBA bitmap
+     */
+    public static int sampleSize(final Context context, final int resourceId, final int maxSide, final long maxBytes)
+    {
+        final BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inScaled = false;
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeResource(context.getResources(), resourceId, options);
 
-            // Load the bitmap into the bound texture.
-            GLUtils.texImage2D(GLES20.GL_TEXTURE_2D, 0, bitmap, 0);
+        int sampleSize = 1;
+        while (options.outWidth / sampleSize > maxSide || options.outHeight / sampleSize > maxSide
+                || (long) (options.outWidth / sampleSize) * (options.outHeight / sampleSize) * 4 > maxBytes)
+        {
+            sampleSize *= 2;
+        }
+        return sampleSize;
+    }
 
-            // Recycle the bitmap, since its data has been loaded into OpenGL.
-            bitmap.recycle();
+    /**
+     * Halves the bitmap down to 1x1 and compresses every level. The bitmap is recycled.
+     */
+    private static ETC1Util.ETC1Texture[] encodeEtc1(Bitmap bitmap)
+    {
+        int levelCount = 1;
+        for (int size = Math.max(bitmap.getWidth(), bitmap.getHeight()); size > 1; size >>= 1)
+        {
+            levelCount++;
         }
+        final ETC1Util.ETC1Texture[] levels = new ETC1Util.ETC1Texture[levelCount];
 
+        Bitmap level = bitmap;
+        for (int i = 0; i < levelCount; i++)
+        {
+            // The encoder reads 16 bit RGB pixels
+            final Bitmap rgb = level.copy(Bitmap.Config.RGB_565, false);
+            final ByteBuffer pixels = ByteBuffer.allocateDirect(rgb.getRowBytes() * rgb.getHeight()).order(ByteOrder.nativeOrder());
+            rgb.copyPixelsToBuffer(pixels);
+            pixels.position(0);
+            levels[i] = ETC1Util.compressTexture(pixels, rgb.getWidth(), rgb.getHeight(), 2, rgb.getRowBytes());
+            rgb.recycle();
+
+            if (i + 1 < levelCount)
+            {
+                final Bitmap next = Bitmap.createScaledBitmap(level, Math.max(1, level.getWidth() / 2),
+                        Math.max(1, level.getHeight() / 2), true);
+                level.recycle();
+                level = next;
+            }
+        }
+        level.recycle();
+
+        return levels;
+    }
+
+    /**
+     * @return - The cached mip chain, or null if there is none. A truncated or corrupt file is deleted, so it is
+     * written again.
+     */
+    private static ETC1Util.ETC1Texture[] readEtc1(final File file) throws IOException
+    {
+        if (!file.exists())
+        {
+            return null;
+        }
+        ETC1Util.ETC1Texture[] levels = null;
+        final DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        try
+        {
+            if (in.readInt() == ETC1_MAGIC)
+            {
+                final int count = in.readInt();
+                if (count >= 1 && count <= MAX_ETC1_LEVELS)
+                {
+                    levels = new ETC1Util.ETC1Texture[count];
+                    for (int i = 0; i < count; i++)
+                    {
+                        levels[i] = ETC1Util.createTexture(in);
+                    }
+                }
+            }
+        }
+        catch (IOException | RuntimeException e)
+        {
+            // Ends too early, or has a level with a bad header
+            levels = null;
+        }
+        finally
+        {
+            in.close();
+        }
+        if (levels == null)
+        {
+            file.delete();
+        }
+        return levels;
+    }
+
+    /**
+     * Writes to a temporary file first, so a crash can not leave a half written file behind (as in MeshCache)
+     */
+    private static void writeEtc1(final File file, final ETC1Util.ETC1Texture[] levels) throws IOException
+    {
+        final File directory = file.getParentFile();
+        if (!directory.isDirectory() && !directory.mkdirs())
+        {
+            throw new IOException("Can not create " + directory);
+        }
+        final File temp = new File(directory, file.getName() + ".tmp");
+        final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+        try
+        {
+            out.writeInt(ETC1_MAGIC);
+            out.writeInt(levels.length);
+            for (ETC1Util.ETC1Texture level : levels)
+            {
+                ETC1Util.writeTexture(level, out);
+            }
+        }
+        finally
+        {
+            out.close();
+        }
+        if (!temp.renameTo(file))
+        {
+            temp.delete();
+            throw new IOException("Can not write " + file);
+        }
+    }
+
+    private static Bitmap decode(final Context context, final int resourceId, final int sampleSize)
+    {
+        final BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inScaled = false;	// No pre-scaling
+        options.inSampleSize = sampleSize;
+
+        final Bitmap bitmap = BitmapFactory.decodeResource(context.getResources(), resourceId, options);
+        if (bitmap == null)
+        {
+            throw new RuntimeException("Error decoding texture.");
+        }
+        return bitmap;
+    }
+
+    /**
+     * Scales each side to the nearest power of two. The original bitmap is recycled, if a scaled one is returned.
+     */
+    private static Bitmap toPowerOfTwo(final Bitmap bitmap)
+    {
+        final int width = nearestPowerOfTwo(bitmap.getWidth());
+        final int height = nearestPowerOfTwo(bitmap.getHeight());
+        if (width == bitmap.getWidth() && height == bitmap.getHeight())
+        {
+            return bitmap;
+        }
+        final Bitmap scaled = Bitmap.createScaledBitmap(bitmap, width, height, true);
+        bitmap.recycle();
+        return scaled;
+    }
+
+    private static int nearestPowerOfTwo(final int size)
+    {
+        final int lower = Integer.highestOneBit(size);
+        return size - lower < lower * 2 - size ? lower : lower * 2;
+    }
+
+    /**
+     * Generates a texture and binds it
+     */
+    public static int createTexture(final GL gl)
+    {
+        final int[] textureHandle = new int[1];
+        gl.glGenTextures(1, textureHandle, 0);
         if (textureHandle[0] == 0)
         {
             throw new RuntimeException("Error loading texture.");
         }
-
+        gl.glBindTexture(GL.GL_TEXTURE_2D, textureHandle[0]);
         return textureHandle[0];
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,155 @@
+package com.example.andrisgauracs.loader3ds;
+
+import android.app.ActivityManager;
+import android.content.Context;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loads textures in two steps, so a model can be shown before its textures are fully decoded: a small preview
+ * is decoded and uploaded right away, and the full resolution version replaces it in the same texture, once it
+ * is decoded in the background.
+ *
+ * The full resolution is capped, so a single texture can not take more than a share of the app's memory.
+ */
+public class TextureStreamer {
+
+    /** Longest side of the preview, in pixels */
+    public static final int PREVIEW_SIZE = 64;
+    /** Share of the app's memory class, that one decoded texture may take */
+    private static final int MEMORY_SHARE = 8;
+
+    /** A full resolution texture, that waits for the GL thread */
+    private static class Decoded {
+        final int resourceId;
+        final int textureHandle;
+        final int generation;
+        final TextureHelper.TextureData data;
+
+        Decoded(int resourceId, int textureHandle, int generation, TextureHelper.TextureData data) {
+            this.resourceId = resourceId;
+            this.textureHandle = textureHandle;
+            this.generation = generation;
+            this.data = data;
+        }
+    }
+
+    private final GL mGL;
+    private final Context mActivityContext;
+    private final TextureHelper.Format mRequestedFormat;
+    private final long mMaxTextureBytes;
+    private final ThreadPoolExecutor mDecoder;
+    private final ConcurrentLinkedQueue<Decoded> mDecoded = new ConcurrentLinkedQueue<>();
+    /** Resolved on the GL thread, on first use */
+    private TextureHelper.Format mFormat;
+    /** Increased, when the GL context is lost, so textures decoded for the old one are dropped */
+    private volatile int mGeneration;
+
+    /**
+     * @param gl - The GL of the renderer
+     * @param context - Main application context (needed to access resources)
+     * @param format - Format of the full resolution textures
+     * @param maxTextureBytes - Largest size of a decoded RGBA texture. Larger ones are decoded at a lower resolution.
+     */
+    public TextureStreamer(final GL gl, final Context context, TextureHelper.Format format, long maxTextureBytes) {
+        mGL = gl;
+        mActivityContext = context;
+        mRequestedFormat = format;
+        mMaxTextureBytes = maxTextureBytes;
+        //A single worker, so the textures are finished in the order, in which they are needed
+        mDecoder = new ThreadPoolExecutor(1, 1, 5, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+                new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        Thread thread = new Thread(r, "TextureStreamer");
+                        thread.setPriority(Thread.NORM_PRIORITY - 1);
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+        mDecoder.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * @return - The texture memory budget for the device: a share of the memory class of the app
+     */
+    public static long maxTextureBytes(final Context context) {
+        ActivityManager activityManager = (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+        return (long) activityManager.getMemoryClass() * 1024 * 1024 / MEMORY_SHARE;
+    }
+
+    /**
+     * Uploads the preview of the texture and starts decoding the full resolution. Must be called on the GL thread.
+     * @param bytes - Receives the memory size of the preview at index 0
+     * @return - Texture handle, which keeps the same, when the full resolution is uploaded
+     */
+    public int loadTexture(final int resourceId, int[] bytes) {
+        if (mFormat == null) {
+            mFormat = TextureHelper.supportedFormat(mRequestedFormat);
+        }
+        final TextureHelper.Format previewFormat = mFormat == TextureHelper.Format.RGBA
+                ? TextureHelper.Format.RGBA : TextureHelper.Format.MIPMAPPED;
+        TextureHelper.TextureData preview = TextureHelper.prepareTexture(mActivityContext, resourceId, previewFormat,
+                TextureHelper.sampleSize(mActivityContext, resourceId, PREVIEW_SIZE, mMaxTextureBytes));
+        bytes[0] = preview.getByteSize();
+        final int textureHandle = TextureHelper.createTexture(mGL);
+        TextureHelper.uploadTexture(mGL, textureHandle, preview);
+
+        final int generation = mGeneration;
+        final TextureHelper.Format format = mFormat;
+        mDecoder.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (generation != mGeneration) return;
+                int sampleSize = TextureHelper.sampleSize(mActivityContext, resourceId, Integer.MAX_VALUE, mMaxTextureBytes);
+                TextureHelper.TextureData data = TextureHelper.prepareTexture(mActivityContext, resourceId, format, sampleSize);
+                mDecoded.add(new Decoded(resourceId, textureHandle, generation, data));
+            }
+        });
+        return textureHandle;
+    }
+
+    /**
+     * Replaces the previews, whose full resolution is decoded by now. Must be called on the GL thread, e.g. once per frame.
+     * @param cache - Textures, that were deleted from the cache in the meantime, are not uploaded
+     * @return - True, if any texture was uploaded
+     */
+    public boolean uploadDecoded(TextureCache cache) {
+        boolean uploaded = false;
+        Decoded decoded;
+        while ((decoded = mDecoded.poll()) != null) {
+            if (decoded.generation != mGeneration || cache.getHandle(decoded.resourceId) != decoded.textureHandle) {
+                decoded.data.recycle();
+                continue;
+            }
+            int bytes = decoded.data.getByteSize();
+            TextureHelper.uploadTexture(mGL, decoded.textureHandle, decoded.data);
+            cache.resize(decoded.resourceId, bytes);
+            uploaded = true;
+        }
+        return uploaded;
+    }
+
+    /**
+     * Drops everything, that was decoded for the old GL context
+     */
+    public void onContextCreated() {
+        mGeneration++;
+        mFormat = null;
+        Decoded decoded;
+        while ((decoded = mDecoded.poll()) != null) {
+            decoded.data.recycle();
+        }
+    }
+
+    /**
+     * @return - True, while full resolution textures are still being decoded or wait for upload
+     */
+    public boolean isStreaming() {
+        return mDecoder.getActiveCount() > 0 || !mDecoder.getQueue().isEmpty() || !mDecoded.isEmpty();
+    }
+}
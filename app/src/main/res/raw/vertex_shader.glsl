@@ -1,5 +1,6 @@
 uniform mat4 u_MVPMatrix;		// A constant representing the combined model/view/projection matrix.      		       
 uniform mat4 u_MVMatrix;		// A constant representing the combined model/view matrix.
+uniform vec4 u_TextureTransform;	// Scale and offset of the texture coordinates, which are quantized in compact vertices.
 		  			
 attribute vec4 a_Position;		// Per-vertex position information we will pass in.   							
 attribute vec3 a_Normal;		// Per-vertex normal information we will pass in.      
@@ -15,8 +16,8 @@ void main()
 	// Transform the vertex into eye space. 	
 	v_Position = vec3(u_MVPMatrix * a_Position);
 	
-	// Pass through the texture coordinate.
-	v_TexCoordinate = a_TexCoordinate;                                      
+	// Pass through the texture coordinate, in the units of the file.
+	v_TexCoordinate = a_TexCoordinate * u_TextureTransform.xy + u_TextureTransform.zw;                                      
 	
 	// Transform the normal's orientation into eye space.
     v_Normal = vec3(u_MVMatrix * vec4(a_Normal, 0.0));
@@ -0,0 +1,250 @@
+package com.example.andrisgauracs.loader3ds;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Input data of the benchmarks: the models bundled with the app and synthetic 3ds files of a chosen size
+ */
+final class BenchmarkModels {
+
+    /** Prefix of the synthetic models, followed by the number of triangles (e.g. grid_100000) */
+    static final String GRID = "grid_";
+    /** Prefix of the synthetic animated models, followed by the number of objects (e.g. animated_64) */
+    static final String ANIMATED = "animated_";
+    /** Frames of the synthetic animation, which swings each object there and back */
+    private static final int ANIMATION_FRAMES = 60;
+
+    //Quads per row of a synthetic object and the rows per object, so an object stays below 65536 vertices
+    private static final int COLUMNS = 128;
+    private static final int MAX_ROWS = 128;
+
+    private BenchmarkModels() { }
+
+    /**
+     * @param model - Name of a bundled model (as in res/raw, without the extension), GRID + triangle count or
+     *              ANIMATED + object count
+     * @return - The whole 3ds file
+     */
+    static byte[] load(String model) throws IOException {
+        if (model.startsWith(GRID)) {
+            return grid(Integer.parseInt(model.substring(GRID.length())));
+        }
+        if (model.startsWith(ANIMATED)) {
+            return animated(Integer.parseInt(model.substring(ANIMATED.length())));
+        }
+        for (String extension : new String[]{".3ds", ".3DS"}) {
+            InputStream file = BenchmarkModels.class.getResourceAsStream("/" + model + extension);
+            if (file != null) {
+                return BufferChunkInput.readFully(file);
+            }
+        }
+        throw new IOException("No such model: " + model);
+    }
+
+    /**
+     * Parses the file, without preparing the objects for drawing
+     */
+    static List<Object3ds> parse(byte[] file) throws IOException {
+        List<Object3ds> models = new ArrayList<>();
+        ChunkReader3ds.read(BufferChunkInput.wrap(file), new ModelBuilder3ds(models, new MaterialTable3ds()));
+        //Objects without geometry (lights, cameras) are never prepared
+        List<Object3ds> meshes = new ArrayList<>();
+        for (Object3ds model : models) {
+            if (model.getVertices() != null) {
+                meshes.add(model);
+            }
+        }
+        return meshes;
+    }
+
+    /**
+     * Writes a 3ds file with a wavy height field of the given number of triangles. The field is split into
+     * objects of at most MAX_ROWS rows, since a 3ds object can only address 65536 vertices.
+     */
+    static byte[] grid(int triangles) {
+        int rows = (triangles / 2 + COLUMNS - 1) / COLUMNS;
+        ByteBuffer out = ByteBuffer.allocate(triangles * 48 + (rows / MAX_ROWS + 1) * 128 + 1024)
+                .order(ByteOrder.LITTLE_ENDIAN);
+
+        int main = begin(out, 0x4d4d);
+        int editor = begin(out, 0x3d3d);
+        for (int firstRow = 0, part = 0; firstRow < rows; firstRow += MAX_ROWS, part++) {
+            int objectRows = Math.min(MAX_ROWS, rows - firstRow);
+            int vertexCount = (objectRows + 1) * (COLUMNS + 1);
+            int faceCount = objectRows * COLUMNS * 2;
+
+            int object = begin(out, 0x4000);
+            out.put(("grid" + part).getBytes()).put((byte) 0);
+            int mesh = begin(out, 0x4100);
+
+            int vertices = begin(out, 0x4110);
+            out.putShort((short) vertexCount);
+            for (int r = 0; r <= objectRows; r++) {
+                for (int c = 0; c <= COLUMNS; c++) {
+                    float x = c;
+                    float y = firstRow + r;
+                    out.putFloat(x).putFloat(y).putFloat((float) (Math.sin(x * 0.1) * Math.cos(y * 0.1) * 4));
+                }
+            }
+            end(out, vertices);
+
+            int uv = begin(out, 0x4140);
+            out.putShort((short) vertexCount);
+            for (int r = 0; r <= objectRows; r++) {
+                for (int c = 0; c <= COLUMNS; c++) {
+                    out.putFloat((float) c / COLUMNS).putFloat((float) r / objectRows);
+                }
+            }
+            end(out, uv);
+
+            int faces = begin(out, 0x4120);
+            out.putShort((short) faceCount);
+            for (int r = 0; r < objectRows; r++) {
+                for (int c = 0; c < COLUMNS; c++) {
+                    int a = r * (COLUMNS + 1) + c;
+                    int b = a + COLUMNS + 1;
+                    out.putShort((short) a).putShort((short) (a + 1)).putShort((short) b).putShort((short) 0);
+                    out.putShort((short) (a + 1)).putShort((short) (b + 1)).putShort((short) b).putShort((short) 0);
+                }
+            }
+            int smoothing = begin(out, 0x4150);
+            for (int f = 0; f < faceCount; f++) {
+                out.putInt(1);
+            }
+            end(out, smoothing);
+            end(out, faces);
+
+            end(out, mesh);
+            end(out, object);
+        }
+        end(out, editor);
+        end(out, main);
+
+        byte[] file = new byte[out.position()];
+        out.flip();
+        out.get(file);
+        return file;
+    }
+
+    /**
+     * Writes a 3ds file with a chain of boxes along the x axis, one object each, and a keyframer, in which each
+     * box is the child of the one before it and swings around the z axis. The rotations add up along the chain,
+     * like the joints of an arm.
+     */
+    static byte[] animated(int objects) {
+        ByteBuffer out = ByteBuffer.allocate(objects * 1024 + 1024).order(ByteOrder.LITTLE_ENDIAN);
+
+        int main = begin(out, 0x4d4d);
+        int editor = begin(out, 0x3d3d);
+        for (int i = 0; i < objects; i++) {
+            int object = begin(out, 0x4000);
+            out.put(("box" + i).getBytes()).put((byte) 0);
+            int mesh = begin(out, 0x4100);
+
+            int vertices = begin(out, 0x4110);
+            out.putShort((short) 8);
+            for (int v = 0; v < 8; v++) {
+                out.putFloat(i + ((v & 1) - 0.5f) * 0.4f).putFloat(((v >> 1 & 1) - 0.5f) * 0.4f)
+                        .putFloat(((v >> 2 & 1) - 0.5f) * 0.4f);
+            }
+            end(out, vertices);
+
+            int uv = begin(out, 0x4140);
+            out.putShort((short) 8);
+            for (int v = 0; v < 8; v++) {
+                out.putFloat(v & 1).putFloat(v >> 1 & 1);
+            }
+            end(out, uv);
+
+            //Two triangles for each side of the box
+            int[] sides = {0, 2, 3, 1, 4, 5, 7, 6, 0, 1, 5, 4, 2, 6, 7, 3, 0, 4, 6, 2, 1, 3, 7, 5};
+            int faces = begin(out, 0x4120);
+            out.putShort((short) 12);
+            for (int s = 0; s < sides.length; s += 4) {
+                out.putShort((short) sides[s]).putShort((short) sides[s + 1]).putShort((short) sides[s + 2])
+                        .putShort((short) 0);
+                out.putShort((short) sides[s]).putShort((short) sides[s + 2]).putShort((short) sides[s + 3])
+                        .putShort((short) 0);
+            }
+            end(out, faces);
+
+            end(out, mesh);
+            end(out, object);
+        }
+        end(out, editor);
+
+        int keyframer = begin(out, 0xb000);
+        int segment = begin(out, 0xb008);
+        out.putInt(0).putInt(ANIMATION_FRAMES);
+        end(out, segment);
+        int frame = begin(out, 0xb009);
+        out.putInt(0);
+        end(out, frame);
+        for (int i = 0; i < objects; i++) {
+            int node = begin(out, 0xb002);
+            int id = begin(out, 0xb030);
+            out.putShort((short) i);
+            end(out, id);
+            int header = begin(out, 0xb010);
+            out.put(("box" + i).getBytes()).put((byte) 0);
+            out.putShort((short) 0).putShort((short) 0).putShort((short) (i == 0 ? 0xffff : i - 1));
+            end(out, header);
+
+            //Relative to the parent, one unit further along x
+            int position = beginTrack(out, 0xb020, 1);
+            key(out, 0).putFloat(i == 0 ? 0 : 1).putFloat(0).putFloat(0);
+            end(out, position);
+            //Each key turns on from the one before it, so the last one turns back
+            int rotation = beginTrack(out, 0xb021, 3);
+            key(out, 0).putFloat(0).putFloat(0).putFloat(0).putFloat(1);
+            key(out, ANIMATION_FRAMES / 2).putFloat(0.3f).putFloat(0).putFloat(0).putFloat(1);
+            key(out, ANIMATION_FRAMES).putFloat(-0.3f).putFloat(0).putFloat(0).putFloat(1);
+            end(out, rotation);
+            int scale = beginTrack(out, 0xb022, 1);
+            key(out, 0).putFloat(1).putFloat(1).putFloat(1);
+            end(out, scale);
+            end(out, node);
+        }
+        end(out, keyframer);
+        end(out, main);
+
+        byte[] file = new byte[out.position()];
+        out.flip();
+        out.get(file);
+        return file;
+    }
+
+    /**
+     * Writes the header of a keyframer track: flags, two unused words and the number of keys
+     */
+    private static int beginTrack(ByteBuffer out, int type, int keys) {
+        int start = begin(out, type);
+        out.putShort((short) 0).putInt(0).putInt(0).putInt(keys);
+        return start;
+    }
+
+    /**
+     * Writes the frame of a key, without tension, continuity, bias or ease, so its value follows
+     */
+    private static ByteBuffer key(ByteBuffer out, int frame) {
+        return out.putInt(frame).putShort((short) 0);
+    }
+
+    /**
+     * Writes a chunk header, whose size is filled in by end
+     */
+    private static int begin(ByteBuffer out, int type) {
+        int start = out.position();
+        out.putShort((short) type).putInt(0);
+        return start;
+    }
+
+    private static void end(ByteBuffer out, int start) {
+        out.putInt(start + 2, out.position() - start);
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.andrisgauracs.loader3ds;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times reading a whole 3ds file, the way Parser3ds does it
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ParseBenchmark {
+
+    @Param({"crate", "car", "fighter", "landlord", "mobile_nokia", "grid_10000", "grid_100000", "grid_1000000"})
+    public String model;
+
+    private byte[] file;
+
+    @Setup
+    public void setup() throws IOException {
+        file = BenchmarkModels.load(model);
+    }
+
+    /**
+     * The original reader, one byte at a time from a stream
+     */
+    @Benchmark
+    public List<Object3ds> streamReader() throws IOException {
+        List<Object3ds> models = new ArrayList<>();
+        ChunkReader3ds.read(new StreamChunkInput(new ByteArrayInputStream(file)),
+                new ModelBuilder3ds(models, new MaterialTable3ds()));
+        return models;
+    }
+
+    /**
+     * Bulk reads from a buffer
+     */
+    @Benchmark
+    public List<Object3ds> bufferReader() throws IOException {
+        List<Object3ds> models = new ArrayList<>();
+        ChunkReader3ds.read(BufferChunkInput.wrap(file), new ModelBuilder3ds(models, new MaterialTable3ds()));
+        return models;
+    }
+
+    @Benchmark
+    public ChunkIndex3ds index() throws IOException {
+        return ChunkIndex3ds.build(ByteBuffer.wrap(file));
+    }
+
+    /**
+     * Index, decode and prepare all objects for drawing, as Parser3ds.loadFile does
+     */
+    @Benchmark
+    public List<Object3ds> parallelDecode() throws IOException {
+        ByteBuffer data = ByteBuffer.wrap(file);
+        return ParallelDecoder3ds.decode(data, ChunkIndex3ds.build(data));
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.andrisgauracs.loader3ds;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times each step of Object3ds.prepareModel over all objects of a model. The vertex cache misses per face (ACMR)
+ * in the order of the file and after the triangles are reordered are printed at the end of each trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class PrepareBenchmark {
+
+    @Param({"crate", "car", "fighter", "landlord", "mobile_nokia", "grid_10000", "grid_100000", "grid_1000000"})
+    public String model;
+
+    private List<Object3ds> objects;
+
+    /**
+     * Every step reads the results of the steps before it, so the objects are prepared once up front
+     */
+    @Setup
+    public void setup() throws IOException {
+        objects = BenchmarkModels.parse(BenchmarkModels.load(model));
+        for (Object3ds object : objects) {
+            object.prepareModel();
+        }
+    }
+
+    @Benchmark
+    public void calculateBounds(Blackhole blackhole) {
+        for (Object3ds object : objects) {
+            object.calculateBounds();
+        }
+        blackhole.consume(objects);
+    }
+
+    @Benchmark
+    public void setScaleFactor(Blackhole blackhole) {
+        for (Object3ds object : objects) {
+            object.setScaleFactor();
+            blackhole.consume(object.getScaleFactor());
+        }
+    }
+
+    @Benchmark
+    public void generateUV(Blackhole blackhole) {
+        for (Object3ds object : objects) {
+            object.generateUV();
+        }
+        blackhole.consume(objects);
+    }
+
+    @Benchmark
+    public void calculateNormals(Blackhole blackhole) {
+        for (Object3ds object : objects) {
+            object.calculateNormals();
+        }
+        blackhole.consume(objects);
+    }
+
+    @Benchmark
+    public void setupBuffers(Blackhole blackhole) {
+        for (Object3ds object : objects) {
+            object.setupBuffers();
+            blackhole.consume(object.getVertexBuffer());
+        }
+    }
+
+    @Benchmark
+    public void prepareModel(Blackhole blackhole) {
+        for (Object3ds object : objects) {
+            object.prepareModel();
+            blackhole.consume(object.getVertexBuffer());
+        }
+    }
+
+    @TearDown
+    public void report() {
+        long faces = 0;
+        double original = 0, optimized = 0;
+        for (Object3ds object : objects) {
+            faces += object.getNumFaces();
+            original += object.getOriginalAcmr() * object.getNumFaces();
+            optimized += object.getAcmr() * object.getNumFaces();
+        }
+        if (faces == 0) return;
+        System.out.println();
+        System.out.println(model + " ACMR with a cache of " + VertexCacheOptimizer.CACHE_SIZE + ": "
+                + original / faces + " in file order, " + optimized / faces + " reordered");
+    }
+}
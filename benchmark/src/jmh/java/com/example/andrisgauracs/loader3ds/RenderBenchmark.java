@@ -0,0 +1,199 @@
+package com.example.andrisgauracs.loader3ds;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times the CPU side of drawing a frame, on a RecordingGL instead of a GPU. The RecordingGL is strict, so a
+ * change, that makes the renderer issue an invalid call sequence, fails the benchmark. The GL calls, draw calls
+ * and state changes per frame are printed at the end of each trial.
+ *
+ * drawScene draws a grid of INSTANCES copies of the model as a Scene, of which one moves every frame. The copies
+ * of an animated model each play the animation at their own time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class RenderBenchmark {
+
+    @Param({"crate", "car", "fighter", "landlord", "mobile_nokia", "grid_100000", "animated_64"})
+    public String model;
+
+    /** Draw the objects from the compact vertex layout (see Parser3ds.compactVertices) */
+    @Param({"false", "true"})
+    public boolean compact;
+
+    private static final int INSTANCES = 256;
+    private static final int GRID = 16;
+
+    /** Uploads into the RecordingGL. Every texture is a 256x256 RGBA image without data. */
+    private static class RecordingUploader implements ModelUploader {
+        private final GL gl;
+
+        RecordingUploader(GL gl) {
+            this.gl = gl;
+        }
+
+        @Override
+        public int loadTexture(int textureResource) {
+            int[] handle = new int[1];
+            gl.glGenTextures(1, handle, 0);
+            gl.glBindTexture(GL.GL_TEXTURE_2D, handle[0]);
+            gl.glTexImage2D(GL.GL_TEXTURE_2D, 0, GL.GL_RGBA, 256, 256, 0, GL.GL_RGBA, GL.GL_UNSIGNED_BYTE, null);
+            return handle[0];
+        }
+
+        @Override
+        public void releaseTexture(int textureResource) {
+        }
+
+        @Override
+        public void uploadBuffers(Object3ds object) {
+            BufferHelper.upload(gl, object);
+        }
+
+        @Override
+        public void releaseBuffers(Object3ds object) {
+            BufferHelper.release(gl, object);
+        }
+    }
+
+    private RecordingGL gl;
+    private GLStateCache state;
+    private ShaderProgram program;
+    private ModelDrawer drawer;
+    private Parser3ds parsed;
+    private final float[][] mvp = new float[5][16];
+    private final float[] light = {0.0f, 0.0f, -3.0f, 1.0f};
+    private long frames;
+    private long vertexBytes;
+    private Scene scene;
+    private final SceneNode[] nodes = new SceneNode[INSTANCES];
+
+    @Setup
+    public void setup() throws IOException {
+        gl = new RecordingGL(false, true);
+        state = new GLStateCache(gl);
+        //RecordingGL does not compile the sources, it only needs the names
+        program = new ShaderProgram(gl, "", "",
+                new String[] {"a_Position", "a_TexCoordinate", "a_Normal"},
+                new String[] {"u_MVPMatrix", "u_MVMatrix", "u_LightPos", "u_Texture", "u_TextureTransform"});
+        drawer = new ModelDrawer();
+        //A full HD screen, so the levels of detail are picked as on a phone
+        drawer.setViewportHeight(1080);
+
+        //Every material gets a texture, so each submesh binds one
+        parsed = new Parser3ds(ByteBuffer.wrap(BenchmarkModels.load(model)), new TextureResolver() {
+            @Override
+            public int getTextureResource(String name) {
+                return name.hashCode() & 0x7fffffff | 1;
+            }
+        }, "texture");
+        //Merged like in ModelLoader
+        parsed.batchObjects();
+        if (compact) {
+            parsed.compactVertices();
+        }
+        parsed.upload(new RecordingUploader(gl));
+        vertexBytes = 0;
+        for (Object3ds object : parsed.getModels()) {
+            if (object.isCompact()) {
+                vertexBytes += object.getCompactVertexBuffer().capacity();
+            } else if (object.isPrepared()) {
+                vertexBytes += object.getVertexBuffer().capacity() * 4;
+            }
+        }
+
+        for (float[] matrix : mvp) {
+            GeometryKernel.setIdentityM(matrix, 0);
+        }
+        //The camera of MyGLRenderer: the model 4.5 units in front of the eye at z=-0.5, frustum from 1 to 10
+        mvp[0][14] = -4.5f;
+        mvp[1][14] = 0.5f;
+        frustum(mvp[2], 1.0f, 1.0f, 1.0f, 10.0f);
+
+        //The same camera, looking at a grid of small copies of the model
+        scene = new Scene();
+        scene.setView(mvp[1], 0);
+        scene.setProjection(mvp[2], 0);
+        SceneNode grid = new SceneNode();
+        grid.setTranslation(0.0f, 0.0f, -4.5f);
+        scene.getRoot().addChild(grid);
+        float[] local = new float[16];
+        for (int i = 0; i < INSTANCES; i++) {
+            GeometryKernel.setIdentityM(local, 0);
+            GeometryKernel.scaleM(local, 0, 0.25f, 0.25f, 0.25f);
+            local[12] = (i % GRID - GRID / 2 + 0.5f) * 0.5f;
+            local[13] = (i / GRID - GRID / 2 + 0.5f) * 0.5f;
+            nodes[i] = new SceneNode(parsed);
+            nodes[i].setLocalMatrix(local, 0);
+            grid.addChild(nodes[i]);
+        }
+        gl.reset();
+        state.resetCounters();
+        drawer.resetCounters();
+        frames = 0;
+    }
+
+    /**
+     * Same as android.opengl.Matrix.frustumM(m, 0, -right, right, -top, top, near, far)
+     */
+    private static void frustum(float[] m, float right, float top, float near, float far) {
+        m[0] = near / right;
+        m[5] = near / top;
+        m[10] = -(far + near) / (far - near);
+        m[11] = -1.0f;
+        m[14] = -2.0f * far * near / (far - near);
+        m[15] = 0.0f;
+    }
+
+    @Benchmark
+    public long drawFrame() {
+        //The model moves a little every frame, so the matrices are uploaded every frame, like while rotating it
+        mvp[0][12] = (frames++ & 1023) * 0.0001f;
+        state.useProgram(program);
+        drawer.draw(parsed, mvp, program, light, state);
+        return gl.getDrawCallCount();
+    }
+
+    @Benchmark
+    public long drawScene() {
+        //One copy moves a little every frame, the others keep their cached matrices
+        SceneNode node = nodes[(int) (frames++ % INSTANCES)];
+        float[] local = node.getLocalMatrix();
+        node.setTranslation(local[12], local[13], (frames / INSTANCES & 1) * 0.001f);
+        if (parsed.getAnimation() != null) {
+            for (int i = 0; i < INSTANCES; i++) {
+                nodes[i].setAnimationTime((frames + i) / Animation3ds.FRAMES_PER_SECOND);
+            }
+        }
+        state.useProgram(program);
+        drawer.draw(scene, program, light, state);
+        return gl.getDrawCallCount();
+    }
+
+    @TearDown
+    public void report() {
+        if (frames == 0) return;
+        System.out.println();
+        System.out.println(model + (compact ? " compact" : "") + ", vertex buffers " + vertexBytes + " bytes"
+                + ", per frame: GL calls " + gl.getCallCount() / frames
+                + ", draw calls " + gl.getDrawCallCount() / frames
+                + ", vertices " + gl.getDrawnVertexCount() / frames
+                + ", state changes " + gl.getStateChangeCount() / frames
+                + ", redundant " + gl.getRedundantChangeCount() / frames
+                + ", elided by GLStateCache " + state.getElidedCount() / frames
+                + ", matrix updates " + drawer.getMatrixUpdateCount() / frames);
+    }
+}
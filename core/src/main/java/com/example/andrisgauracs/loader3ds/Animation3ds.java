@@ -0,0 +1,124 @@
+package com.example.andrisgauracs.loader3ds;
+
+/**
+ * The keyframer animation of a model, sampled once per frame at load time (see KeyframerBuilder3ds).
+ *
+ * The samples of all the nodes of a frame are stored next to each other in one float array, so evaluating a
+ * frame reads two short runs of memory, and is a linear interpolation between them: no key search, no spline
+ * and no allocation.
+ *
+ * The meshes of a 3ds file are stored in the pose of one frame (0xb009). The matrices, that evaluate returns,
+ * move an object from that pose to the pose of the evaluated time, so they can be applied to the vertices
+ * as they are. A model, that is not animated, gets identity matrices.
+ */
+public class Animation3ds {
+
+    /** 3ds Studio and 3ds Max default to 30 frames per second, the file does not store a rate */
+    public static final float FRAMES_PER_SECOND = 30;
+    /** Floats per node and frame: position, rotation quaternion x, y, z, w and scale */
+    static final int SAMPLE_SIZE = 10;
+
+    private final String[] names;
+    /** Parent of each node, or -1. Parents come before their children. */
+    private final int[] parents;
+    private final int frameCount;
+    /** frameCount * nodes * SAMPLE_SIZE */
+    private final float[] samples;
+    /** Inverse of each node's world matrix in the pose of the meshes */
+    private final float[] restInverse;
+
+    Animation3ds(String[] names, int[] parents, int frameCount, float[] samples, float[] restInverse) {
+        this.names = names;
+        this.parents = parents;
+        this.frameCount = frameCount;
+        this.samples = samples;
+        this.restInverse = restInverse;
+    }
+
+    public int getNodeCount() { return names.length; }
+
+    public String getNodeName(int node) { return names[node]; }
+
+    /**
+     * @return - The parent node, or -1
+     */
+    public int getParent(int node) { return parents[node]; }
+
+    public int getFrameCount() { return frameCount; }
+
+    /**
+     * @return - Length of one loop in seconds
+     */
+    public float getDuration() { return (frameCount - 1) / FRAMES_PER_SECOND; }
+
+    /**
+     * @return - The node, that animates the object with this name, or -1
+     */
+    public int findNode(String name) {
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(name)) return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Computes the matrix of every node at the time. The animation loops.
+     * @param world - getNodeCount() * 16 floats, receives the world matrices of the nodes
+     * @param matrices - getNodeCount() * 16 floats, receives the matrices, that move the meshes from their
+     *                 stored pose to the pose at this time
+     */
+    public void evaluate(float seconds, float[] world, float[] matrices) {
+        int last = frameCount - 1;
+        float frame = 0;
+        if (last > 0) {
+            frame = seconds * FRAMES_PER_SECOND % last;
+            if (frame < 0) frame += last;
+        }
+        int first = (int) frame;
+        float t = frame - first;
+        int next = Math.min(first + 1, last);
+
+        int nodes = names.length;
+        for (int node = 0; node < nodes; node++) {
+            int a = (first * nodes + node) * SAMPLE_SIZE;
+            int b = (next * nodes + node) * SAMPLE_SIZE;
+            float x = lerp(samples[a], samples[b], t);
+            float y = lerp(samples[a + 1], samples[b + 1], t);
+            float z = lerp(samples[a + 2], samples[b + 2], t);
+
+            //Normalized linear interpolation along the shorter arc. The samples are one frame apart, so it is
+            //as close to slerp as the eye can tell.
+            float dot = samples[a + 3] * samples[b + 3] + samples[a + 4] * samples[b + 4]
+                    + samples[a + 5] * samples[b + 5] + samples[a + 6] * samples[b + 6];
+            float sign = dot < 0 ? -1 : 1;
+            float qx = lerp(samples[a + 3], sign * samples[b + 3], t);
+            float qy = lerp(samples[a + 4], sign * samples[b + 4], t);
+            float qz = lerp(samples[a + 5], sign * samples[b + 5], t);
+            float qw = lerp(samples[a + 6], sign * samples[b + 6], t);
+            float length = (float) Math.sqrt(qx * qx + qy * qy + qz * qz + qw * qw);
+            qx /= length;
+            qy /= length;
+            qz /= length;
+            qw /= length;
+
+            float sx = lerp(samples[a + 7], samples[b + 7], t);
+            float sy = lerp(samples[a + 8], samples[b + 8], t);
+            float sz = lerp(samples[a + 9], samples[b + 9], t);
+
+            int m = node * 16;
+            int parent = parents[node];
+            if (parent < 0) {
+                GeometryKernel.setTransformM(world, m, x, y, z, qx, qy, qz, qw, sx, sy, sz);
+            } else {
+                //The local matrix is put into matrices for a moment, it is overwritten below
+                GeometryKernel.setTransformM(matrices, m, x, y, z, qx, qy, qz, qw, sx, sy, sz);
+                GeometryKernel.multiplyMM(world, m, world, parent * 16, matrices, m);
+            }
+            GeometryKernel.multiplyMM(matrices, m, world, m, restInverse, m);
+        }
+    }
+
+    private static float lerp(float a, float b, float t) {
+        return a + (b - a) * t;
+    }
+}
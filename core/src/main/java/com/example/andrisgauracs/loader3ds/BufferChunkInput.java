@@ -0,0 +1,171 @@
+package com.example.andrisgauracs.loader3ds;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * Reads the file from a little-endian ByteBuffer (heap, direct or memory-mapped).
+ * Vertex, UV and face arrays are decoded with bulk FloatBuffer/ShortBuffer gets instead of one call per byte.
+ */
+public class BufferChunkInput implements ChunkInput {
+
+    private final ByteBuffer buffer;
+    private final int start;
+    private short[] shortScratch = new short[0];
+
+    /**
+     * @param data - The whole .3ds file. Its position, limit and byte order are left untouched.
+     */
+    public BufferChunkInput(ByteBuffer data) {
+        buffer = data.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        start = buffer.position();
+    }
+
+    public static BufferChunkInput wrap(byte[] data) {
+        return new BufferChunkInput(ByteBuffer.wrap(data));
+    }
+
+    /**
+     * Reads the whole stream into a heap buffer. The stream is closed afterwards.
+     */
+    public static BufferChunkInput fromStream(InputStream file) throws IOException {
+        return wrap(readFully(file));
+    }
+
+    /**
+     * Memory-maps the file, so no copy of it is kept on the Java heap.
+     */
+    public static BufferChunkInput map(File file) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = raf.getChannel();
+            return new BufferChunkInput(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } finally {
+            raf.close();
+        }
+    }
+
+    /**
+     * @return - All the remaining bytes of the stream. The stream is closed afterwards.
+     */
+    public static byte[] readFully(InputStream file) throws IOException {
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(file.available(), 4096));
+            byte[] chunk = new byte[16384];
+            int read;
+            while ((read = file.read(chunk)) != -1) {
+                out.write(chunk, 0, read);
+            }
+            return out.toByteArray();
+        } finally {
+            file.close();
+        }
+    }
+
+    private void require(int bytes) throws EOFException {
+        if (buffer.remaining() < bytes) {
+            throw new EOFException();
+        }
+    }
+
+    @Override
+    public int position() { return buffer.position() - start; }
+
+    @Override
+    public byte getByte() throws IOException {
+        require(1);
+        return buffer.get();
+    }
+
+    @Override
+    public short getShort() throws IOException {
+        require(2);
+        return buffer.getShort();
+    }
+
+    @Override
+    public int getInt() throws IOException {
+        require(4);
+        return buffer.getInt();
+    }
+
+    @Override
+    public float getFloat() throws IOException {
+        require(4);
+        return buffer.getFloat();
+    }
+
+    @Override
+    public String readString() throws IOException {
+        StringBuilder sb = new StringBuilder(64);
+        byte ch = getByte();
+        while (ch != 0) {
+            sb.append((char)ch);
+            ch = getByte();
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public void skip(int count) throws IOException {
+        require(count);
+        buffer.position(buffer.position() + count);
+    }
+
+    @Override
+    public void seek(int position) throws IOException {
+        if (position < 0 || start + position > buffer.limit()) {
+            throw new EOFException();
+        }
+        buffer.position(start + position);
+    }
+
+    @Override
+    public void readFloats(float[] dst, int offset, int count) throws IOException {
+        require(count * 4);
+        buffer.asFloatBuffer().get(dst, offset, count);
+        buffer.position(buffer.position() + count * 4);
+    }
+
+    @Override
+    public void readInts(int[] dst, int offset, int count) throws IOException {
+        require(count * 4);
+        buffer.asIntBuffer().get(dst, offset, count);
+        buffer.position(buffer.position() + count * 4);
+    }
+
+    @Override
+    public void readUnsignedShorts(int[] dst, int offset, int count) throws IOException {
+        short[] shorts = readShortArray(count);
+        for (int i = 0; i < count; i++) {
+            dst[offset + i] = shorts[i] & 0xffff;
+        }
+    }
+
+    @Override
+    public void readFaces(int[] dst, int numFaces) throws IOException {
+        short[] shorts = readShortArray(numFaces * 4);
+        for (int i = 0; i < numFaces; i++) {
+            dst[i*3] = shorts[i*4] & 0xffff;
+            dst[i*3 + 1] = shorts[i*4 + 1] & 0xffff;
+            dst[i*3 + 2] = shorts[i*4 + 2] & 0xffff;
+        }
+    }
+
+    private short[] readShortArray(int count) throws IOException {
+        require(count * 2);
+        if (shortScratch.length < count) {
+            shortScratch = new short[count];
+        }
+        buffer.asShortBuffer().get(shortScratch, 0, count);
+        buffer.position(buffer.position() + count * 2);
+        return shortScratch;
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.andrisgauracs.loader3ds;
+
+import java.nio.Buffer;
+
+public class BufferHelper
+{
+    /**
+     * Uploads the object's vertices and indices into OpenGL buffer objects, so they stay on the GPU
+     * and are not copied from the Java heap on every frame. Must be called on the GL thread.
+     *
+     * @param gl The GL of the current context.
+     * @param object A prepared object.
+     */
+    public static void upload(final GL gl, final Object3ds object)
+    {
+        final int vertexHandle = object.isCompact()
+                ? createBuffer(gl, GL.GL_ARRAY_BUFFER, object.getCompactVertexBuffer(), 1)
+                : createBuffer(gl, GL.GL_ARRAY_BUFFER, object.getVertexBuffer(), 4);
+        int indexHandle = 0;
+
+        if (object.getIndexBuffer() != null)
+        {
+            indexHandle = createBuffer(gl, GL.GL_ELEMENT_ARRAY_BUFFER, object.getIndexBuffer(), 2);
+        }
+
+        object.setBufferHandles(vertexHandle, indexHandle);
+    }
+
+    /**
+     * Deletes the object's buffer objects. Must be called on the GL thread.
+     */
+    public static void release(final GL gl, final Object3ds object)
+    {
+        final int[] handles = {object.getVertexBufferHandle(), object.getIndexBufferHandle()};
+        gl.glDeleteBuffers(2, handles, 0);
+        object.setBufferHandles(0, 0);
+    }
+
+    private static int createBuffer(final GL gl, final int target, final Buffer data, final int bytesPerElement)
+    {
+        final int[] handle = new int[1];
+
+        gl.glGenBuffers(1, handle, 0);
+
+        if (handle[0] == 0)
+        {
+            throw new RuntimeException("Error creating buffer.");
+        }
+
+        data.position(0);
+        gl.glBindBuffer(target, handle[0]);
+        gl.glBufferData(target, data.capacity() * bytesPerElement, data, GL.GL_STATIC_DRAW);
+        gl.glBindBuffer(target, 0);
+
+        return handle[0];
+    }
+}
@@ -0,0 +1,219 @@
+package com.example.andrisgauracs.loader3ds;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Offsets of the objects and material blocks of a .3ds file.
+ *
+ * The index is built with a single pass, that only reads chunk headers, names and element counts, and skips
+ * all the geometry. Afterwards single objects can be decoded on demand by seeking straight to their chunks,
+ * so the file never has to be scanned again.
+ */
+public class ChunkIndex3ds {
+
+    /**
+     * Position of a 0x4000 object chunk and of its mesh sub-chunks. Offsets of missing sub-chunks are -1.
+     */
+    public static class ObjectEntry {
+        private String name;
+        private int start;
+        private int end;
+        private int verticesOffset = -1;
+        private int facesOffset = -1;
+        private int uvOffset = -1;
+        private int vertexCount;
+        private int faceCount;
+        private final ArrayList<String> materials = new ArrayList<>();
+
+        public String getName() { return name; }
+
+        public int getStart() { return start; }
+
+        public int getEnd() { return end; }
+
+        public int getVerticesOffset() { return verticesOffset; }
+
+        public int getFacesOffset() { return facesOffset; }
+
+        public int getUVOffset() { return uvOffset; }
+
+        public int getVertexCount() { return vertexCount; }
+
+        public int getFaceCount() { return faceCount; }
+
+        /**
+         * @return - Names of the materials used by the faces of this object
+         */
+        public List<String> getMaterials() { return Collections.unmodifiableList(materials); }
+    }
+
+    private final ArrayList<ObjectEntry> objects = new ArrayList<>();
+    private final HashMap<String, ObjectEntry> objectsByName = new HashMap<>();
+    private final ArrayList<String> materialNames = new ArrayList<>();
+    private int[] materialBlocks = new int[8];  //start and end of each 0xafff chunk
+    private int materialCount;
+    /** Start and end of the 0xb000 keyframer chunk, or -1 if the file has none */
+    private int keyframerStart = -1;
+    private int keyframerEnd = -1;
+
+    private ChunkIndex3ds() { }
+
+    public static ChunkIndex3ds build(ByteBuffer data) throws IOException {
+        return build(new BufferChunkInput(data));
+    }
+
+    /**
+     * @param input - Positioned at the start of the file
+     */
+    public static ChunkIndex3ds build(ChunkInput input) throws IOException {
+        ChunkIndex3ds index = new ChunkIndex3ds();
+        ChunkReader3ds.read(input, index.new Indexer(input));
+        return index;
+    }
+
+    public int getObjectCount() { return objects.size(); }
+
+    public ObjectEntry getObject(int i) { return objects.get(i); }
+
+    /**
+     * @return - The entry, or null if the file has no object with this name
+     */
+    public ObjectEntry getObject(String name) { return objectsByName.get(name); }
+
+    public List<String> getObjectNames() {
+        ArrayList<String> names = new ArrayList<>(objects.size());
+        for (ObjectEntry entry : objects) {
+            names.add(entry.name);
+        }
+        return names;
+    }
+
+    public int getMaterialCount() { return materialCount; }
+
+    /**
+     * @return - Name of the material, or null if its material block has no name chunk
+     */
+    public String getMaterialName(int i) { return materialNames.get(i); }
+
+    /**
+     * Passes a single object to the visitor, as ChunkReader3ds.read would do for the whole file
+     */
+    public void readObject(ChunkInput input, ObjectEntry entry, ChunkVisitor3ds visitor) throws IOException {
+        input.seek(entry.start);
+        ChunkReader3ds.read(input, entry.end, visitor);
+    }
+
+    /**
+     * Passes all the material blocks to the visitor
+     */
+    public void readMaterials(ChunkInput input, ChunkVisitor3ds visitor) throws IOException {
+        for (int i = 0; i < materialCount; i++) {
+            input.seek(materialBlocks[i*2]);
+            ChunkReader3ds.read(input, materialBlocks[i*2 + 1], visitor);
+        }
+    }
+
+    /**
+     * @return - True, if the file has a keyframer chunk, even if it does not animate anything
+     */
+    public boolean hasKeyframer() { return keyframerStart >= 0; }
+
+    /**
+     * Passes the keyframer chunk to the visitor, if the file has one
+     */
+    public void readKeyframer(ChunkInput input, ChunkVisitor3ds visitor) throws IOException {
+        if (keyframerStart < 0) return;
+        input.seek(keyframerStart);
+        ChunkReader3ds.read(input, keyframerEnd, visitor);
+    }
+
+    private class Indexer extends SimpleChunkVisitor3ds {
+
+        private final ChunkInput input;
+        private ObjectEntry current;
+
+        Indexer(ChunkInput input) {
+            this.input = input;
+        }
+
+        @Override
+        public boolean enterChunk(int type, int size) throws IOException {
+            int start = input.position() - ChunkReader3ds.HEADER_SIZE;
+            //Mesh data outside of an object belongs to nothing, the serial parser skips it as well
+            if (current == null && (type == 0x4100 || type == 0x4110 || type == 0x4120 || type == 0x4130
+                    || type == 0x4140 || type == 0x4160)) {
+                return false;
+            }
+            switch (type) {
+                case 0x4000:
+                    current = new ObjectEntry();
+                    current.start = start;
+                    current.end = start + size;
+                    objects.add(current);
+                    break;
+                case 0x4110:
+                    current.verticesOffset = start;
+                    break;
+                case 0x4120:
+                    current.facesOffset = start;
+                    break;
+                case 0x4140:
+                    current.uvOffset = start;
+                    break;
+                case 0xafff:
+                    if (materialBlocks.length < (materialCount + 1) * 2) {
+                        materialBlocks = Arrays.copyOf(materialBlocks, materialBlocks.length * 2);
+                    }
+                    materialBlocks[materialCount*2] = start;
+                    materialBlocks[materialCount*2 + 1] = start + size;
+                    materialCount++;
+                    materialNames.add(null);
+                    break;
+                case 0xb000:
+                    //Only its position is needed here, its nodes are read by readKeyframer
+                    keyframerStart = start;
+                    keyframerEnd = start + size;
+                    return false;
+            }
+            return true;
+        }
+
+        @Override
+        public boolean onObject(String name) throws IOException {
+            current.name = name;
+            // With duplicate names, the first object wins, like a linear search would
+            if (!objectsByName.containsKey(name)) {
+                objectsByName.put(name, current);
+            }
+            return true;
+        }
+
+        @Override
+        public void onVertices(int count, ChunkInput data) throws IOException {
+            current.vertexCount = count;
+        }
+
+        @Override
+        public void onFaces(int count, ChunkInput data) throws IOException {
+            current.faceCount = count;
+        }
+
+        @Override
+        public void onFaceMaterial(String material, int count, ChunkInput data) throws IOException {
+            current.materials.add(material);
+        }
+
+        @Override
+        public void onMaterial(String name) throws IOException {
+            if (materialCount > 0) {
+                materialNames.set(materialCount - 1, name);
+            }
+        }
+    }
+}
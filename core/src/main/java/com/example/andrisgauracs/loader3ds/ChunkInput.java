@@ -0,0 +1,57 @@
+package com.example.andrisgauracs.loader3ds;
+
+import java.io.IOException;
+
+/**
+ * Little-endian source of primitive values for the 3ds chunk parser.
+ * All multi-byte values in a .3ds file are stored in little-endian byte order.
+ */
+public interface ChunkInput {
+
+    /**
+     * @return - Number of bytes consumed from the start of the file
+     */
+    int position();
+
+    byte getByte() throws IOException;
+
+    short getShort() throws IOException;
+
+    int getInt() throws IOException;
+
+    float getFloat() throws IOException;
+
+    /**
+     * Reads a zero terminated string
+     */
+    String readString() throws IOException;
+
+    void skip(int count) throws IOException;
+
+    /**
+     * Moves to an absolute position, e.g. an offset from ChunkIndex3ds
+     */
+    void seek(int position) throws IOException;
+
+    /**
+     * Reads count floats into dst, starting at offset
+     */
+    void readFloats(float[] dst, int offset, int count) throws IOException;
+
+    /**
+     * Reads count ints into dst, starting at offset
+     */
+    void readInts(int[] dst, int offset, int count) throws IOException;
+
+    /**
+     * Reads count unsigned shorts into dst, starting at offset
+     */
+    void readUnsignedShorts(int[] dst, int offset, int count) throws IOException;
+
+    /**
+     * Reads a 0x4120 face list body: three unsigned vertex indices per face, followed by a face flag, which is discarded.
+     * @param dst - Receives numFaces * 3 indices
+     * @param numFaces - Number of faces to read
+     */
+    void readFaces(int[] dst, int numFaces) throws IOException;
+}
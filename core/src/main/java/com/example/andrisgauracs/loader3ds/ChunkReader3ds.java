@@ -0,0 +1,162 @@
+package com.example.andrisgauracs.loader3ds;
+
+import java.io.IOException;
+
+/**
+ * Walks through the chunks of a .3ds file and passes them to a ChunkVisitor3ds.
+ * Most of the byte reading functions are implemented from <a href="https://github.com/kjetilos/3ds-parser">this java 3ds parser</a>
+ */
+public class ChunkReader3ds {
+
+    /** Chunk header: 2 byte id and 4 byte size */
+    static final int HEADER_SIZE = 6;
+
+    private final ChunkInput input;
+    private final ChunkVisitor3ds visitor;
+
+    private ChunkReader3ds(ChunkInput input, ChunkVisitor3ds visitor) {
+        this.input = input;
+        this.visitor = visitor;
+    }
+
+    /**
+     * Reads the whole file, starting with the main chunk at the current position of the input
+     */
+    public static void read(ChunkInput input, ChunkVisitor3ds visitor) throws IOException {
+        ChunkReader3ds reader = new ChunkReader3ds(input, visitor);
+        int start = input.position();
+        int limit = start + reader.readChunk();
+        reader.readUntil(limit);
+    }
+
+    /**
+     * Reads chunks until the input reaches the end position. Sub-chunks are read as they come, since the
+     * container chunks are entered, not skipped.
+     */
+    public static void read(ChunkInput input, int end, ChunkVisitor3ds visitor) throws IOException {
+        new ChunkReader3ds(input, visitor).readUntil(end);
+    }
+
+    private void readUntil(int end) throws IOException {
+        while (input.position() < end) {
+            readChunk();
+        }
+    }
+
+    /**
+     * @return - Size of the chunk, that was read
+     */
+    private int readChunk() throws IOException {
+        int start = input.position();
+        int type = input.getShort() & 0xffff;
+        int size = input.getInt(); // this is probably unsigned but for convenience we use signed int
+        int end = start + size;
+
+        if (!visitor.enterChunk(type, size)) {
+            skipTo(end);
+            return size;
+        }
+
+        switch (type) {
+            case 0x4d4d: // Main chunk
+            case 0x3d3d: // 3D Editor Chunk
+            case 0x4100: // Triangular Mesh
+            case 0xafff: // Material block
+            case 0xa200: // Texture map 1
+            case 0xb000: // Keyframer
+            case 0xb002: // Object node
+                break;
+            case 0x4000:
+                if (!visitor.onObject(input.readString())) {
+                    skipTo(end);
+                }
+                break;
+            case 0x4110: {
+                int count = input.getShort() & 0xffff;
+                visitor.onVertices(count, input);
+                skipTo(end);
+                break;
+            }
+            case 0x4120: {
+                // The face list is followed by its own sub-chunks (0x4130, 0x4150), so only the face data is skipped
+                int count = input.getShort() & 0xffff;
+                int dataEnd = input.position() + count * 8;
+                visitor.onFaces(count, input);
+                skipTo(dataEnd);
+                break;
+            }
+            case 0x4130: {
+                String material = input.readString();
+                int count = input.getShort() & 0xffff;
+                visitor.onFaceMaterial(material, count, input);
+                skipTo(end);
+                break;
+            }
+            case 0x4150: {
+                visitor.onSmoothingGroups((size - HEADER_SIZE) / 4, input);
+                skipTo(end);
+                break;
+            }
+            case 0x4140: {
+                int count = input.getShort() & 0xffff;
+                visitor.onUV(count, input);
+                skipTo(end);
+                break;
+            }
+            case 0xa000: // Material name
+                visitor.onMaterial(input.readString());
+                skipTo(end);
+                break;
+            case 0xa300: // Mapping filename
+                visitor.onTextureFilename(input.readString());
+                skipTo(end);
+                break;
+            case 0xb008: {
+                int first = input.getInt();
+                visitor.onKeyframerSegment(first, input.getInt());
+                skipTo(end);
+                break;
+            }
+            case 0xb009:
+                visitor.onKeyframerFrame(input.getInt());
+                skipTo(end);
+                break;
+            case 0xb030:
+                visitor.onNodeId(input.getShort() & 0xffff);
+                skipTo(end);
+                break;
+            case 0xb010: {
+                String name = input.readString();
+                // Two flag words come before the parent
+                input.skip(4);
+                int parent = input.getShort() & 0xffff;
+                visitor.onNodeHeader(name, parent == 0xffff ? -1 : parent);
+                skipTo(end);
+                break;
+            }
+            case 0xb020: // Position track
+            case 0xb021: // Rotation track
+            case 0xb022: { // Scale track
+                // Track flags and two unused words come before the key count
+                input.skip(10);
+                visitor.onTrack(type, input.getInt(), input);
+                skipTo(end);
+                break;
+            }
+            default:
+                visitor.onUnknownChunk(type, size, input);
+                skipTo(end);
+        }
+        return size;
+    }
+
+    private void skipTo(int end) throws IOException {
+        int remaining = end - input.position();
+        if (remaining < 0) {
+            throw new IOException("Read past the end of chunk at " + end);
+        }
+        if (remaining > 0) {
+            input.skip(remaining);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.andrisgauracs.loader3ds;
+
+import java.io.IOException;
+
+/**
+ * Receives the chunks of a .3ds file, while ChunkReader3ds walks through it.
+ *
+ * The data callbacks get the ChunkInput positioned at the start of the chunk's data, so the values can be read
+ * straight into the caller's own buffers. Anything, that is not read, is skipped by the reader, so a callback can
+ * also ignore the data entirely.
+ */
+public interface ChunkVisitor3ds {
+
+    /**
+     * Called for every chunk header, before the chunk is parsed.
+     * @param type - Chunk id, e.g. 0x4000 for an object
+     * @param size - Chunk size in bytes, including the 6 byte header
+     * @return - false to skip the chunk together with all of its sub-chunks
+     */
+    boolean enterChunk(int type, int size) throws IOException;
+
+    /**
+     * 0x4000 - Object block
+     * @return - false to skip the whole object
+     */
+    boolean onObject(String name) throws IOException;
+
+    /**
+     * 0x4110 - Vertex list, count * 3 floats
+     */
+    void onVertices(int count, ChunkInput data) throws IOException;
+
+    /**
+     * 0x4120 - Face list, count * 4 unsigned shorts (3 vertex indices and a face flag). See ChunkInput.readFaces
+     */
+    void onFaces(int count, ChunkInput data) throws IOException;
+
+    /**
+     * 0x4130 - Faces, that use the material, count unsigned shorts
+     */
+    void onFaceMaterial(String material, int count, ChunkInput data) throws IOException;
+
+    /**
+     * 0x4150 - Smoothing group bit mask of each face, count ints. Faces, that share a bit, are shaded smoothly.
+     */
+    void onSmoothingGroups(int count, ChunkInput data) throws IOException;
+
+    /**
+     * 0x4140 - Texture coordinates, count * 2 floats
+     */
+    void onUV(int count, ChunkInput data) throws IOException;
+
+    /**
+     * 0xa000 - Material name, starts a new material
+     */
+    void onMaterial(String name) throws IOException;
+
+    /**
+     * 0xa300 - Texture map filename of the current material
+     */
+    void onTextureFilename(String filename) throws IOException;
+
+    /**
+     * 0xb008 - First and last frame of the keyframer's animation
+     */
+    void onKeyframerSegment(int start, int end) throws IOException;
+
+    /**
+     * 0xb009 - The frame, in whose pose the meshes were saved
+     */
+    void onKeyframerFrame(int frame) throws IOException;
+
+    /**
+     * 0xb030 - Id of the current 0xb002 node, which the parent field of other nodes refers to
+     */
+    void onNodeId(int id) throws IOException;
+
+    /**
+     * 0xb010 - Node header
+     * @param name - Name of the object, that the node animates, or "$$$DUMMY" for a node, that only groups others
+     * @param parent - Id of the parent node, or -1 for a node without a parent
+     */
+    void onNodeHeader(String name, int parent) throws IOException;
+
+    /**
+     * 0xb020 position, 0xb021 rotation and 0xb022 scale track of the current node. See KeyframerBuilder3ds.readKeys
+     * for the layout of the keys.
+     */
+    void onTrack(int type, int keyCount, ChunkInput data) throws IOException;
+
+    /**
+     * Any chunk, that the reader does not know
+     * @param size - Chunk size in bytes, including the 6 byte header
+     */
+    void onUnknownChunk(int type, int size, ChunkInput data) throws IOException;
+}
@@ -0,0 +1,70 @@
+package com.example.andrisgauracs.loader3ds;
+
+/**
+ * The six planes of the view frustum, taken from a model-view-projection matrix, so bounding volumes can be tested
+ * in the model's own coordinates, without transforming them first.
+ */
+public class Frustum {
+
+    /** Left, right, bottom, top, near and far plane: a, b, c, d each, normalized, pointing inwards */
+    private final float[] planes = new float[24];
+
+    /**
+     * Extracts the planes from the rows of the matrix (Gribb and Hartmann)
+     * @param m - A model-view-projection matrix, column-major as in android.opengl.Matrix
+     */
+    public void set(float[] m, int offset) {
+        for (int i = 0; i < 6; i++) {
+            //Plane i is row 3 plus or minus row i / 2
+            int row = i / 2;
+            float sign = i % 2 == 0 ? 1 : -1;
+            float a = m[offset + 3] + sign * m[offset + row];
+            float b = m[offset + 7] + sign * m[offset + 4 + row];
+            float c = m[offset + 11] + sign * m[offset + 8 + row];
+            float d = m[offset + 15] + sign * m[offset + 12 + row];
+            float length = (float) Math.sqrt(a * a + b * b + c * c);
+            if (length > 0) {
+                a /= length;
+                b /= length;
+                c /= length;
+                d /= length;
+            }
+            planes[i * 4] = a;
+            planes[i * 4 + 1] = b;
+            planes[i * 4 + 2] = c;
+            planes[i * 4 + 3] = d;
+        }
+    }
+
+    /**
+     * @param sphere - Center and radius, see GeometryKernel.boundingSphere
+     * @return - False, only if the sphere is completely outside of a plane
+     */
+    public boolean intersectsSphere(float[] sphere, int offset) {
+        float x = sphere[offset], y = sphere[offset + 1], z = sphere[offset + 2], r = sphere[offset + 3];
+        for (int p = 0; p < 24; p += 4) {
+            if (planes[p] * x + planes[p + 1] * y + planes[p + 2] * z + planes[p + 3] < -r) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param bounds - Bounding box, see GeometryKernel.bounds
+     * @return - False, only if the box is completely outside of a plane. Boxes near a corner of the frustum
+     * may pass, even though they are outside.
+     */
+    public boolean intersectsBox(float[] bounds, int offset) {
+        for (int p = 0; p < 24; p += 4) {
+            //The corner of the box, that is farthest along the plane normal
+            float x = bounds[offset + (planes[p] >= 0 ? GeometryKernel.MAX : GeometryKernel.MIN)];
+            float y = bounds[offset + (planes[p + 1] >= 0 ? GeometryKernel.MAX : GeometryKernel.MIN) + 1];
+            float z = bounds[offset + (planes[p + 2] >= 0 ? GeometryKernel.MAX : GeometryKernel.MIN) + 2];
+            if (planes[p] * x + planes[p + 1] * y + planes[p + 2] * z + planes[p + 3] < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.andrisgauracs.loader3ds;
+
+import java.nio.Buffer;
+
+/**
+ * The OpenGL ES 2.0 calls, that the renderer makes. The names and arguments are the same as in android.opengl.GLES20.
+ *
+ * On the device the calls go to AndroidGL, which passes them on to GLES20. RecordingGL counts and checks them
+ * instead, so the render path can be run and measured without a GPU.
+ */
+public interface GL {
+
+    int GL_NO_ERROR = 0;
+    int GL_INVALID_ENUM = 0x0500;
+    int GL_INVALID_VALUE = 0x0501;
+    int GL_INVALID_OPERATION = 0x0502;
+
+    int GL_POINTS = 0x0000;
+    int GL_LINES = 0x0001;
+    int GL_TRIANGLES = 0x0004;
+
+    int GL_DEPTH_BUFFER_BIT = 0x00000100;
+    int GL_COLOR_BUFFER_BIT = 0x00004000;
+    int GL_CULL_FACE = 0x0B44;
+    int GL_DEPTH_TEST = 0x0B71;
+
+    int GL_BYTE = 0x1400;
+    int GL_UNSIGNED_BYTE = 0x1401;
+    int GL_SHORT = 0x1402;
+    int GL_UNSIGNED_SHORT = 0x1403;
+    int GL_FLOAT = 0x1406;
+    int GL_RGB = 0x1907;
+    int GL_RGBA = 0x1908;
+    int GL_UNSIGNED_SHORT_5_6_5 = 0x8363;
+
+    int GL_ARRAY_BUFFER = 0x8892;
+    int GL_ELEMENT_ARRAY_BUFFER = 0x8893;
+    int GL_STATIC_DRAW = 0x88E4;
+
+    int GL_TEXTURE_2D = 0x0DE1;
+    int GL_TEXTURE0 = 0x84C0;
+    int GL_TEXTURE_MAG_FILTER = 0x2800;
+    int GL_TEXTURE_MIN_FILTER = 0x2801;
+    int GL_NEAREST = 0x2600;
+    int GL_LINEAR = 0x2601;
+    int GL_LINEAR_MIPMAP_LINEAR = 0x2703;
+    /** From the OES_compressed_ETC1_RGB8_texture extension */
+    int GL_ETC1_RGB8_OES = 0x8D64;
+
+    int GL_FRAGMENT_SHADER = 0x8B30;
+    int GL_VERTEX_SHADER = 0x8B31;
+    int GL_COMPILE_STATUS = 0x8B81;
+    int GL_LINK_STATUS = 0x8B82;
+
+    void glActiveTexture(int texture);
+
+    void glAttachShader(int program, int shader);
+
+    void glBindAttribLocation(int program, int index, String name);
+
+    void glBindBuffer(int target, int buffer);
+
+    void glBindTexture(int target, int texture);
+
+    void glBufferData(int target, int size, Buffer data, int usage);
+
+    void glClear(int mask);
+
+    void glClearColor(float red, float green, float blue, float alpha);
+
+    void glCompileShader(int shader);
+
+    void glCompressedTexImage2D(int target, int level, int internalformat, int width, int height, int border,
+                                int imageSize, Buffer data);
+
+    int glCreateProgram();
+
+    int glCreateShader(int type);
+
+    void glDeleteBuffers(int n, int[] buffers, int offset);
+
+    void glDeleteProgram(int program);
+
+    void glDeleteShader(int shader);
+
+    void glDeleteTextures(int n, int[] textures, int offset);
+
+    void glDisableVertexAttribArray(int index);
+
+    void glDrawArrays(int mode, int first, int count);
+
+    void glDrawElements(int mode, int count, int type, int offset);
+
+    void glEnable(int cap);
+
+    void glEnableVertexAttribArray(int index);
+
+    void glGenBuffers(int n, int[] buffers, int offset);
+
+    void glGenTextures(int n, int[] textures, int offset);
+
+    void glGenerateMipmap(int target);
+
+    int glGetAttribLocation(int program, String name);
+
+    int glGetError();
+
+    String glGetProgramInfoLog(int program);
+
+    void glGetProgramiv(int program, int pname, int[] params, int offset);
+
+    String glGetShaderInfoLog(int shader);
+
+    void glGetShaderiv(int shader, int pname, int[] params, int offset);
+
+    int glGetUniformLocation(int program, String name);
+
+    void glLinkProgram(int program);
+
+    void glShaderSource(int shader, String string);
+
+    void glTexImage2D(int target, int level, int internalformat, int width, int height, int border, int format,
+                      int type, Buffer pixels);
+
+    void glTexParameteri(int target, int pname, int param);
+
+    void glUniform1i(int location, int x);
+
+    void glUniform3f(int location, float x, float y, float z);
+
+    void glUniform4f(int location, float x, float y, float z, float w);
+
+    void glUniformMatrix4fv(int location, int count, boolean transpose, float[] value, int offset);
+
+    void glUseProgram(int program);
+
+    void glVertexAttrib3f(int indx, float x, float y, float z);
+
+    void glVertexAttribPointer(int indx, int size, int type, boolean normalized, int stride, int offset);
+
+    void glViewport(int x, int y, int width, int height);
+}
@@ -0,0 +1,236 @@
+package com.example.andrisgauracs.loader3ds;
+
+import java.util.Arrays;
+
+/**
+ * Remembers the GL state, that the renderer sets, and skips the calls, that would not change it.
+ *
+ * All the state changes must go through this class. After anything else changes the state (e.g. uploading
+ * a texture binds it), invalidate must be called, so the next calls are issued again.
+ * The issued and elided calls are counted, to check the CPU side driver overhead per frame.
+ */
+public class GLStateCache {
+
+    /** Marks state, that is not known and is always set */
+    private static final int UNKNOWN = -1;
+    private static final int MAX_ATTRIBUTES = 16;
+    private static final int MAX_TEXTURE_UNITS = 8;
+
+    private final GL gl;
+    private ShaderProgram program;
+    private int activeTexture;
+    private final int[] boundTextures = new int[MAX_TEXTURE_UNITS];
+    private int arrayBuffer;
+    private int elementArrayBuffer;
+    /** 1 enabled, 0 disabled, UNKNOWN */
+    private final int[] attributeArrays = new int[MAX_ATTRIBUTES];
+    /** Holds the value of a single uniform, so it can be compared with the last one */
+    private final float[] scratch = new float[4];
+
+    private long issued;
+    private long elided;
+
+    /**
+     * @param gl - The GL, that the calls are passed on to
+     */
+    public GLStateCache(GL gl) {
+        this.gl = gl;
+        invalidate();
+    }
+
+    /**
+     * Forgets all the state, so every following call is issued
+     */
+    public void invalidate() {
+        if (program != null) {
+            program.invalidateUniforms();
+        }
+        program = null;
+        activeTexture = UNKNOWN;
+        Arrays.fill(boundTextures, UNKNOWN);
+        arrayBuffer = UNKNOWN;
+        elementArrayBuffer = UNKNOWN;
+        Arrays.fill(attributeArrays, UNKNOWN);
+    }
+
+    /**
+     * Forgets the bound textures and buffers, e.g. after uploading new ones
+     */
+    public void invalidateBindings() {
+        activeTexture = UNKNOWN;
+        Arrays.fill(boundTextures, UNKNOWN);
+        arrayBuffer = UNKNOWN;
+        elementArrayBuffer = UNKNOWN;
+    }
+
+    public void useProgram(ShaderProgram newProgram) {
+        if (program == newProgram) {
+            elided++;
+            return;
+        }
+        program = newProgram;
+        issued++;
+        gl.glUseProgram(newProgram.getHandle());
+    }
+
+    /**
+     * @param unit - Texture unit index, 0 for GL_TEXTURE0
+     */
+    public void bindTexture(int unit, int texture) {
+        if (unit < MAX_TEXTURE_UNITS && boundTextures[unit] == texture) {
+            elided++;
+            return;
+        }
+        if (activeTexture != unit) {
+            activeTexture = unit;
+            issued++;
+            gl.glActiveTexture(GL.GL_TEXTURE0 + unit);
+        } else {
+            elided++;
+        }
+        if (unit < MAX_TEXTURE_UNITS) boundTextures[unit] = texture;
+        issued++;
+        gl.glBindTexture(GL.GL_TEXTURE_2D, texture);
+    }
+
+    /**
+     * @param target - GL_ARRAY_BUFFER or GL_ELEMENT_ARRAY_BUFFER
+     */
+    public void bindBuffer(int target, int buffer) {
+        if (target == GL.GL_ARRAY_BUFFER) {
+            if (arrayBuffer == buffer) {
+                elided++;
+                return;
+            }
+            arrayBuffer = buffer;
+        } else {
+            if (elementArrayBuffer == buffer) {
+                elided++;
+                return;
+            }
+            elementArrayBuffer = buffer;
+        }
+        issued++;
+        gl.glBindBuffer(target, buffer);
+    }
+
+    public void enableVertexAttribArray(int location) {
+        if (location < 0) return;
+        if (location < MAX_ATTRIBUTES) {
+            if (attributeArrays[location] == 1) {
+                elided++;
+                return;
+            }
+            attributeArrays[location] = 1;
+        }
+        issued++;
+        gl.glEnableVertexAttribArray(location);
+    }
+
+    public void disableVertexAttribArray(int location) {
+        if (location < 0) return;
+        if (location < MAX_ATTRIBUTES) {
+            if (attributeArrays[location] == 0) {
+                elided++;
+                return;
+            }
+            attributeArrays[location] = 0;
+        }
+        issued++;
+        gl.glDisableVertexAttribArray(location);
+    }
+
+    /**
+     * Not cached, since the pointer depends on the bound buffer. Only counted.
+     */
+    public void vertexAttribPointer(int location, int size, int type, boolean normalized, int stride, int offset) {
+        if (location < 0) return;
+        issued++;
+        gl.glVertexAttribPointer(location, size, type, normalized, stride, offset);
+    }
+
+    /**
+     * The uniform setters apply to the program, that was last set with useProgram
+     */
+    public void uniform1i(int location, int value) {
+        scratch[0] = value;
+        if (!program.updateUniform(location, scratch, 0, 1)) {
+            elided++;
+            return;
+        }
+        issued++;
+        gl.glUniform1i(location, value);
+    }
+
+    public void uniform3f(int location, float x, float y, float z) {
+        scratch[0] = x;
+        scratch[1] = y;
+        scratch[2] = z;
+        if (!program.updateUniform(location, scratch, 0, 3)) {
+            elided++;
+            return;
+        }
+        issued++;
+        gl.glUniform3f(location, x, y, z);
+    }
+
+    public void uniform4f(int location, float x, float y, float z, float w) {
+        scratch[0] = x;
+        scratch[1] = y;
+        scratch[2] = z;
+        scratch[3] = w;
+        if (!program.updateUniform(location, scratch, 0, 4)) {
+            elided++;
+            return;
+        }
+        issued++;
+        gl.glUniform4f(location, x, y, z, w);
+    }
+
+    public void uniformMatrix4fv(int location, float[] value, int offset) {
+        if (!program.updateUniform(location, value, offset, 16)) {
+            elided++;
+            return;
+        }
+        issued++;
+        gl.glUniformMatrix4fv(location, 1, false, value, offset);
+    }
+
+    /**
+     * Draw calls are only counted
+     */
+    public void drawElements(int mode, int count, int type, int offset) {
+        issued++;
+        gl.glDrawElements(mode, count, type, offset);
+    }
+
+    public void drawArrays(int mode, int first, int count) {
+        issued++;
+        gl.glDrawArrays(mode, first, count);
+    }
+
+    /**
+     * @return - The GL, that the calls are passed on to, for the calls, that do not change the cached state
+     */
+    public GL getGL() { return gl; }
+
+    /**
+     * @return - GL calls, that were made
+     */
+    public long getIssuedCount() { return issued; }
+
+    /**
+     * @return - GL calls, that were skipped, since they would not have changed the state
+     */
+    public long getElidedCount() { return elided; }
+
+    public void resetCounters() {
+        issued = 0;
+        elided = 0;
+    }
+
+    @Override
+    public String toString() {
+        return "issued=" + issued + " elided=" + elided;
+    }
+}
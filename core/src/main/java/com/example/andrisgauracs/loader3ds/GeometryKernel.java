@@ -0,0 +1,209 @@
+package com.example.andrisgauracs.loader3ds;
+
+/**
+ * Vector math on flat float arrays. Every function works on an offset, a count and a stride into arrays,
+ * that the caller owns, so nothing is allocated per vector.
+ *
+ * Vectors are 3 consecutive floats. Matrices are 16 floats in column-major order, as in android.opengl.Matrix.
+ */
+public final class GeometryKernel {
+
+    /** Layout of the bounds array: minimum, maximum and centroid, 3 floats each */
+    public static final int MIN = 0;
+    public static final int MAX = 3;
+    public static final int CENTROID = 6;
+    public static final int BOUNDS_SIZE = 9;
+    /** Layout of a bounding sphere: center x, y, z and the radius */
+    public static final int SPHERE_SIZE = 4;
+
+    private GeometryKernel() { }
+
+    /**
+     * Computes the axis aligned bounding box and the centroid of count points in one pass.
+     * @param src - Points, the first one starting at offset
+     * @param stride - Floats from one point to the next
+     * @param bounds - Receives BOUNDS_SIZE floats at boundsOffset, see MIN, MAX and CENTROID
+     */
+    public static void bounds(float[] src, int offset, int count, int stride, float[] bounds, int boundsOffset) {
+        if (count == 0) {
+            for (int i = 0; i < BOUNDS_SIZE; i++) bounds[boundsOffset + i] = 0;
+            return;
+        }
+        float minX = Float.POSITIVE_INFINITY, minY = Float.POSITIVE_INFINITY, minZ = Float.POSITIVE_INFINITY;
+        float maxX = Float.NEGATIVE_INFINITY, maxY = Float.NEGATIVE_INFINITY, maxZ = Float.NEGATIVE_INFINITY;
+        double sumX = 0, sumY = 0, sumZ = 0;
+        for (int i = 0, p = offset; i < count; i++, p += stride) {
+            float x = src[p], y = src[p + 1], z = src[p + 2];
+            if (x < minX) minX = x;
+            if (x > maxX) maxX = x;
+            if (y < minY) minY = y;
+            if (y > maxY) maxY = y;
+            if (z < minZ) minZ = z;
+            if (z > maxZ) maxZ = z;
+            sumX += x;
+            sumY += y;
+            sumZ += z;
+        }
+        bounds[boundsOffset + MIN] = minX;
+        bounds[boundsOffset + MIN + 1] = minY;
+        bounds[boundsOffset + MIN + 2] = minZ;
+        bounds[boundsOffset + MAX] = maxX;
+        bounds[boundsOffset + MAX + 1] = maxY;
+        bounds[boundsOffset + MAX + 2] = maxZ;
+        bounds[boundsOffset + CENTROID] = (float) (sumX / count);
+        bounds[boundsOffset + CENTROID + 1] = (float) (sumY / count);
+        bounds[boundsOffset + CENTROID + 2] = (float) (sumZ / count);
+    }
+
+    /**
+     * Computes a sphere around the center of the bounding box, that contains all count points
+     * @param bounds - The bounds of the same points, see bounds
+     * @param sphere - Receives SPHERE_SIZE floats at sphereOffset
+     */
+    public static void boundingSphere(float[] src, int offset, int count, int stride, float[] bounds, int boundsOffset,
+                                      float[] sphere, int sphereOffset) {
+        float cx = (bounds[boundsOffset + MIN] + bounds[boundsOffset + MAX]) * 0.5f;
+        float cy = (bounds[boundsOffset + MIN + 1] + bounds[boundsOffset + MAX + 1]) * 0.5f;
+        float cz = (bounds[boundsOffset + MIN + 2] + bounds[boundsOffset + MAX + 2]) * 0.5f;
+        float maxSq = 0;
+        for (int i = 0, p = offset; i < count; i++, p += stride) {
+            float dx = src[p] - cx, dy = src[p + 1] - cy, dz = src[p + 2] - cz;
+            float sq = dx * dx + dy * dy + dz * dz;
+            if (sq > maxSq) maxSq = sq;
+        }
+        sphere[sphereOffset] = cx;
+        sphere[sphereOffset + 1] = cy;
+        sphere[sphereOffset + 2] = cz;
+        sphere[sphereOffset + 3] = (float) Math.sqrt(maxSq);
+    }
+
+    /**
+     * Computes (b - a) x (c - a) for every triangle. The result is not normalized, its length is twice the
+     * triangle's area.
+     * @param vertices - 3 floats per vertex
+     * @param faces - 3 vertex indices per triangle
+     * @param out - Receives 3 floats per triangle
+     */
+    public static void faceNormals(float[] vertices, int[] faces, float[] out) {
+        int numFaces = faces.length / 3;
+        for (int f = 0; f < numFaces; f++) {
+            int a = faces[f*3] * 3;
+            int b = faces[f*3 + 1] * 3;
+            int c = faces[f*3 + 2] * 3;
+            float e1x = vertices[b] - vertices[a];
+            float e1y = vertices[b+1] - vertices[a+1];
+            float e1z = vertices[b+2] - vertices[a+2];
+            float e2x = vertices[c] - vertices[a];
+            float e2y = vertices[c+1] - vertices[a+1];
+            float e2z = vertices[c+2] - vertices[a+2];
+            out[f*3] = e1y * e2z - e1z * e2y;
+            out[f*3 + 1] = e1z * e2x - e1x * e2z;
+            out[f*3 + 2] = e1x * e2y - e1y * e2x;
+        }
+    }
+
+    /**
+     * Normalizes count vectors in place. Zero length vectors stay zero.
+     */
+    public static void normalize(float[] v, int offset, int count, int stride) {
+        for (int i = 0, p = offset; i < count; i++, p += stride) {
+            float length = (float) Math.sqrt(v[p] * v[p] + v[p + 1] * v[p + 1] + v[p + 2] * v[p + 2]);
+            if (length == 0) continue;
+            //Dividing rounds equal directions, summed in a different order, to the same normal more often
+            v[p] /= length;
+            v[p + 1] /= length;
+            v[p + 2] /= length;
+        }
+    }
+
+    /**
+     * Same as android.opengl.Matrix.setIdentityM, so the render path does not need Android
+     */
+    public static void setIdentityM(float[] m, int offset) {
+        for (int i = 0; i < 16; i++) m[offset + i] = i % 5 == 0 ? 1 : 0;
+    }
+
+    /**
+     * Same as android.opengl.Matrix.multiplyMM: result = lhs * rhs. The result must not overlap lhs or rhs.
+     */
+    public static void multiplyMM(float[] result, int resultOffset, float[] lhs, int lhsOffset, float[] rhs, int rhsOffset) {
+        for (int col = 0; col < 4; col++) {
+            float x = rhs[rhsOffset + col * 4], y = rhs[rhsOffset + col * 4 + 1];
+            float z = rhs[rhsOffset + col * 4 + 2], w = rhs[rhsOffset + col * 4 + 3];
+            for (int row = 0; row < 4; row++) {
+                result[resultOffset + col * 4 + row] = lhs[lhsOffset + row] * x + lhs[lhsOffset + 4 + row] * y
+                        + lhs[lhsOffset + 8 + row] * z + lhs[lhsOffset + 12 + row] * w;
+            }
+        }
+    }
+
+    /**
+     * Same as android.opengl.Matrix.scaleM, in place: scales the first three columns
+     */
+    public static void scaleM(float[] m, int offset, float x, float y, float z) {
+        for (int i = 0; i < 4; i++) {
+            m[offset + i] *= x;
+            m[offset + 4 + i] *= y;
+            m[offset + 8 + i] *= z;
+        }
+    }
+
+    /**
+     * Inverts a matrix, whose last row is (0, 0, 0, 1), e.g. a rotation, scale and translation
+     * @return - False, if the matrix can not be inverted. inv is not changed then.
+     */
+    public static boolean invertAffineM(float[] inv, int invOffset, float[] m, int mOffset) {
+        float a = m[mOffset], b = m[mOffset + 4], c = m[mOffset + 8];
+        float d = m[mOffset + 1], e = m[mOffset + 5], f = m[mOffset + 9];
+        float g = m[mOffset + 2], h = m[mOffset + 6], k = m[mOffset + 10];
+        //Cofactors of the upper 3x3
+        float c00 = e * k - f * h, c01 = f * g - d * k, c02 = d * h - e * g;
+        float det = a * c00 + b * c01 + c * c02;
+        if (det == 0) return false;
+        float s = 1 / det;
+        float i00 = c00 * s, i01 = (c * h - b * k) * s, i02 = (b * f - c * e) * s;
+        float i10 = c01 * s, i11 = (a * k - c * g) * s, i12 = (c * d - a * f) * s;
+        float i20 = c02 * s, i21 = (b * g - a * h) * s, i22 = (a * e - b * d) * s;
+        float tx = m[mOffset + 12], ty = m[mOffset + 13], tz = m[mOffset + 14];
+        inv[invOffset] = i00;
+        inv[invOffset + 1] = i10;
+        inv[invOffset + 2] = i20;
+        inv[invOffset + 3] = 0;
+        inv[invOffset + 4] = i01;
+        inv[invOffset + 5] = i11;
+        inv[invOffset + 6] = i21;
+        inv[invOffset + 7] = 0;
+        inv[invOffset + 8] = i02;
+        inv[invOffset + 9] = i12;
+        inv[invOffset + 10] = i22;
+        inv[invOffset + 11] = 0;
+        inv[invOffset + 12] = -(i00 * tx + i01 * ty + i02 * tz);
+        inv[invOffset + 13] = -(i10 * tx + i11 * ty + i12 * tz);
+        inv[invOffset + 14] = -(i20 * tx + i21 * ty + i22 * tz);
+        inv[invOffset + 15] = 1;
+        return true;
+    }
+
+    /**
+     * m = T(x, y, z) * R(q) * S(sx, sy, sz), where q is the unit quaternion (qx, qy, qz, qw)
+     */
+    public static void setTransformM(float[] m, int offset, float x, float y, float z,
+                                     float qx, float qy, float qz, float qw, float sx, float sy, float sz) {
+        m[offset] = (1 - 2 * (qy * qy + qz * qz)) * sx;
+        m[offset + 1] = 2 * (qx * qy + qz * qw) * sx;
+        m[offset + 2] = 2 * (qx * qz - qy * qw) * sx;
+        m[offset + 3] = 0;
+        m[offset + 4] = 2 * (qx * qy - qz * qw) * sy;
+        m[offset + 5] = (1 - 2 * (qx * qx + qz * qz)) * sy;
+        m[offset + 6] = 2 * (qy * qz + qx * qw) * sy;
+        m[offset + 7] = 0;
+        m[offset + 8] = 2 * (qx * qz + qy * qw) * sz;
+        m[offset + 9] = 2 * (qy * qz - qx * qw) * sz;
+        m[offset + 10] = (1 - 2 * (qx * qx + qy * qy)) * sz;
+        m[offset + 11] = 0;
+        m[offset + 12] = x;
+        m[offset + 13] = y;
+        m[offset + 14] = z;
+        m[offset + 15] = 1;
+    }
+}
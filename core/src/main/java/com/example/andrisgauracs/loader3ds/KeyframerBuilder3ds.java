@@ -0,0 +1,290 @@
+package com.example.andrisgauracs.loader3ds;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * Reads the object nodes of the 0xb000 keyframer chunk, and samples their position, rotation and scale tracks
+ * into an Animation3ds.
+ *
+ * The keys are interpolated linearly (rotations spherically) between each other. The tension, continuity, bias
+ * and ease values of the keys are read, but not applied. The pivot (0xb013) is not needed, since the animation
+ * is applied relative to the pose of the meshes, in which the pivot cancels out.
+ */
+class KeyframerBuilder3ds extends SimpleChunkVisitor3ds {
+
+    /** One 0xb002 object node, with its keys as they are in the file */
+    private static class Node {
+        int id;
+        String name = "";
+        int parent = -1;
+        int[] positionFrames = new int[0];
+        float[] positions;
+        int[] rotationFrames = new int[0];
+        /** Unit quaternions, each one already combined with the ones before it */
+        float[] rotations;
+        int[] scaleFrames = new int[0];
+        float[] scales;
+    }
+
+    private final ArrayList<Node> nodes = new ArrayList<>();
+    private int segmentStart;
+    private int segmentEnd;
+    private int restFrame;
+
+    @Override
+    public boolean enterChunk(int type, int size) throws IOException {
+        if (type == 0xb002) {
+            Node node = new Node();
+            //Files without 0xb030 number the nodes in file order
+            node.id = nodes.size();
+            nodes.add(node);
+        }
+        return true;
+    }
+
+    @Override
+    public void onKeyframerSegment(int start, int end) throws IOException {
+        segmentStart = start;
+        segmentEnd = end;
+    }
+
+    @Override
+    public void onKeyframerFrame(int frame) throws IOException { restFrame = frame; }
+
+    @Override
+    public void onNodeId(int id) throws IOException {
+        if (!nodes.isEmpty()) nodes.get(nodes.size() - 1).id = id;
+    }
+
+    @Override
+    public void onNodeHeader(String name, int parent) throws IOException {
+        if (nodes.isEmpty()) return;
+        Node node = nodes.get(nodes.size() - 1);
+        node.name = name;
+        node.parent = parent;
+    }
+
+    @Override
+    public void onTrack(int type, int keyCount, ChunkInput data) throws IOException {
+        if (nodes.isEmpty()) return;
+        Node node = nodes.get(nodes.size() - 1);
+        int[] frames = new int[keyCount];
+        float[] values = new float[keyCount * (type == 0xb021 ? 4 : 3)];
+        readKeys(type, keyCount, data, frames, values);
+        switch (type) {
+            case 0xb020:
+                node.positionFrames = frames;
+                node.positions = values;
+                break;
+            case 0xb021:
+                node.rotationFrames = frames;
+                node.rotations = values;
+                break;
+            case 0xb022:
+                node.scaleFrames = frames;
+                node.scales = values;
+                break;
+        }
+    }
+
+    /**
+     * Each key is a frame number (int), a flag word, one float for each flag bit 0 to 4 (tension, continuity,
+     * bias, ease to, ease from), and the value: 3 floats for a position or scale, or an angle and an axis for
+     * a rotation. Each rotation key turns further from the one before it.
+     * @param values - Receives 3 floats per key, or a unit quaternion x, y, z, w per rotation key
+     */
+    static void readKeys(int type, int keyCount, ChunkInput data, int[] frames, float[] values) throws IOException {
+        for (int k = 0; k < keyCount; k++) {
+            frames[k] = data.getInt();
+            int flags = data.getShort() & 0xffff;
+            for (int bit = 0; bit < 5; bit++) {
+                if ((flags & (1 << bit)) != 0) data.getFloat();
+            }
+            if (type != 0xb021) {
+                values[k * 3] = data.getFloat();
+                values[k * 3 + 1] = data.getFloat();
+                values[k * 3 + 2] = data.getFloat();
+                continue;
+            }
+            float angle = data.getFloat();
+            float x = data.getFloat(), y = data.getFloat(), z = data.getFloat();
+            float length = (float) Math.sqrt(x * x + y * y + z * z);
+            //The angles of 3ds turn the other way around the axis
+            float sin = length > 0 ? (float) Math.sin(-angle / 2) / length : 0;
+            float qx = x * sin, qy = y * sin, qz = z * sin;
+            float qw = length > 0 ? (float) Math.cos(-angle / 2) : 1;
+            int q = k * 4;
+            if (k == 0) {
+                values[q] = qx;
+                values[q + 1] = qy;
+                values[q + 2] = qz;
+                values[q + 3] = qw;
+            } else {
+                //This key's turn, after the one of the key before
+                float px = values[q - 4], py = values[q - 3], pz = values[q - 2], pw = values[q - 1];
+                values[q] = qw * px + qx * pw + qy * pz - qz * py;
+                values[q + 1] = qw * py - qx * pz + qy * pw + qz * px;
+                values[q + 2] = qw * pz + qx * py - qy * px + qz * pw;
+                values[q + 3] = qw * pw - qx * px - qy * py - qz * pz;
+            }
+        }
+    }
+
+    /**
+     * @return - The sampled animation, or null if no track has more than one key, so nothing moves
+     */
+    Animation3ds build() {
+        boolean animated = false;
+        for (Node node : nodes) {
+            animated |= node.positionFrames.length > 1 || node.rotationFrames.length > 1 || node.scaleFrames.length > 1;
+        }
+        if (!animated) return null;
+
+        //Parents are put before their children, so a frame can be evaluated in one pass
+        HashMap<Integer, Integer> byId = new HashMap<>();
+        for (int i = 0; i < nodes.size(); i++) {
+            byId.put(nodes.get(i).id, i);
+        }
+        int[] order = new int[nodes.size()];
+        int[] orderOf = new int[nodes.size()];
+        int count = 0;
+        boolean[] placed = new boolean[nodes.size()];
+        for (int i = 0; i < nodes.size(); i++) {
+            count = place(i, byId, placed, order, orderOf, count, 0);
+        }
+
+        int n = nodes.size();
+        String[] names = new String[n];
+        int[] parents = new int[n];
+        for (int i = 0; i < n; i++) {
+            Node node = nodes.get(order[i]);
+            names[i] = node.name;
+            //A parent, that is not placed before the node, is only possible in a cycle
+            Integer parent = byId.get(node.parent);
+            parents[i] = node.parent < 0 || parent == null || orderOf[parent] >= i ? -1 : orderOf[parent];
+        }
+
+        int frameCount = Math.max(segmentEnd - segmentStart, 0) + 1;
+        float[] samples = new float[frameCount * n * Animation3ds.SAMPLE_SIZE];
+        for (int f = 0; f < frameCount; f++) {
+            for (int i = 0; i < n; i++) {
+                sample(nodes.get(order[i]), segmentStart + f, samples, (f * n + i) * Animation3ds.SAMPLE_SIZE);
+            }
+        }
+
+        //The world matrices in the pose of the meshes, inverted
+        float[] rest = new float[Animation3ds.SAMPLE_SIZE];
+        float[] local = new float[16];
+        float[] world = new float[n * 16];
+        float[] restInverse = new float[n * 16];
+        for (int i = 0; i < n; i++) {
+            sample(nodes.get(order[i]), restFrame, rest, 0);
+            GeometryKernel.setTransformM(local, 0, rest[0], rest[1], rest[2], rest[3], rest[4], rest[5], rest[6],
+                    rest[7], rest[8], rest[9]);
+            if (parents[i] < 0) {
+                System.arraycopy(local, 0, world, i * 16, 16);
+            } else {
+                GeometryKernel.multiplyMM(world, i * 16, world, parents[i] * 16, local, 0);
+            }
+            if (!GeometryKernel.invertAffineM(restInverse, i * 16, world, i * 16)) {
+                GeometryKernel.setIdentityM(restInverse, i * 16);
+            }
+        }
+        return new Animation3ds(names, parents, frameCount, samples, restInverse);
+    }
+
+    /**
+     * Puts the node into the order after its parents. A parent, that is already being placed (a cycle in a
+     * broken file), is not followed.
+     */
+    private int place(int i, HashMap<Integer, Integer> byId, boolean[] placed, int[] order, int[] orderOf,
+                      int count, int depth) {
+        if (placed[i]) return count;
+        placed[i] = true;
+        Integer parent = byId.get(nodes.get(i).parent);
+        if (parent != null && depth < nodes.size()) {
+            count = place(parent, byId, placed, order, orderOf, count, depth + 1);
+        }
+        orderOf[i] = count;
+        order[count] = i;
+        return count + 1;
+    }
+
+    /**
+     * Writes the position, rotation and scale of the node at the frame. Before the first key and after the last
+     * one, the value of that key is held. A missing track is the identity.
+     */
+    private static void sample(Node node, float frame, float[] out, int offset) {
+        if (!sampleVector(node.positionFrames, node.positions, frame, out, offset)) {
+            out[offset] = out[offset + 1] = out[offset + 2] = 0;
+        }
+        if (!sampleRotation(node.rotationFrames, node.rotations, frame, out, offset + 3)) {
+            out[offset + 3] = out[offset + 4] = out[offset + 5] = 0;
+            out[offset + 6] = 1;
+        }
+        if (!sampleVector(node.scaleFrames, node.scales, frame, out, offset + 7)) {
+            out[offset + 7] = out[offset + 8] = out[offset + 9] = 1;
+        }
+    }
+
+    /**
+     * @return - The last key at or before the frame, or 0 before the first key
+     */
+    private static int findKey(int[] frames, float frame) {
+        int low = 0, high = frames.length - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (frames[mid] <= frame) low = mid;
+            else high = mid - 1;
+        }
+        return low;
+    }
+
+    private static float fraction(int[] frames, int key, float frame) {
+        if (key + 1 >= frames.length || frame <= frames[key]) return 0;
+        int span = frames[key + 1] - frames[key];
+        return span <= 0 ? 0 : Math.min((frame - frames[key]) / span, 1);
+    }
+
+    private static boolean sampleVector(int[] frames, float[] values, float frame, float[] out, int offset) {
+        if (frames.length == 0) return false;
+        int key = findKey(frames, frame);
+        float t = fraction(frames, key, frame);
+        int next = Math.min(key + 1, frames.length - 1);
+        for (int i = 0; i < 3; i++) {
+            out[offset + i] = values[key * 3 + i] + (values[next * 3 + i] - values[key * 3 + i]) * t;
+        }
+        return true;
+    }
+
+    private static boolean sampleRotation(int[] frames, float[] values, float frame, float[] out, int offset) {
+        if (frames.length == 0) return false;
+        int key = findKey(frames, frame);
+        float t = fraction(frames, key, frame);
+        int a = key * 4;
+        int b = Math.min(key + 1, frames.length - 1) * 4;
+        float dot = values[a] * values[b] + values[a + 1] * values[b + 1] + values[a + 2] * values[b + 2]
+                + values[a + 3] * values[b + 3];
+        float sign = dot < 0 ? -1 : 1;
+        dot *= sign;
+        float wa = 1 - t, wb = t;
+        if (dot < 0.9995f) {
+            double theta = Math.acos(dot);
+            double sin = Math.sin(theta);
+            wa = (float) (Math.sin((1 - t) * theta) / sin);
+            wb = (float) (Math.sin(t * theta) / sin);
+        }
+        float length = 0;
+        for (int i = 0; i < 4; i++) {
+            out[offset + i] = values[a + i] * wa + sign * values[b + i] * wb;
+            length += out[offset + i] * out[offset + i];
+        }
+        length = (float) Math.sqrt(length);
+        for (int i = 0; i < 4; i++) {
+            out[offset + i] /= length;
+        }
+        return true;
+    }
+}
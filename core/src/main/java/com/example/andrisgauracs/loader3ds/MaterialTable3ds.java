@@ -0,0 +1,45 @@
+package com.example.andrisgauracs.loader3ds;
+
+import java.util.HashMap;
+import java.util.Set;
+
+/**
+ * The materials of a 3ds file, hashed by name, so looking up the material of a face list does not depend on
+ * the number of materials in the file
+ */
+public class MaterialTable3ds {
+
+    /** Texture file of each material, without the extension, or null if the material has no texture */
+    private final HashMap<String, String> textureFiles = new HashMap<>();
+
+    /**
+     * Adds a material without a texture. Adding a name again keeps the first material's texture.
+     */
+    public void add(String name) {
+        if (!textureFiles.containsKey(name)) {
+            textureFiles.put(name, null);
+        }
+    }
+
+    /**
+     * @param file - Texture file name without the extension. Ignored, if the material already has a texture.
+     */
+    public void setTextureFile(String name, String file) {
+        if (textureFiles.get(name) == null) {
+            textureFiles.put(name, file);
+        }
+    }
+
+    /**
+     * @return - Texture file name without the extension, or null if there is no such material or it has no texture
+     */
+    public String getTextureFile(String name) { return textureFiles.get(name); }
+
+    public boolean contains(String name) { return textureFiles.containsKey(name); }
+
+    public Set<String> getNames() { return textureFiles.keySet(); }
+
+    public int size() { return textureFiles.size(); }
+
+    public void clear() { textureFiles.clear(); }
+}
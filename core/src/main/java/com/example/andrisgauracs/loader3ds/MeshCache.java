@@ -0,0 +1,326 @@
+package com.example.andrisgauracs.loader3ds;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Stores prepared objects (the final interleaved vertex and index buffers, submeshes, levels of detail, texture names, bounds
+ * and scale factors) in binary
+ * files, so later launches can skip parsing and preparation altogether. Compact vertices are stored as they are,
+ * with their transforms.
+ *
+ * A cache file is memory-mapped on reading, and the objects get direct views of the mapping, so nothing is parsed
+ * or copied per float. The files are written in native byte order, since they never leave the device.
+ * Files of another VERSION or byte order are ignored and rewritten. Truncated or corrupt files are deleted, and
+ * read as a miss.
+ */
+public class MeshCache {
+
+    private static final int MAGIC = 0x33445343; // "3DSC"
+    /** Must be increased, whenever the file layout or the preparation of the objects changes */
+    static final int VERSION = 10;
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private final File directory;
+
+    /**
+     * @param directory - Where the cache files are kept, e.g. a folder in Context.getCacheDir()
+     */
+    public MeshCache(File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * @param source - The whole 3ds file
+     * @param variant - Anything else, that changes the prepared objects, e.g. the forced texture name. Can be null.
+     * @return - The cache key of the source
+     */
+    public static String key(byte[] source, String variant) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            digest.update(source);
+            if (variant != null) {
+                digest.update(variant.getBytes(UTF8));
+            }
+            StringBuilder key = new StringBuilder(40);
+            for (byte b : digest.digest()) {
+                key.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+            }
+            return key.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private File file(String key) {
+        return new File(directory, key + ".mesh");
+    }
+
+    /**
+     * @return - The prepared objects, or null if there is no valid cache file for the key
+     */
+    public List<Object3ds> read(String key) throws IOException {
+        File file = file(key);
+        if (!file.exists()) return null;
+
+        ByteBuffer data;
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = raf.getChannel();
+            data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).order(ByteOrder.nativeOrder());
+        } finally {
+            raf.close();
+        }
+        if (data.remaining() < 12 || data.getInt() != MAGIC || data.getInt() != VERSION || data.getInt() != 1) {
+            //Written by another version, or with another byte order
+            return null;
+        }
+        try {
+            return readModels(data);
+        } catch (RuntimeException e) {
+            //Truncated or corrupt, e.g. when the device ran out of space while it was written. It is written again.
+            file.delete();
+            return null;
+        }
+    }
+
+    private static List<Object3ds> readModels(ByteBuffer data) {
+        int count = readCount(data, 1);
+        ArrayList<Object3ds> models = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Object3ds model = new Object3ds();
+            model.setName(readString(data));
+            String texture = readString(data);
+            model.setTextureName(texture.isEmpty() ? null : texture);
+            int submeshes = data.getInt();
+            for (int j = 0; j < submeshes; j++) {
+                int firstFace = data.getInt();
+                int faceCount = data.getInt();
+                String material = readString(data);
+                Submesh3ds submesh = new Submesh3ds(material.isEmpty() ? null : material, firstFace, faceCount);
+                String submeshTexture = readString(data);
+                submesh.setTextureName(submeshTexture.isEmpty() ? null : submeshTexture);
+                int lods = data.getInt();
+                for (int level = 1; level < lods; level++) {
+                    submesh.addLod(data.getInt(), data.getInt());
+                }
+                model.addSubmesh(submesh);
+            }
+            align(data);
+            float scale = data.getFloat();
+            int numFaces = data.getInt();
+            int vertices = data.getInt();
+            int indices = data.getInt();
+            data.asFloatBuffer().get(model.getBounds()).get(model.getBoundingSphere());
+            data.position(data.position() + (GeometryKernel.BOUNDS_SIZE + GeometryKernel.SPHERE_SIZE) * 4);
+            float[] lodErrors = new float[readCount(data, 4)];
+            for (int level = 0; level < lodErrors.length; level++) {
+                lodErrors[level] = data.getFloat();
+            }
+            model.setLodErrors(lodErrors);
+            boolean compact = data.getInt() != 0;
+            if (compact) {
+                data.asFloatBuffer().get(model.getDequantizationMatrix()).get(model.getTextureTransform());
+                data.position(data.position() + (16 + 4) * 4);
+            }
+            align(data);
+            if (compact) {
+                //The vertex count is in bytes
+                ByteBuffer vertex = sliceBytes(data, vertices);
+                align(data);
+                ShortBuffer index = indices > 0 ? sliceShorts(data, indices) : null;
+                if (vertices > 0) {
+                    model.setCompactBuffers(vertex, index, numFaces, scale);
+                }
+            } else {
+                FloatBuffer vertex = slice(data, vertices);
+                ShortBuffer index = indices > 0 ? sliceShorts(data, indices) : null;
+                if (vertices > 0) {
+                    model.setPreparedBuffers(vertex, index, numFaces, scale);
+                }
+            }
+            align(data);
+            models.add(model);
+        }
+        return models;
+    }
+
+    /**
+     * Writes the objects to a temporary file first, so a crash can not leave a half written cache file behind.
+     */
+    public void write(String key, List<Object3ds> models) throws IOException {
+        int size = 16;
+        for (Object3ds model : models) {
+            size += stringSize(model.getName()) + stringSize(model.getTextureName()) + 20 + 6
+                    + (GeometryKernel.BOUNDS_SIZE + GeometryKernel.SPHERE_SIZE) * 4 + 4 + model.getLodCount() * 4
+                    + 4 + (model.isCompact() ? (16 + 4) * 4 : 0);
+            for (Submesh3ds submesh : model.getSubmeshes()) {
+                size += 12 + stringSize(submesh.getMaterial()) + stringSize(submesh.getTextureName())
+                        + (model.getLodCount() - 1) * 8;
+            }
+            if (model.isPrepared()) {
+                size += model.isCompact() ? model.getCompactVertexBuffer().capacity()
+                        : model.getVertexBuffer().capacity() * 4;
+                if (model.getIndexBuffer() != null) {
+                    size += model.getIndexBuffer().capacity() * 2 + 2;
+                }
+            }
+        }
+
+        ByteBuffer data = ByteBuffer.allocate(size).order(ByteOrder.nativeOrder());
+        data.putInt(MAGIC).putInt(VERSION).putInt(1).putInt(models.size());
+        for (Object3ds model : models) {
+            writeString(data, model.getName());
+            writeString(data, model.getTextureName());
+            data.putInt(model.getSubmeshes().size());
+            for (Submesh3ds submesh : model.getSubmeshes()) {
+                data.putInt(submesh.getFirstFace());
+                data.putInt(submesh.getFaceCount());
+                writeString(data, submesh.getMaterial());
+                writeString(data, submesh.getTextureName());
+                data.putInt(model.getLodCount());
+                for (int level = 1; level < model.getLodCount(); level++) {
+                    data.putInt(submesh.getFirstFace(level));
+                    data.putInt(submesh.getFaceCount(level));
+                }
+            }
+            align(data);
+            boolean prepared = model.isPrepared();
+            boolean compact = model.isCompact();
+            data.putFloat(model.getScaleFactor());
+            data.putInt(model.getNumFaces());
+            if (compact) {
+                data.putInt(model.getCompactVertexBuffer().capacity());
+            } else {
+                data.putInt(prepared ? model.getVertexBuffer().capacity() : 0);
+            }
+            ShortBuffer index = prepared ? model.getIndexBuffer() : null;
+            data.putInt(index != null ? index.capacity() : 0);
+            data.asFloatBuffer().put(model.getBounds()).put(model.getBoundingSphere());
+            data.position(data.position() + (GeometryKernel.BOUNDS_SIZE + GeometryKernel.SPHERE_SIZE) * 4);
+            data.putInt(model.getLodCount());
+            for (int level = 0; level < model.getLodCount(); level++) {
+                data.putFloat(model.getLodError(level));
+            }
+            data.putInt(compact ? 1 : 0);
+            if (compact) {
+                data.asFloatBuffer().put(model.getDequantizationMatrix()).put(model.getTextureTransform());
+                data.position(data.position() + (16 + 4) * 4);
+            }
+            align(data);
+            if (compact) {
+                ByteBuffer source = model.getCompactVertexBuffer().duplicate();
+                source.position(0);
+                data.put(source);
+                align(data);
+            } else if (prepared) {
+                put(data, model.getVertexBuffer());
+            }
+            if (prepared) {
+                if (index != null) {
+                    ShortBuffer source = index.duplicate();
+                    source.position(0);
+                    data.asShortBuffer().put(source);
+                    data.position(data.position() + source.capacity() * 2);
+                }
+            }
+            align(data);
+        }
+        data.flip();
+
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Can not create " + directory);
+        }
+        File temp = new File(directory, key + ".tmp");
+        FileOutputStream out = new FileOutputStream(temp);
+        try {
+            FileChannel channel = out.getChannel();
+            while (data.hasRemaining()) {
+                channel.write(data);
+            }
+        } finally {
+            out.close();
+        }
+        if (!temp.renameTo(file(key))) {
+            temp.delete();
+            throw new IOException("Can not write cache file for " + key);
+        }
+    }
+
+    /**
+     * @param bytesEach - The least number of bytes, that each of the counted items takes in the file
+     * @return - The next int, which is checked against the rest of the file, so a corrupt count can not allocate
+     * a huge array
+     */
+    private static int readCount(ByteBuffer data, int bytesEach) {
+        int count = data.getInt();
+        if (count < 0 || (long) count * bytesEach > data.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        return count;
+    }
+
+    private static int stringSize(String s) {
+        return 2 + (s == null ? 0 : s.getBytes(UTF8).length);
+    }
+
+    private static void writeString(ByteBuffer data, String s) {
+        byte[] bytes = s == null ? new byte[0] : s.getBytes(UTF8);
+        data.putShort((short) bytes.length);
+        data.put(bytes);
+    }
+
+    private static String readString(ByteBuffer data) {
+        byte[] bytes = new byte[data.getShort() & 0xffff];
+        data.get(bytes);
+        return new String(bytes, UTF8);
+    }
+
+    /**
+     * Float arrays start at a multiple of 4 bytes, so the mapped views stay aligned
+     */
+    private static void align(ByteBuffer data) {
+        data.position((data.position() + 3) & ~3);
+    }
+
+    private static void put(ByteBuffer data, FloatBuffer buffer) {
+        FloatBuffer source = buffer.duplicate();
+        source.position(0);
+        data.asFloatBuffer().put(source);
+        data.position(data.position() + source.capacity() * 4);
+    }
+
+    private static ShortBuffer sliceShorts(ByteBuffer data, int shorts) {
+        ByteBuffer view = data.duplicate();
+        view.limit(view.position() + shorts * 2);
+        data.position(data.position() + shorts * 2);
+        return view.slice().order(ByteOrder.nativeOrder()).asShortBuffer();
+    }
+
+    private static ByteBuffer sliceBytes(ByteBuffer data, int bytes) {
+        ByteBuffer view = data.duplicate();
+        view.limit(view.position() + bytes);
+        data.position(data.position() + bytes);
+        return view.slice().order(ByteOrder.nativeOrder());
+    }
+
+    private static FloatBuffer slice(ByteBuffer data, int floats) {
+        ByteBuffer view = data.duplicate();
+        view.limit(view.position() + floats * 4);
+        data.position(data.position() + floats * 4);
+        return view.slice().order(ByteOrder.nativeOrder()).asFloatBuffer();
+    }
+}
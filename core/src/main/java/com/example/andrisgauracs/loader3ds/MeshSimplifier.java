@@ -0,0 +1,387 @@
+package com.example.andrisgauracs.loader3ds;
+
+import java.util.Arrays;
+
+/**
+ * Reduces the triangles of an indexed mesh by quadric error edge collapses (Garland and Heckbert).
+ *
+ * A vertex is only ever collapsed onto one of its neighbours, so the simplified mesh uses a subset of the original
+ * vertices, and every level of detail is just another index list into the same vertex buffer.
+ * Vertices on the mesh border, and vertices, whose position is shared by other vertices (normal or texture
+ * coordinate seams), are never moved, so the outline and the seams do not crack.
+ *
+ * Simplification is progressive: each call to simplify continues from the result of the previous one.
+ */
+class MeshSimplifier {
+
+    /** A collapse may not turn a triangle's normal by more than about 80 degrees */
+    private static final double MIN_NORMAL_DOT = 0.2;
+
+    private final float[] data;
+    private final int stride;
+    private final int[] triangles;
+    private final boolean[] removed;
+    private int remaining;
+
+    /** Error quadric of each vertex: a2, ab, ac, ad, b2, bc, bd, c2, cd, d2 of the summed planes */
+    private final double[] quadrics;
+    private final boolean[] locked;
+    private final boolean[] collapsed;
+    /** Increased, whenever the vertex's quadric or neighbourhood changes, so older candidates are skipped */
+    private final int[] versions;
+    /** The triangles around each vertex. Triangles, that were removed, stay in the lists and are skipped. */
+    private final int[][] adjacency;
+    private final int[] adjacencyCounts;
+
+    //Candidate collapses from -> to in a binary min heap, ordered by cost
+    private double[] heapCost = new double[64];
+    private int[] heapFrom = new int[64];
+    private int[] heapTo = new int[64];
+    /** The versions of both vertices, when the candidate was pushed */
+    private int[] heapFromVersion = new int[64];
+    private int[] heapToVersion = new int[64];
+    private int heapSize;
+
+    /** Normals of a triangle before and after a collapse, reused by every flip test */
+    private final double[] before = new double[3];
+    private final double[] after = new double[3];
+
+    private float error;
+
+    /**
+     * @param data - Interleaved vertices, the position is the first 3 floats of each
+     * @param stride - Floats per vertex
+     * @param vertexCount - Number of vertices in data
+     * @param indices - Triangle list. It is not changed.
+     */
+    MeshSimplifier(float[] data, int stride, int vertexCount, int[] indices) {
+        this.data = data;
+        this.stride = stride;
+        triangles = indices.clone();
+        remaining = indices.length / 3;
+        removed = new boolean[remaining];
+        quadrics = new double[vertexCount * 10];
+        locked = new boolean[vertexCount];
+        collapsed = new boolean[vertexCount];
+        versions = new int[vertexCount];
+
+        //Build the vertex to triangle lists
+        adjacencyCounts = new int[vertexCount];
+        for (int index : triangles) adjacencyCounts[index]++;
+        adjacency = new int[vertexCount][];
+        for (int v = 0; v < vertexCount; v++) {
+            adjacency[v] = new int[Math.max(adjacencyCounts[v], 1)];
+            adjacencyCounts[v] = 0;
+        }
+        for (int t = 0; t < remaining; t++) {
+            for (int k = 0; k < 3; k++) {
+                int v = triangles[t * 3 + k];
+                adjacency[v][adjacencyCounts[v]++] = t;
+            }
+        }
+
+        for (int t = 0; t < remaining; t++) {
+            addPlane(t);
+        }
+        lockSeams(vertexCount);
+        lockBorders();
+
+        for (int t = 0; t < remaining; t++) {
+            for (int k = 0; k < 3; k++) {
+                int a = triangles[t * 3 + k], b = triangles[t * 3 + (k + 1) % 3];
+                push(a, b);
+                push(b, a);
+            }
+        }
+    }
+
+    /**
+     * Adds the plane of the triangle to the quadrics of its vertices
+     */
+    private void addPlane(int t) {
+        int p0 = triangles[t * 3] * stride, p1 = triangles[t * 3 + 1] * stride, p2 = triangles[t * 3 + 2] * stride;
+        double ux = data[p1] - data[p0], uy = data[p1 + 1] - data[p0 + 1], uz = data[p1 + 2] - data[p0 + 2];
+        double vx = data[p2] - data[p0], vy = data[p2 + 1] - data[p0 + 1], vz = data[p2 + 2] - data[p0 + 2];
+        double a = uy * vz - uz * vy, b = uz * vx - ux * vz, c = ux * vy - uy * vx;
+        double length = Math.sqrt(a * a + b * b + c * c);
+        if (length == 0) return;
+        a /= length;
+        b /= length;
+        c /= length;
+        double d = -(a * data[p0] + b * data[p0 + 1] + c * data[p0 + 2]);
+        for (int k = 0; k < 3; k++) {
+            int q = triangles[t * 3 + k] * 10;
+            quadrics[q] += a * a;
+            quadrics[q + 1] += a * b;
+            quadrics[q + 2] += a * c;
+            quadrics[q + 3] += a * d;
+            quadrics[q + 4] += b * b;
+            quadrics[q + 5] += b * c;
+            quadrics[q + 6] += b * d;
+            quadrics[q + 7] += c * c;
+            quadrics[q + 8] += c * d;
+            quadrics[q + 9] += d * d;
+        }
+    }
+
+    /**
+     * Locks the vertices, that share their position with another vertex
+     */
+    private void lockSeams(int vertexCount) {
+        float[] positions = new float[vertexCount * 3];
+        for (int v = 0; v < vertexCount; v++) {
+            System.arraycopy(data, v * stride, positions, v * 3, 3);
+        }
+        int[] ids = new int[vertexCount];
+        VertexWelder.weld(positions, 3, ids);
+        int[] users = new int[vertexCount];
+        for (int id : ids) users[id]++;
+        for (int v = 0; v < vertexCount; v++) {
+            locked[v] = users[ids[v]] > 1;
+        }
+    }
+
+    /**
+     * Locks the vertices of the edges, that do not have exactly two triangles
+     */
+    private void lockBorders() {
+        for (int v = 0; v < adjacency.length; v++) {
+            for (int i = 0; i < adjacencyCounts[v] && !locked[v]; i++) {
+                int t = adjacency[v][i];
+                for (int k = 0; k < 3; k++) {
+                    int n = triangles[t * 3 + k];
+                    if (n != v && edgeTriangles(v, n) != 2) {
+                        locked[v] = true;
+                        locked[n] = true;
+                    }
+                }
+            }
+        }
+    }
+
+    private int edgeTriangles(int a, int b) {
+        int count = 0;
+        for (int i = 0; i < adjacencyCounts[a]; i++) {
+            int t = adjacency[a][i];
+            if (!removed[t] && hasVertex(t, b)) count++;
+        }
+        return count;
+    }
+
+    private boolean hasVertex(int t, int v) {
+        return triangles[t * 3] == v || triangles[t * 3 + 1] == v || triangles[t * 3 + 2] == v;
+    }
+
+    /**
+     * @return - Sum of the squared distances of the position of to from the planes of both vertices
+     */
+    private double cost(int from, int to) {
+        int qa = from * 10, qb = to * 10, p = to * stride;
+        double x = data[p], y = data[p + 1], z = data[p + 2];
+        double a2 = quadrics[qa] + quadrics[qb], ab = quadrics[qa + 1] + quadrics[qb + 1];
+        double ac = quadrics[qa + 2] + quadrics[qb + 2], ad = quadrics[qa + 3] + quadrics[qb + 3];
+        double b2 = quadrics[qa + 4] + quadrics[qb + 4], bc = quadrics[qa + 5] + quadrics[qb + 5];
+        double bd = quadrics[qa + 6] + quadrics[qb + 6], c2 = quadrics[qa + 7] + quadrics[qb + 7];
+        double cd = quadrics[qa + 8] + quadrics[qb + 8], d2 = quadrics[qa + 9] + quadrics[qb + 9];
+        return a2 * x * x + 2 * ab * x * y + 2 * ac * x * z + 2 * ad * x
+                + b2 * y * y + 2 * bc * y * z + 2 * bd * y
+                + c2 * z * z + 2 * cd * z + d2;
+    }
+
+    private void push(int from, int to) {
+        if (locked[from]) return;
+        if (heapSize == heapCost.length) {
+            int capacity = heapSize * 2;
+            heapCost = Arrays.copyOf(heapCost, capacity);
+            heapFrom = Arrays.copyOf(heapFrom, capacity);
+            heapTo = Arrays.copyOf(heapTo, capacity);
+            heapFromVersion = Arrays.copyOf(heapFromVersion, capacity);
+            heapToVersion = Arrays.copyOf(heapToVersion, capacity);
+        }
+        double cost = cost(from, to);
+        int i = heapSize++;
+        while (i > 0) {
+            int parent = (i - 1) / 2;
+            if (heapCost[parent] <= cost) break;
+            move(parent, i);
+            i = parent;
+        }
+        heapCost[i] = cost;
+        heapFrom[i] = from;
+        heapTo[i] = to;
+        heapFromVersion[i] = versions[from];
+        heapToVersion[i] = versions[to];
+    }
+
+    private void move(int from, int to) {
+        heapCost[to] = heapCost[from];
+        heapFrom[to] = heapFrom[from];
+        heapTo[to] = heapTo[from];
+        heapFromVersion[to] = heapFromVersion[from];
+        heapToVersion[to] = heapToVersion[from];
+    }
+
+    /**
+     * Removes the cheapest candidate, which is then at index heapSize
+     */
+    private void pop() {
+        int last = --heapSize;
+        //Swap the root to the end, and sift the former last element down from the root
+        double cost = heapCost[last];
+        int from = heapFrom[last], to = heapTo[last];
+        int fromVersion = heapFromVersion[last], toVersion = heapToVersion[last];
+        move(0, last);
+        int i = 0;
+        while (true) {
+            int child = i * 2 + 1;
+            if (child >= last) break;
+            if (child + 1 < last && heapCost[child + 1] < heapCost[child]) child++;
+            if (heapCost[child] >= cost) break;
+            move(child, i);
+            i = child;
+        }
+        if (last > 0) {
+            heapCost[i] = cost;
+            heapFrom[i] = from;
+            heapTo[i] = to;
+            heapFromVersion[i] = fromVersion;
+            heapToVersion[i] = toVersion;
+        }
+    }
+
+    /**
+     * Collapses edges, cheapest first, until at most targetTriangles are left, or no edge can be collapsed
+     * @return - The remaining triangles, in their original order
+     */
+    int[] simplify(int targetTriangles) {
+        while (remaining > targetTriangles && heapSize > 0) {
+            pop();
+            int from = heapFrom[heapSize], to = heapTo[heapSize];
+            if (collapsed[from] || collapsed[to] || heapFromVersion[heapSize] != versions[from]
+                    || heapToVersion[heapSize] != versions[to]) {
+                continue;
+            }
+            if (!canCollapse(from, to)) continue;
+            error = Math.max(error, (float) Math.sqrt(Math.max(heapCost[heapSize], 0)));
+            collapse(from, to);
+        }
+
+        int[] result = new int[remaining * 3];
+        int next = 0;
+        for (int t = 0; t < removed.length; t++) {
+            if (!removed[t]) {
+                System.arraycopy(triangles, t * 3, result, next, 3);
+                next += 3;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Checks, that the mesh stays manifold and no triangle flips over
+     */
+    private boolean canCollapse(int from, int to) {
+        //The vertices, that both share, must be exactly the third vertices of the triangles on the edge
+        int shared = 0, common = 0;
+        for (int i = 0; i < adjacencyCounts[from]; i++) {
+            int t = adjacency[from][i];
+            if (removed[t]) continue;
+            if (hasVertex(t, to)) {
+                shared++;
+                continue;
+            }
+            for (int k = 0; k < 3; k++) {
+                int n = triangles[t * 3 + k];
+                if (n != from && isNeighbour(to, n)) common++;
+            }
+        }
+        //Each third vertex of an edge triangle is also found once through a triangle, that does not contain to.
+        //Any other common neighbour would fold two sheets of the mesh together.
+        if (common > shared) return false;
+
+        int p = to * stride;
+        for (int i = 0; i < adjacencyCounts[from]; i++) {
+            int t = adjacency[from][i];
+            if (removed[t] || hasVertex(t, to)) continue;
+            int i0 = triangles[t * 3] * stride, i1 = triangles[t * 3 + 1] * stride, i2 = triangles[t * 3 + 2] * stride;
+            normal(i0, i1, i2, -1, 0, before);
+            int moved = triangles[t * 3] == from ? 0 : triangles[t * 3 + 1] == from ? 1 : 2;
+            normal(i0, i1, i2, moved, p, after);
+            double dot = before[0] * after[0] + before[1] * after[1] + before[2] * after[2];
+            double lengths = Math.sqrt((before[0] * before[0] + before[1] * before[1] + before[2] * before[2])
+                    * (after[0] * after[0] + after[1] * after[1] + after[2] * after[2]));
+            if (lengths == 0 || dot < MIN_NORMAL_DOT * lengths) return false;
+        }
+        return true;
+    }
+
+    private boolean isNeighbour(int v, int n) {
+        for (int i = 0; i < adjacencyCounts[v]; i++) {
+            int t = adjacency[v][i];
+            if (!removed[t] && hasVertex(t, n)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * @param moved - Corner (0, 1 or 2), whose position is replaced by the one at position, or -1
+     * @param out - Receives the unnormalized normal
+     */
+    private void normal(int p0, int p1, int p2, int moved, int position, double[] out) {
+        if (moved == 0) p0 = position;
+        if (moved == 1) p1 = position;
+        if (moved == 2) p2 = position;
+        double ux = data[p1] - data[p0], uy = data[p1 + 1] - data[p0 + 1], uz = data[p1 + 2] - data[p0 + 2];
+        double vx = data[p2] - data[p0], vy = data[p2 + 1] - data[p0 + 1], vz = data[p2 + 2] - data[p0 + 2];
+        out[0] = uy * vz - uz * vy;
+        out[1] = uz * vx - ux * vz;
+        out[2] = ux * vy - uy * vx;
+    }
+
+    private void collapse(int from, int to) {
+        for (int i = 0; i < adjacencyCounts[from]; i++) {
+            int t = adjacency[from][i];
+            if (removed[t]) continue;
+            if (hasVertex(t, to)) {
+                removed[t] = true;
+                remaining--;
+                continue;
+            }
+            for (int k = 0; k < 3; k++) {
+                if (triangles[t * 3 + k] == from) triangles[t * 3 + k] = to;
+            }
+            if (adjacencyCounts[to] == adjacency[to].length) {
+                adjacency[to] = Arrays.copyOf(adjacency[to], adjacency[to].length * 2);
+            }
+            adjacency[to][adjacencyCounts[to]++] = t;
+        }
+        collapsed[from] = true;
+        for (int k = 0; k < 10; k++) {
+            quadrics[to * 10 + k] += quadrics[from * 10 + k];
+        }
+        versions[to]++;
+
+        //The costs of all the edges around to have changed
+        for (int i = 0; i < adjacencyCounts[to]; i++) {
+            int t = adjacency[to][i];
+            if (removed[t]) continue;
+            for (int k = 0; k < 3; k++) {
+                int n = triangles[t * 3 + k];
+                if (n != to) {
+                    push(to, n);
+                    push(n, to);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return - True, if the triangle was collapsed away
+     */
+    boolean isRemoved(int triangle) { return removed[triangle]; }
+
+    /**
+     * @return - The largest distance of a collapsed vertex from the surface so far, in the units of the positions
+     */
+    float getError() { return error; }
+}
@@ -0,0 +1,93 @@
+package com.example.andrisgauracs.loader3ds;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Stores everything the file contains into a list of objects and a list of materials
+ */
+class ModelBuilder3ds extends SimpleChunkVisitor3ds {
+
+    private final List<Object3ds> models;
+    private final MaterialTable3ds materials;
+    /** Name of the material block, that is being read */
+    private String currentMaterial;
+
+    /**
+     * @param models - Receives the objects
+     * @param materials - Receives the materials and their textures, or null when only objects are read
+     */
+    ModelBuilder3ds(List<Object3ds> models, MaterialTable3ds materials) {
+        this.models = models;
+        this.materials = materials;
+    }
+
+    @Override
+    public boolean onObject(String name) throws IOException {
+        models.add(models.size(), new Object3ds());
+        models.get(models.size()-1).setName(name);
+        return true;
+    }
+
+    /**
+     * Mesh chunks before the first object belong to nothing, so they are skipped, as ChunkIndex3ds does
+     */
+    @Override
+    public void onVertices(int count, ChunkInput data) throws IOException {
+        if (models.isEmpty()) return;
+        float[] vertices = new float[count * 3];
+        data.readFloats(vertices, 0, vertices.length);
+        models.get(models.size()-1).setVertices(vertices);
+    }
+
+    @Override
+    public void onFaces(int count, ChunkInput data) throws IOException {
+        if (models.isEmpty()) return;
+        int[] faces = new int[count * 3];
+        data.readFaces(faces, count);
+        models.get(models.size()-1).setFaces(faces);
+        models.get(models.size()-1).setNumFaces(count);
+    }
+
+    /**
+     * Only the material name and its faces are stored here. The textures are resolved after the whole file is read,
+     * since the material blocks are not guaranteed to come before the objects, that use them.
+     */
+    @Override
+    public void onFaceMaterial(String material, int count, ChunkInput data) throws IOException {
+        if (models.isEmpty()) return;
+        int[] faceList = new int[count];
+        data.readUnsignedShorts(faceList, 0, count);
+        models.get(models.size()-1).addMaterial(material, faceList);
+    }
+
+    @Override
+    public void onSmoothingGroups(int count, ChunkInput data) throws IOException {
+        if (models.isEmpty()) return;
+        int[] groups = new int[count];
+        data.readInts(groups, 0, count);
+        models.get(models.size()-1).setSmoothingGroups(groups);
+    }
+
+    @Override
+    public void onUV(int count, ChunkInput data) throws IOException {
+        if (models.isEmpty()) return;
+        float[] uv = new float[count * 2];
+        data.readFloats(uv, 0, uv.length);
+        models.get(models.size()-1).setTextures(uv);
+    }
+
+    @Override
+    public void onMaterial(String name) throws IOException {
+        if (materials == null) return;
+        materials.add(name);
+        currentMaterial = name;
+    }
+
+    @Override
+    public void onTextureFilename(String filename) throws IOException {
+        if (materials == null || currentMaterial == null) return;
+        String mappingFile = filename.substring(0, filename.lastIndexOf('.'));
+        materials.setTextureFile(currentMaterial, mappingFile);
+    }
+}
@@ -0,0 +1,314 @@
+package com.example.andrisgauracs.loader3ds;
+
+/**
+ * Draws uploaded models with the model shader program. All the GL calls go through a GLStateCache, so the
+ * drawing can also run on a RecordingGL, without a GPU.
+ *
+ * Objects outside of the view frustum are skipped. Each object is tested with its bounding sphere first,
+ * and with its bounding box, when the sphere crosses the frustum.
+ *
+ * A Scene is drawn with the matrices, that its nodes cache, so only the nodes, that moved, multiply matrices.
+ *
+ * Once the viewport height is set, objects with levels of detail are drawn with the coarsest level, whose
+ * error stays below a threshold on the screen, in pixels.
+ *
+ * The objects of an animated model (see Animation3ds) are drawn with the matrix of their animation node, so
+ * they get their own uniforms, and are culled with their own frustum. Compact objects (see
+ * Parser3ds.compactVertices) get their own model-view-projection matrix as well, which turns their quantized
+ * positions back into the units of the vertices.
+ */
+public class ModelDrawer {
+
+    private final int mPositionDataSize = 3;
+    /** Size of the texture coordinate data in elements. */
+    private final int mTextureCoordinateDataSize = 2;
+    private final int mBytesPerFloat = 4;
+    private final int mBytesPerShort = 2;
+    /** Size of one interleaved vertex in bytes */
+    private final int mStrideBytes = Object3ds.STRIDE * mBytesPerFloat;
+
+    /** The program of the last draw, and its locations */
+    private ShaderProgram mProgram;
+    private int mMVPMatrixHandle;
+    private int mMVMatrixHandle;
+    private int mLightPosHandle;
+    private int mTextureUniformHandle;
+    private int mTextureTransformHandle;
+    private int mPositionHandle;
+    private int mNormalHandle;
+    private int mTextureCoordinateHandle;
+
+    private final Frustum mFrustum = new Frustum();
+    private boolean mCulling = true;
+    private long mDrawnObjects;
+    private long mCulledObjects;
+    private int mViewportHeight;
+    private float mLodThreshold = 1.0f;
+    private long mReducedObjects;
+    private long mMatrixUpdates;
+    /** The matrices of one animated object */
+    private final float[] mObjectMV = new float[16];
+    private final float[] mObjectMVP = new float[16];
+    /** The model-view-projection matrix of a compact object, with its dequantization */
+    private final float[] mCompactMVP = new float[16];
+
+    /**
+     * Looks up the locations of the program, when it is different from the one of the last draw
+     */
+    private void useLocations(ShaderProgram program) {
+        if (program == mProgram) return;
+        mProgram = program;
+        mMVPMatrixHandle = program.getUniform("u_MVPMatrix");
+        mMVMatrixHandle = program.getUniform("u_MVMatrix");
+        mLightPosHandle = program.getUniform("u_LightPos");
+        mTextureUniformHandle = program.getUniform("u_Texture");
+        mTextureTransformHandle = program.getUniform("u_TextureTransform");
+        mPositionHandle = program.getAttribute("a_Position");
+        mNormalHandle = program.getAttribute("a_Normal");
+        mTextureCoordinateHandle = program.getAttribute("a_TexCoordinate");
+    }
+
+    private boolean isVisible(Object3ds obj) {
+        return mFrustum.intersectsSphere(obj.getBoundingSphere(), 0) && mFrustum.intersectsBox(obj.getBounds(), 0);
+    }
+
+    /**
+     * Picks the coarsest level of detail, whose error is not larger than the threshold on the screen. The error
+     * is scaled by the object's distance, taken at the center of its bounding sphere.
+     * @param m - The model-view-projection matrix
+     */
+    private int selectLod(Object3ds obj, float[] m) {
+        if (mViewportHeight <= 0 || obj.getLodCount() == 1) return 0;
+        float[] sphere = obj.getBoundingSphere();
+        float w = m[3] * sphere[0] + m[7] * sphere[1] + m[11] * sphere[2] + m[15];
+        if (w <= 0) return 0;
+        //Pixels on the screen per unit of the vertices, from the y row of the matrix
+        float pixelsPerUnit = (float) Math.sqrt(m[1] * m[1] + m[5] * m[5] + m[9] * m[9]) / w * mViewportHeight * 0.5f;
+        int level = 0;
+        while (level + 1 < obj.getLodCount() && obj.getLodError(level + 1) * pixelsPerUnit <= mLodThreshold) {
+            level++;
+        }
+        return level;
+    }
+
+    /**
+     * @param height - Height of the viewport in pixels. Levels of detail are only used, when it is set.
+     */
+    public void setViewportHeight(int height) { mViewportHeight = height; }
+
+    /**
+     * @param pixels - Largest error of a level of detail on the screen. 1 by default.
+     */
+    public void setLodThreshold(float pixels) { mLodThreshold = pixels; }
+
+    /**
+     * @param culling - Skip the objects outside of the view frustum. On by default.
+     */
+    public void setCulling(boolean culling) { mCulling = culling; }
+
+    /**
+     * @return - Objects, that were drawn since the last resetCounters
+     */
+    public long getDrawnCount() { return mDrawnObjects; }
+
+    /**
+     * @return - Objects, that were skipped as outside of the view since the last resetCounters
+     */
+    public long getCulledCount() { return mCulledObjects; }
+
+    /**
+     * @return - Objects, that were drawn with a coarser level of detail since the last resetCounters
+     */
+    public long getReducedCount() { return mReducedObjects; }
+
+    /**
+     * @return - Scene nodes, whose world or drawing matrices were computed since the last resetCounters
+     */
+    public long getMatrixUpdateCount() { return mMatrixUpdates; }
+
+    public void resetCounters() {
+        mDrawnObjects = 0;
+        mCulledObjects = 0;
+        mReducedObjects = 0;
+        mMatrixUpdates = 0;
+    }
+
+    /**
+     * @param model - A model, that is uploaded
+     * @param mvp - All the transformation matrices stored in a single array for convenience
+     * @param program - The shader program, that is in use
+     * @param mLightPosInEyeSpace - Light position in Eye Space Handle for the shader
+     * @param state - Skips the GL calls, that would not change anything
+     */
+    public void draw(Parser3ds model, float[][] mvp, ShaderProgram program, float[] mLightPosInEyeSpace, GLStateCache state) {
+
+        useLocations(program);
+        float scaleFactor = model.getScaleFactor();
+
+        //All the objects of a model share its matrices, so they are computed once
+        // This multiplies the view matrix by the model matrix, and stores the result in mvp[3]
+        // (which now contains model * view).
+        GeometryKernel.multiplyMM(mvp[3], 0, mvp[1], 0, mvp[0], 0);
+
+        // This multiplies the modelview matrix by the projection matrix, and stores the result in the MVP matrix
+        // (which now contains model * view * projection).
+        GeometryKernel.multiplyMM(mvp[4], 0, mvp[2], 0, mvp[3], 0);
+
+        GeometryKernel.scaleM(mvp[4], 0, scaleFactor, scaleFactor, scaleFactor);
+
+        setFrameUniforms(mLightPosInEyeSpace, state);
+        //Drawn in its stored pose, the time of an animation is kept by a SceneNode
+        drawObjects(model, mvp[3], mvp[4], null, state);
+        unbindBuffers(state);
+    }
+
+    /**
+     * Draws the model of every node of the scene, with the node's transform. The world matrices of the nodes,
+     * that moved, are computed first (see Scene.update).
+     * @param scene - Its models must be uploaded
+     * @param program - The shader program, that is in use
+     * @param mLightPosInEyeSpace - Light position in Eye Space Handle for the shader
+     * @param state - Skips the GL calls, that would not change anything
+     */
+    public void draw(Scene scene, ShaderProgram program, float[] mLightPosInEyeSpace, GLStateCache state) {
+        useLocations(program);
+        mMatrixUpdates += scene.update();
+        setFrameUniforms(mLightPosInEyeSpace, state);
+        drawNode(scene.getRoot(), scene, state);
+        unbindBuffers(state);
+    }
+
+    private void drawNode(SceneNode node, Scene scene, GLStateCache state) {
+        Parser3ds model = node.getModel();
+        if (model != null) {
+            if (node.updateDrawMatrices(scene.getView(), scene.getProjection(), scene.getCameraVersion(),
+                    model.getScaleFactor())) {
+                mMatrixUpdates++;
+            }
+            drawObjects(model, node.modelView, node.modelViewProjection, node.updateAnimation(), state);
+        }
+        for (int i = 0; i < node.getChildren().size(); i++) {
+            drawNode(node.getChildren().get(i), scene, state);
+        }
+    }
+
+    /**
+     * The uniforms, that are the same for all the models
+     */
+    private void setFrameUniforms(float[] mLightPosInEyeSpace, GLStateCache state) {
+        // Pass in the light position in eye space. It is the same for all the objects.
+        state.uniform3f(mLightPosHandle, mLightPosInEyeSpace[0], mLightPosInEyeSpace[1], mLightPosInEyeSpace[2]);
+
+        // Tell the texture uniform sampler to use the texture in texture unit 0.
+        state.uniform1i(mTextureUniformHandle, 0);
+    }
+
+    /**
+     * @param mv - The model-view matrix of the model
+     * @param m - The model-view-projection matrix of the model, with its scale factor
+     * @param objectMatrices - The matrices of the animation nodes (see Animation3ds.evaluate), or null
+     */
+    private void drawObjects(Parser3ds model, float[] mv, float[] m, float[] objectMatrices, GLStateCache state) {
+        //The planes are in the coordinates of the vertices, so the bounds are tested as they are
+        mFrustum.set(m, 0);
+        //Set, while the frustum is the one of an animated object
+        boolean objectFrustum = false;
+
+        //For each object of the 3d model, bind the buffers and draw the elements
+        for (Object3ds obj : model.getModels()) {
+            //Provided that, the object is not empty (in some cases, there were empty objects)
+            if (obj.isPrepared()) {
+
+                float[] objectMv = mv;
+                float[] objectMvp = m;
+                int node = objectMatrices != null ? obj.getAnimationNode() : -1;
+                if (node >= 0) {
+                    GeometryKernel.multiplyMM(mObjectMV, 0, mv, 0, objectMatrices, node * 16);
+                    GeometryKernel.multiplyMM(mObjectMVP, 0, m, 0, objectMatrices, node * 16);
+                    objectMv = mObjectMV;
+                    objectMvp = mObjectMVP;
+                    mFrustum.set(objectMvp, 0);
+                    objectFrustum = true;
+                } else if (objectFrustum) {
+                    mFrustum.set(m, 0);
+                    objectFrustum = false;
+                }
+
+                if (mCulling && !isVisible(obj)) {
+                    mCulledObjects++;
+                    continue;
+                }
+                mDrawnObjects++;
+
+                // Pass in the modelview matrix and the combined matrix. GLStateCache skips them, while they are
+                // the same as for the object before.
+                state.uniformMatrix4fv(mMVMatrixHandle, objectMv, 0);
+                if (obj.isCompact()) {
+                    GeometryKernel.multiplyMM(mCompactMVP, 0, objectMvp, 0, obj.getDequantizationMatrix(), 0);
+                    state.uniformMatrix4fv(mMVPMatrixHandle, mCompactMVP, 0);
+                } else {
+                    state.uniformMatrix4fv(mMVPMatrixHandle, objectMvp, 0);
+                }
+                float[] texture = obj.getTextureTransform();
+                state.uniform4f(mTextureTransformHandle, texture[0], texture[1], texture[2], texture[3]);
+
+                // Bind the object's vertex buffer object. The attributes are interleaved, so they all share one stride.
+                state.bindBuffer(GL.GL_ARRAY_BUFFER, obj.getVertexBufferHandle());
+                if (obj.isCompact()) {
+                    // Normalized shorts and bytes, which GL turns into -1 to 1
+                    state.vertexAttribPointer(mPositionHandle, mPositionDataSize, GL.GL_SHORT, true,
+                            Object3ds.COMPACT_STRIDE, Object3ds.COMPACT_POSITION_OFFSET);
+                    state.vertexAttribPointer(mNormalHandle, mPositionDataSize, GL.GL_BYTE, true,
+                            Object3ds.COMPACT_STRIDE, Object3ds.COMPACT_NORMAL_OFFSET);
+                    state.vertexAttribPointer(mTextureCoordinateHandle, mTextureCoordinateDataSize, GL.GL_SHORT, true,
+                            Object3ds.COMPACT_STRIDE, Object3ds.COMPACT_TEXTURE_OFFSET);
+                } else {
+                    state.vertexAttribPointer(mPositionHandle, mPositionDataSize, GL.GL_FLOAT, false,
+                            mStrideBytes, Object3ds.POSITION_OFFSET * mBytesPerFloat);
+
+                    // Pass in the normal information
+                    state.vertexAttribPointer(mNormalHandle, mPositionDataSize, GL.GL_FLOAT, false,
+                            mStrideBytes, Object3ds.NORMAL_OFFSET * mBytesPerFloat);
+
+                    // Pass in the texture coordinate information
+                    state.vertexAttribPointer(mTextureCoordinateHandle, mTextureCoordinateDataSize, GL.GL_FLOAT, false,
+                            mStrideBytes, Object3ds.TEXTURE_OFFSET * mBytesPerFloat);
+                }
+                state.enableVertexAttribArray(mPositionHandle);
+                state.enableVertexAttribArray(mNormalHandle);
+                state.enableVertexAttribArray(mTextureCoordinateHandle);
+
+                //The levels of detail are ranges of the index buffer, so objects without one have only the full level
+                int level = 0;
+                if (obj.getIndexBufferHandle() != 0) {
+                    state.bindBuffer(GL.GL_ELEMENT_ARRAY_BUFFER, obj.getIndexBufferHandle());
+                    level = selectLod(obj, objectMvp);
+                    if (level > 0) mReducedObjects++;
+                }
+
+                //Finally we can draw the actual elements, one range of faces per material
+                for (Submesh3ds submesh : obj.getSubmeshes()) {
+                    //All the faces of the range can be collapsed away in a coarse level
+                    if (submesh.getFaceCount(level) == 0) continue;
+
+                    // Bind the texture to texture unit 0.
+                    state.bindTexture(0, submesh.getTextureHandle());
+
+                    if (obj.getIndexBufferHandle() != 0) {
+                        state.drawElements(GL.GL_TRIANGLES, submesh.getFaceCount(level) * 3, GL.GL_UNSIGNED_SHORT,
+                                submesh.getFirstFace(level) * 3 * mBytesPerShort);
+                    } else {
+                        state.drawArrays(GL.GL_TRIANGLES, submesh.getFirstFace() * 3, submesh.getFaceCount() * 3);
+                    }
+                }
+            }
+
+        }
+    }
+
+    private void unbindBuffers(GLStateCache state) {
+        // Unbind the buffers, so the following client side attributes are not read from them
+        state.bindBuffer(GL.GL_ARRAY_BUFFER, 0);
+        state.bindBuffer(GL.GL_ELEMENT_ARRAY_BUFFER, 0);
+    }
+}
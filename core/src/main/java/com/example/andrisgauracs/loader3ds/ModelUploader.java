@@ -0,0 +1,28 @@
+package com.example.andrisgauracs.loader3ds;
+
+/**
+ * Loads a parsed model into the graphics API. Called by Parser3ds.upload, on the thread, that owns the GL context.
+ */
+public interface ModelUploader {
+
+    /**
+     * @param textureResource - ID, returned by the TextureResolver
+     * @return - Texture handle
+     */
+    int loadTexture(int textureResource);
+
+    /**
+     * Gives up the texture, that loadTexture returned for the same resource
+     */
+    void releaseTexture(int textureResource);
+
+    /**
+     * Creates the vertex (and index) buffers of a prepared object and stores their handles with Object3ds.setBufferHandles
+     */
+    void uploadBuffers(Object3ds object);
+
+    /**
+     * Deletes the buffers, created by uploadBuffers, and clears their handles
+     */
+    void releaseBuffers(Object3ds object);
+}
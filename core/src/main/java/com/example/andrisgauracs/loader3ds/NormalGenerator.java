@@ -0,0 +1,123 @@
+package com.example.andrisgauracs.loader3ds;
+
+import java.util.Arrays;
+
+/**
+ * Computes the vertex normals of a mesh from its 3ds smoothing groups.
+ *
+ * Each face corner gets the sum of the face normals around its vertex, but only of the faces, that share a
+ * smoothing group with its own face. The face normals are not normalized before summing, so larger faces weigh
+ * more. Faces without a smoothing group are shaded flat.
+ *
+ * All the work is done on primitive arrays, that are allocated once per mesh, so nothing is allocated per face.
+ */
+class NormalGenerator {
+
+    private NormalGenerator() { }
+
+    /**
+     * @param vertices - 3 floats per vertex
+     * @param faces - 3 vertex indices per face
+     * @param smoothingGroups - Smoothing group bit mask of each face, or null to shade every face flat
+     * @param normals - Receives 3 floats per face corner, faces.length * 3 in total
+     */
+    static void generate(float[] vertices, int[] faces, int[] smoothingGroups, float[] normals) {
+        int numFaces = faces.length / 3;
+        float[] faceNormals = new float[numFaces * 3];
+        //The length of each face normal is twice the face area
+        GeometryKernel.faceNormals(vertices, faces, faceNormals);
+
+        if (!hasSmoothing(smoothingGroups, numFaces)) {
+            for (int f = 0; f < numFaces; f++) {
+                for (int j = 0; j < 3; j++) {
+                    System.arraycopy(faceNormals, f*3, normals, (f*3 + j) * 3, 3);
+                }
+            }
+            GeometryKernel.normalize(normals, 0, faces.length, 3);
+            return;
+        }
+
+        //Vertices are often split along texture seams, so faces are matched by vertex position, not by index
+        int[] position = positionIds(vertices);
+        int vertexCount = vertices.length / 3;
+
+        //The faces around each position, as one flat array
+        int[] start = new int[vertexCount + 1];
+        for (int corner = 0; corner < faces.length; corner++) {
+            start[position[faces[corner]] + 1]++;
+        }
+        for (int v = 0; v < vertexCount; v++) {
+            start[v + 1] += start[v];
+        }
+        int[] next = Arrays.copyOf(start, vertexCount);
+        int[] adjacent = new int[faces.length];
+        for (int corner = 0; corner < faces.length; corner++) {
+            adjacent[next[position[faces[corner]]]++] = corner / 3;
+        }
+
+        for (int f = 0; f < numFaces; f++) {
+            int group = smoothingGroups[f];
+            for (int j = 0; j < 3; j++) {
+                int corner = f*3 + j;
+                if (group == 0) {
+                    System.arraycopy(faceNormals, f*3, normals, corner * 3, 3);
+                    continue;
+                }
+                float x = 0, y = 0, z = 0;
+                int p = position[faces[corner]];
+                for (int k = start[p]; k < start[p + 1]; k++) {
+                    int g = adjacent[k];
+                    if ((smoothingGroups[g] & group) != 0) {
+                        x += faceNormals[g*3];
+                        y += faceNormals[g*3 + 1];
+                        z += faceNormals[g*3 + 2];
+                    }
+                }
+                normals[corner*3] = x;
+                normals[corner*3 + 1] = y;
+                normals[corner*3 + 2] = z;
+            }
+        }
+        GeometryKernel.normalize(normals, 0, faces.length, 3);
+    }
+
+    private static boolean hasSmoothing(int[] smoothingGroups, int numFaces) {
+        if (smoothingGroups == null || smoothingGroups.length < numFaces) return false;
+        for (int f = 0; f < numFaces; f++) {
+            if (smoothingGroups[f] != 0) return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return - For each vertex, the index of the first vertex with exactly the same position
+     */
+    private static int[] positionIds(float[] vertices) {
+        int count = vertices.length / 3;
+        int capacity = Integer.highestOneBit(Math.max(count * 2 - 1, 1)) << 1;
+        int mask = capacity - 1;
+        int[] table = new int[capacity];
+        Arrays.fill(table, -1);
+        int[] ids = new int[count];
+        for (int v = 0; v < count; v++) {
+            int x = Float.floatToIntBits(vertices[v*3] + 0.0f);
+            int y = Float.floatToIntBits(vertices[v*3 + 1] + 0.0f);
+            int z = Float.floatToIntBits(vertices[v*3 + 2] + 0.0f);
+            int h = (x * 31 + y) * 31 + z;
+            int slot = (h ^ (h >>> 16)) & mask;
+            int found;
+            while ((found = table[slot]) != -1
+                    && (Float.floatToIntBits(vertices[found*3] + 0.0f) != x
+                    || Float.floatToIntBits(vertices[found*3 + 1] + 0.0f) != y
+                    || Float.floatToIntBits(vertices[found*3 + 2] + 0.0f) != z)) {
+                slot = (slot + 1) & mask;
+            }
+            if (found == -1) {
+                table[slot] = v;
+                found = v;
+            }
+            ids[v] = found;
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,481 @@
+package com.example.andrisgauracs.loader3ds;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.ShortBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Created by andrisgauracs on 26/10/2016.
+ */
+public class Object3ds {
+
+    private float[] vertices;
+    private int[] faces;
+    private int[] smoothingGroups;
+    private float[] textureUV;
+    private float[] normals;
+    /** Bounding box and centroid of the vertices, see GeometryKernel.bounds */
+    private final float[] bounds = new float[GeometryKernel.BOUNDS_SIZE];
+    /** Sphere around the vertices, see GeometryKernel.boundingSphere */
+    private final float[] sphere = new float[GeometryKernel.SPHERE_SIZE];
+    private float  scaleFactor;
+    private int numFaces;
+    private int textureResource;
+    private String textureName;
+    private boolean hasTexture = false;
+    private ArrayList<String> materialNames = new ArrayList<>();
+    /** Faces of each material in materialNames, from the 0x4130 chunks. Only needed until the submeshes are built. */
+    private ArrayList<int[]> materialFaces = new ArrayList<>();
+    private ArrayList<Submesh3ds> submeshes = new ArrayList<>();
+    private String name;
+
+    /** Interleaved position, normal and texture coordinate of each vertex, see STRIDE */
+    private FloatBuffer vertexBuffer;
+    /** The vertices in the compact layout, see COMPACT_STRIDE. Replaces vertexBuffer, see compactVertices. */
+    private ByteBuffer compactVertexBuffer;
+    /** Turns the quantized positions of the compact layout into the units of the vertices, column-major */
+    private final float[] dequantization = {1, 0, 0, 0, 0, 1, 0, 0, 0, 0, 1, 0, 0, 0, 0, 1};
+    /** Scale u, v and offset u, v, that turn the quantized texture coordinates into the ones of the file */
+    private final float[] textureTransform = {1, 1, 0, 0};
+    /** Null, when the object has too many unique vertices for 16 bit indices and is drawn as a triangle list */
+    private ShortBuffer indexBuffer;
+    private int vertexCount;
+    final int mBytesPerFloat = 4;
+    final int mBytesPerShort = 2;
+    /** Largest vertex count, that unsigned short indices can address */
+    static final int MAX_SHORT_INDEX = 65536;
+    /** Most levels of detail of an object, including the full one */
+    static final int MAX_LODS = 4;
+    /** A level of detail is only kept, if it has at most this share of the faces of the level before it */
+    private static final float MIN_LOD_REDUCTION = 0.75f;
+    /** Geometric error of each level of detail, see MeshSimplifier.getError. Level 0 is the full object. */
+    private float[] lodErrors = {0};
+    /** Cache misses per face of the full level, before and after optimizeTriangles, see VertexCacheOptimizer.acmr */
+    private float originalAcmr;
+    private float acmr;
+    /** Node of the model's Animation3ds, that moves this object, or -1 */
+    private int animationNode = -1;
+
+    /** Floats per vertex in the vertex buffer: 3 position, 3 normal and 2 texture coordinate values */
+    public static final int STRIDE = 8;
+    public static final int POSITION_OFFSET = 0;
+    public static final int NORMAL_OFFSET = 3;
+    public static final int TEXTURE_OFFSET = 6;
+
+    /**
+     * Bytes per vertex in the compact layout: 3 normalized shorts position and an unused short, 3 normalized bytes
+     * normal and an unused byte, and 2 normalized shorts texture coordinate. Each attribute starts at a multiple of 4.
+     */
+    public static final int COMPACT_STRIDE = 16;
+    public static final int COMPACT_POSITION_OFFSET = 0;
+    public static final int COMPACT_NORMAL_OFFSET = 8;
+    public static final int COMPACT_TEXTURE_OFFSET = 12;
+
+    /** OpenGL buffer objects, created by BufferHelper on the GL thread */
+    private int vertexBufferHandle;
+    private int indexBufferHandle;
+
+    public void setVertices(float[] inputVertices) { vertices = inputVertices; }
+
+    public float[] getVertices() { return vertices; }
+
+    public void setFaces(int[] inputFaces) { faces = inputFaces; }
+
+    public void setSmoothingGroups(int[] groups) { smoothingGroups = groups; }
+
+    public void setTextures(float[] inputTextures) { textureUV = inputTextures; }
+
+    public void setTextureResource(int resourceId) { textureResource = resourceId; }
+
+    /**
+     * @return - Resource of the texture for the faces without a textured material of their own, or 0 for no texture
+     */
+    public int getTextureResource() { return textureResource; }
+
+    public void setTextureName(String drawableName) { textureName = drawableName; }
+
+    /**
+     * @return - Drawable name of the texture resource, which stays the same between builds, unlike the resource id
+     */
+    public String getTextureName() { return textureName; }
+
+    /**
+     * @return - The interleaved vertices, STRIDE floats each. This is the copy, that BufferHelper uploads.
+     * Null, when the object is compact.
+     */
+    public FloatBuffer getVertexBuffer() { return vertexBuffer; }
+
+    /**
+     * @return - The interleaved vertices, COMPACT_STRIDE bytes each, or null if the object is not compact
+     */
+    public ByteBuffer getCompactVertexBuffer() { return compactVertexBuffer; }
+
+    public boolean isCompact() { return compactVertexBuffer != null; }
+
+    /**
+     * @return - The matrix, that turns the positions of the compact layout into the units of the vertices.
+     * The identity, when the object is not compact.
+     */
+    public float[] getDequantizationMatrix() { return dequantization; }
+
+    /**
+     * @return - Scale u, v and offset u, v of the texture coordinates of the compact layout. (1, 1, 0, 0),
+     * when the object is not compact.
+     */
+    public float[] getTextureTransform() { return textureTransform; }
+
+    /**
+     * @return - Unsigned short indices into the vertex buffer, or null if the object is drawn as a triangle list
+     */
+    public ShortBuffer getIndexBuffer() { return indexBuffer; }
+
+    /**
+     * @return - Number of vertices in the vertex buffer
+     */
+    public int getVertexCount() { return vertexCount; }
+
+    public void setBufferHandles(int vertexHandle, int indexHandle) {
+        vertexBufferHandle = vertexHandle;
+        indexBufferHandle = indexHandle;
+    }
+
+    /**
+     * @return - The OpenGL vertex buffer object, or 0 before it is uploaded
+     */
+    public int getVertexBufferHandle() { return vertexBufferHandle; }
+
+    /**
+     * @return - The OpenGL index buffer object, or 0 if it is not uploaded or the object has no indices
+     */
+    public int getIndexBufferHandle() { return indexBufferHandle; }
+
+    public void setNumFaces(int nr) { numFaces = nr; }
+
+    public void setHasTexture() { hasTexture = true; }
+
+    public void setName(String objectName) { name = objectName; }
+
+    public String getName() { return name; }
+
+    /**
+     * @param faceList - Indices of the faces, that use the material
+     */
+    public void addMaterial(String name, int[] faceList) {
+        materialNames.add(name);
+        materialFaces.add(faceList);
+    }
+
+    /**
+     * @return - Names of the materials from the object's 0x4130 chunks, in file order
+     */
+    public List<String> getMaterialNames() { return materialNames; }
+
+    /**
+     * @return - The face ranges of the prepared object, one per material, in index buffer order
+     */
+    public List<Submesh3ds> getSubmeshes() { return submeshes; }
+
+    void addSubmesh(Submesh3ds submesh) { submeshes.add(submesh); }
+
+    public boolean hasTexture() { return hasTexture; }
+
+    public int getNumFaces() { return numFaces; }
+
+    public float getScaleFactor() { return scaleFactor; }
+
+    /**
+     * @return - Number of levels of detail. Their faces follow the full object's faces in the index buffer,
+     * see Submesh3ds.getFirstFace(int).
+     */
+    public int getLodCount() { return lodErrors.length; }
+
+    /**
+     * @return - How far the surface of the level may be from the full object, in the units of the vertices
+     */
+    public float getLodError(int level) { return lodErrors[level]; }
+
+    void setLodErrors(float[] errors) { lodErrors = errors; }
+
+    /**
+     * @return - Vertex cache misses per face of the full level in the order of the file, see VertexCacheOptimizer.acmr.
+     * 0 for objects from the MeshCache.
+     */
+    public float getOriginalAcmr() { return originalAcmr; }
+
+    /**
+     * @return - Vertex cache misses per face of the full level, as it is drawn. 0 for objects from the MeshCache.
+     */
+    public float getAcmr() { return acmr; }
+
+    /**
+     * @return - The node of the model's animation, that moves this object, or -1 if it does not move
+     */
+    public int getAnimationNode() { return animationNode; }
+
+    void setAnimationNode(int node) { animationNode = node; }
+
+    /**
+     * @return - Bounding box and centroid of the vertices, before the scale factor. Filled by prepareModel or MeshCache.
+     */
+    public float[] getBounds() { return bounds; }
+
+    /**
+     * @return - Center and radius of a sphere around the vertices, before the scale factor
+     */
+    public float[] getBoundingSphere() { return sphere; }
+
+    /**
+     * @return - true, when the buffers for drawing are set up, either by prepareModel or from MeshCache
+     */
+    public boolean isPrepared() { return vertexBuffer != null || compactVertexBuffer != null; }
+
+    /**
+     * Uses buffers, that were already prepared earlier, instead of the file's geometry (see MeshCache)
+     */
+    void setPreparedBuffers(FloatBuffer vertex, ShortBuffer index, int faceCount, float scale) {
+        vertexBuffer = vertex;
+        indexBuffer = index;
+        vertexCount = vertex.capacity() / STRIDE;
+        numFaces = faceCount;
+        scaleFactor = scale;
+    }
+
+    /**
+     * Same as setPreparedBuffers, with vertices in the compact layout. Their transforms are set through
+     * getDequantizationMatrix and getTextureTransform.
+     */
+    void setCompactBuffers(ByteBuffer vertex, ShortBuffer index, int faceCount, float scale) {
+        compactVertexBuffer = vertex;
+        vertexBuffer = null;
+        indexBuffer = index;
+        vertexCount = vertex.capacity() / COMPACT_STRIDE;
+        numFaces = faceCount;
+        scaleFactor = scale;
+    }
+
+    /**
+     * Replaces the float vertices with the compact layout, which takes half of the memory (see VertexQuantizer).
+     * The bounds, levels of detail and indices stay as they are.
+     */
+    void compactVertices() {
+        if (vertexBuffer == null) return;
+        compactVertexBuffer = VertexQuantizer.quantize(vertexBuffer, vertexCount, dequantization, textureTransform);
+        vertexBuffer = null;
+    }
+
+    void setupBuffers() {
+
+        if (textureUV == null) {
+            generateUV();
+        }
+
+        //Expand the faces into three separate vertices each. The attributes of each vertex are next to each other,
+        //which is the layout, that the GPU reads fastest.
+        float[] vertexData = new float[faces.length * STRIDE];
+        for (int i = 0; i < faces.length; i++) {
+            int v = i * STRIDE;
+            System.arraycopy(vertices, faces[i]*3, vertexData, v + POSITION_OFFSET, 3);
+            System.arraycopy(normals, i*3, vertexData, v + NORMAL_OFFSET, 3);
+            vertexData[v + TEXTURE_OFFSET] = textureUV[faces[i]*2];
+            vertexData[v + TEXTURE_OFFSET + 1] = -textureUV[faces[i]*2+1];
+        }
+
+        //Identical vertices of neighbouring faces are merged, so each one is stored and transformed only once
+        int[] indexData = new int[faces.length];
+        vertexCount = VertexWelder.weld(vertexData, STRIDE, indexData);
+        if (vertexCount <= MAX_SHORT_INDEX) {
+            VertexWelder.compact(vertexData, STRIDE, indexData);
+            //The coarser levels of detail are stored after the full one, in the same index buffer
+            indexData = buildLods(vertexData, indexData);
+            optimizeTriangles(vertexData, indexData);
+            indexBuffer = ByteBuffer.allocateDirect(indexData.length * mBytesPerShort)
+                    .order(ByteOrder.nativeOrder()).asShortBuffer();
+            for (int index : indexData) {
+                indexBuffer.put((short) index);
+            }
+            indexBuffer.position(0);
+        } else {
+            //OpenGL ES 2.0 only has 16 bit indices, so this object stays a triangle list
+            vertexCount = faces.length;
+            indexBuffer = null;
+            originalAcmr = acmr = 3;
+            lodErrors = new float[] {0};
+            for (Submesh3ds submesh : submeshes) submesh.clearLods();
+        }
+
+        // Initialize the buffer.
+        vertexBuffer = ByteBuffer.allocateDirect(vertexCount * STRIDE * mBytesPerFloat)
+                .order(ByteOrder.nativeOrder()).asFloatBuffer();
+        vertexBuffer.put(vertexData, 0, vertexCount * STRIDE).position(0);
+    }
+
+    /**
+     * Simplifies the object to about half of the faces of the level before, until MAX_LODS levels are built,
+     * or a level would not save enough faces. The faces of each level stay grouped by submesh.
+     * @param vertexData - The compacted vertices
+     * @param indexData - The indices of the full object
+     * @return - The indices of all the levels, one after the other
+     */
+    private int[] buildLods(float[] vertexData, int[] indexData) {
+        lodErrors = new float[] {0};
+        for (Submesh3ds submesh : submeshes) submesh.clearLods();
+
+        MeshSimplifier simplifier = new MeshSimplifier(vertexData, STRIDE, vertexCount, indexData);
+        int[] all = indexData;
+        int previousFaces = numFaces;
+        for (int level = 1; level < MAX_LODS; level++) {
+            int[] lod = simplifier.simplify(previousFaces / 2);
+            int lodFaces = lod.length / 3;
+            if (lodFaces > previousFaces * MIN_LOD_REDUCTION) break;
+
+            //The remaining faces keep their order, so each submesh's faces are still next to each other
+            int firstFace = all.length / 3;
+            for (Submesh3ds submesh : submeshes) {
+                int count = 0;
+                for (int face = submesh.getFirstFace(); face < submesh.getFirstFace() + submesh.getFaceCount(); face++) {
+                    if (!simplifier.isRemoved(face)) count++;
+                }
+                submesh.addLod(firstFace, count);
+                firstFace += count;
+            }
+            all = Arrays.copyOf(all, all.length + lod.length);
+            System.arraycopy(lod, 0, all, all.length - lod.length, lod.length);
+            lodErrors = Arrays.copyOf(lodErrors, level + 1);
+            lodErrors[level] = simplifier.getError();
+            previousFaces = lodFaces;
+        }
+        return all;
+    }
+
+    /**
+     * Reorders the faces of each level of each submesh for the vertex cache and less overdraw (see
+     * VertexCacheOptimizer). The faces only move within their own range, so the ranges stay as they are.
+     * @param vertexData - The compacted vertices
+     * @param indexData - The indices of all the levels
+     */
+    private void optimizeTriangles(float[] vertexData, int[] indexData) {
+        int fullFaces = faces.length / 3;
+        originalAcmr = VertexCacheOptimizer.acmr(indexData, 0, fullFaces);
+        for (Submesh3ds submesh : submeshes) {
+            for (int level = 0; level < getLodCount(); level++) {
+                VertexCacheOptimizer.optimize(indexData, submesh.getFirstFace(level), submesh.getFaceCount(level),
+                        vertexCount, vertexData, STRIDE);
+            }
+        }
+        acmr = VertexCacheOptimizer.acmr(indexData, 0, fullFaces);
+    }
+
+    /**
+     * After all input data is recieved, we need to prepare the model for the draw function.
+     */
+    public void prepareModel() {
+        //Faces of the same material are moved next to each other, so each material is drawn with one call
+        buildSubmeshes();
+        //A single pass over the vertices gives the bounding box, that the scale factor and the generated UVs need
+        calculateBounds();
+        //Since many models have different scale amplitudes, we calculate a uniform scale factor for the model
+        setScaleFactor();
+        //Since the 3ds file does not provide normal values, we must calculate them ourselves
+        calculateNormals();
+        //Finally we need to setup the buffers for drawing
+        setupBuffers();
+    }
+
+    /**
+     * Sorts the faces by material, in the order of the 0x4130 chunks. Faces, that no chunk lists, come last.
+     * A face, that several chunks list, stays with the first one. The faces are only sorted once.
+     */
+    void buildSubmeshes() {
+        if (!submeshes.isEmpty()) return;
+        int[] order = new int[numFaces];
+        boolean[] assigned = new boolean[numFaces];
+        int next = 0;
+        for (int i = 0; i < materialNames.size(); i++) {
+            int first = next;
+            for (int face : materialFaces.get(i)) {
+                if (face < numFaces && !assigned[face]) {
+                    assigned[face] = true;
+                    order[next++] = face;
+                }
+            }
+            if (next > first) {
+                submeshes.add(new Submesh3ds(materialNames.get(i), first, next - first));
+            }
+        }
+        int first = next;
+        for (int face = 0; face < numFaces; face++) {
+            if (!assigned[face]) {
+                order[next++] = face;
+            }
+        }
+        if (next > first) {
+            submeshes.add(new Submesh3ds(null, first, next - first));
+        }
+        materialFaces.clear();
+
+        boolean sorted = true;
+        for (int i = 0; i < numFaces && sorted; i++) {
+            sorted = order[i] == i;
+        }
+        if (sorted) return;
+
+        int[] sortedFaces = new int[faces.length];
+        int[] sortedGroups = smoothingGroups != null && smoothingGroups.length >= numFaces ? new int[numFaces] : null;
+        for (int i = 0; i < numFaces; i++) {
+            System.arraycopy(faces, order[i] * 3, sortedFaces, i * 3, 3);
+            if (sortedGroups != null) sortedGroups[i] = smoothingGroups[order[i]];
+        }
+        faces = sortedFaces;
+        if (sortedGroups != null) smoothingGroups = sortedGroups;
+    }
+
+    /**
+     * The steps of prepareModel are package-private, so the benchmark module can time each one separately.
+     */
+    void calculateBounds() {
+        GeometryKernel.bounds(vertices, 0, vertices.length / 3, 3, bounds, 0);
+        GeometryKernel.boundingSphere(vertices, 0, vertices.length / 3, 3, bounds, 0, sphere, 0);
+    }
+
+    /**
+     * Computes a normal for each face corner. Faces, that share a smoothing group, get smooth normals,
+     * all the others are shaded flat (see NormalGenerator).
+     */
+    void calculateNormals() {
+        normals = new float[faces.length*3];
+        NormalGenerator.generate(vertices, faces, smoothingGroups, normals);
+    }
+
+    /**
+     * The scale is taken from the largest and smallest coordinate over all three axes, including the origin
+     */
+    void setScaleFactor() {
+        float max = Math.max(0.0f, Math.max(bounds[GeometryKernel.MAX], Math.max(bounds[GeometryKernel.MAX + 1], bounds[GeometryKernel.MAX + 2])));
+        float min = Math.min(0.0f, Math.min(bounds[GeometryKernel.MIN], Math.min(bounds[GeometryKernel.MIN + 1], bounds[GeometryKernel.MIN + 2])));
+        scaleFactor = 2.0f / (Math.abs(max) + Math.abs(min));
+    }
+
+    /**
+     * Projects the texture onto the x-y plane of the bounding box, including the origin
+     */
+    void generateUV() {
+        float max_X = Math.max(0.0f, bounds[GeometryKernel.MAX]);
+        float min_X = Math.min(0.0f, bounds[GeometryKernel.MIN]);
+        float max_Y = Math.max(0.0f, bounds[GeometryKernel.MAX + 1]);
+        float min_Y = Math.min(0.0f, bounds[GeometryKernel.MIN + 1]);
+        float k_X = 1/(max_X - min_X);
+        float k_Y = 1/(max_Y - min_Y);
+
+        int textureIndex = 0;
+        textureUV = new float[vertices.length/3*2];
+
+        for (int i=0; i<vertices.length; i=i+3) {
+            textureUV[textureIndex++] = (vertices[i] - min_X) * k_X;
+            textureUV[textureIndex++] = (vertices[i+1] - min_Y) * k_Y;
+        }
+    }
+}
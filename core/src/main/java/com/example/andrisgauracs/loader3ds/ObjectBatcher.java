@@ -0,0 +1,171 @@
+package com.example.andrisgauracs.loader3ds;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.ShortBuffer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Merges the prepared objects of a model into batches: one vertex and index buffer for many objects, with one
+ * submesh per texture. A batch is drawn with one buffer bind and one draw call per texture, instead of one round
+ * of binds and draw calls per object.
+ *
+ * The objects of a 3ds file do not move relative to each other, so they can be merged as they are. Only indexed
+ * objects with float vertices are merged, and a batch is closed, before its vertices would not fit into 16 bit
+ * indices any more.
+ */
+class ObjectBatcher {
+
+    private ObjectBatcher() { }
+
+    /**
+     * @param objects - Prepared objects, before they are uploaded
+     * @return - The batches and the objects, that can not be merged, in the order of their first object
+     */
+    static List<Object3ds> batch(List<Object3ds> objects) {
+        ArrayList<Object3ds> result = new ArrayList<>();
+        ArrayList<Object3ds> members = new ArrayList<>();
+        int position = 0;
+        int vertices = 0;
+        for (Object3ds object : objects) {
+            if (!object.isPrepared() || object.getIndexBuffer() == null || object.isCompact()) {
+                result.add(object);
+                continue;
+            }
+            if (vertices + object.getVertexCount() > Object3ds.MAX_SHORT_INDEX) {
+                result.add(position, merge(members, position));
+                members.clear();
+                vertices = 0;
+            }
+            if (members.isEmpty()) position = result.size();
+            members.add(object);
+            vertices += object.getVertexCount();
+        }
+        if (!members.isEmpty()) {
+            result.add(position, merge(members, position));
+        }
+        return result;
+    }
+
+    /**
+     * @param members - Indexed objects, whose vertices fit into 16 bit indices together
+     * @return - The only member, or a new object with the geometry of all of them
+     */
+    private static Object3ds merge(List<Object3ds> members, int position) {
+        if (members.size() == 1) return members.get(0);
+
+        //The submeshes of all the members, grouped by texture, in the order, in which the textures first appear
+        LinkedHashMap<String, ArrayList<int[]>> groups = new LinkedHashMap<>();
+        int levels = 1;
+        int vertexCount = 0;
+        int[] firstVertex = new int[members.size()];
+        for (int m = 0; m < members.size(); m++) {
+            Object3ds member = members.get(m);
+            List<Submesh3ds> submeshes = member.getSubmeshes();
+            for (int s = 0; s < submeshes.size(); s++) {
+                ArrayList<int[]> group = groups.get(submeshes.get(s).getTextureName());
+                if (group == null) {
+                    group = new ArrayList<>();
+                    groups.put(submeshes.get(s).getTextureName(), group);
+                }
+                group.add(new int[] {m, s});
+            }
+            levels = Math.max(levels, member.getLodCount());
+            firstVertex[m] = vertexCount;
+            vertexCount += member.getVertexCount();
+        }
+
+        float[] vertexData = new float[vertexCount * Object3ds.STRIDE];
+        short[][] memberIndices = new short[members.size()][];
+        for (int m = 0; m < members.size(); m++) {
+            Object3ds member = members.get(m);
+            FloatBuffer vertex = member.getVertexBuffer().duplicate();
+            vertex.position(0);
+            vertex.get(vertexData, firstVertex[m] * Object3ds.STRIDE, member.getVertexCount() * Object3ds.STRIDE);
+            ShortBuffer index = member.getIndexBuffer().duplicate();
+            index.position(0);
+            memberIndices[m] = new short[index.capacity()];
+            index.get(memberIndices[m]);
+        }
+
+        //A member with fewer levels of detail than the batch is drawn with its coarsest one in the levels after it
+        int indexCount = 0;
+        for (int level = 0; level < levels; level++) {
+            for (Object3ds member : members) {
+                int memberLevel = Math.min(level, member.getLodCount() - 1);
+                for (Submesh3ds submesh : member.getSubmeshes()) {
+                    indexCount += submesh.getFaceCount(memberLevel) * 3;
+                }
+            }
+        }
+
+        Object3ds batch = new Object3ds();
+        batch.setName("batch" + position);
+        batch.setTextureName(members.get(0).getTextureName());
+        batch.setTextureResource(members.get(0).getTextureResource());
+        float scale = 0;
+        for (Object3ds member : members) {
+            if (member.hasTexture()) batch.setHasTexture();
+            scale = Math.max(scale, member.getScaleFactor());
+        }
+
+        ShortBuffer indexBuffer = ByteBuffer.allocateDirect(indexCount * 2)
+                .order(ByteOrder.nativeOrder()).asShortBuffer();
+        float[] lodErrors = new float[levels];
+        ArrayList<Submesh3ds> batchSubmeshes = new ArrayList<>();
+        for (int level = 0; level < levels; level++) {
+            for (Object3ds member : members) {
+                lodErrors[level] = Math.max(lodErrors[level], member.getLodError(Math.min(level, member.getLodCount() - 1)));
+            }
+            int g = 0;
+            for (Map.Entry<String, ArrayList<int[]>> group : groups.entrySet()) {
+                int firstFace = indexBuffer.position() / 3;
+                for (int[] entry : group.getValue()) {
+                    Object3ds member = members.get(entry[0]);
+                    Submesh3ds submesh = member.getSubmeshes().get(entry[1]);
+                    int memberLevel = Math.min(level, member.getLodCount() - 1);
+                    int first = submesh.getFirstFace(memberLevel) * 3;
+                    int end = first + submesh.getFaceCount(memberLevel) * 3;
+                    for (int i = first; i < end; i++) {
+                        indexBuffer.put((short) ((memberIndices[entry[0]][i] & 0xffff) + firstVertex[entry[0]]));
+                    }
+                }
+                int faceCount = indexBuffer.position() / 3 - firstFace;
+                if (level == 0) {
+                    Submesh3ds first = submeshOf(members, group.getValue().get(0));
+                    Submesh3ds submesh = new Submesh3ds(first.getMaterial(), firstFace, faceCount);
+                    submesh.setTextureName(first.getTextureName());
+                    submesh.setTextureResource(first.getTextureResource());
+                    batchSubmeshes.add(submesh);
+                } else {
+                    batchSubmeshes.get(g).addLod(firstFace, faceCount);
+                }
+                g++;
+            }
+        }
+        indexBuffer.position(0);
+        for (Submesh3ds submesh : batchSubmeshes) {
+            batch.addSubmesh(submesh);
+        }
+
+        FloatBuffer vertexBuffer = ByteBuffer.allocateDirect(vertexData.length * 4)
+                .order(ByteOrder.nativeOrder()).asFloatBuffer();
+        vertexBuffer.put(vertexData).position(0);
+        int faces = batchSubmeshes.get(batchSubmeshes.size() - 1).getFirstFace()
+                + batchSubmeshes.get(batchSubmeshes.size() - 1).getFaceCount();
+        batch.setPreparedBuffers(vertexBuffer, indexBuffer, faces, scale);
+        batch.setLodErrors(lodErrors);
+        GeometryKernel.bounds(vertexData, Object3ds.POSITION_OFFSET, vertexCount, Object3ds.STRIDE, batch.getBounds(), 0);
+        GeometryKernel.boundingSphere(vertexData, Object3ds.POSITION_OFFSET, vertexCount, Object3ds.STRIDE,
+                batch.getBounds(), 0, batch.getBoundingSphere(), 0);
+        return batch;
+    }
+
+    private static Submesh3ds submeshOf(List<Object3ds> members, int[] entry) {
+        return members.get(entry[0]).getSubmeshes().get(entry[1]);
+    }
+}
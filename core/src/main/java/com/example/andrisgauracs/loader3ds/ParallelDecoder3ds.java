@@ -0,0 +1,98 @@
+package com.example.andrisgauracs.loader3ds;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Decodes and prepares the objects of one file in parallel, one task per 0x4000 object chunk.
+ *
+ * Every task reads its own object through its own view of the file, and the objects do not share any state
+ * while they are prepared, so the result is the same as reading the file serially. The objects are returned
+ * in file order.
+ */
+public class ParallelDecoder3ds {
+
+    private static final int THREADS = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Shared by all files. It is separate from the ModelLoader pool, so a loader worker can wait for
+     * its object tasks, without taking a thread from them.
+     */
+    private static final ThreadPoolExecutor POOL = new ThreadPoolExecutor(THREADS, THREADS, 5, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                private final AtomicInteger count = new AtomicInteger();
+
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "ParallelDecoder-" + count.incrementAndGet());
+                    thread.setPriority(Thread.NORM_PRIORITY - 1);
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+
+    static {
+        POOL.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Decodes every object of the index and prepares it for drawing
+     * @param data - the whole 3ds file
+     * @param index - Index of the same file
+     * @return - The objects, in file order
+     */
+    public static List<Object3ds> decode(final ByteBuffer data, final ChunkIndex3ds index) throws IOException {
+        int count = index.getObjectCount();
+        ArrayList<Object3ds> result = new ArrayList<>(count);
+        if (count < 2 || THREADS < 2) {
+            //Not worth the thread hand-off
+            for (int i = 0; i < count; i++) {
+                result.add(decodeObject(data, index, i));
+            }
+            return result;
+        }
+
+        ArrayList<Callable<Object3ds>> tasks = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            final int object = i;
+            tasks.add(new Callable<Object3ds>() {
+                @Override
+                public Object3ds call() throws Exception {
+                    return decodeObject(data, index, object);
+                }
+            });
+        }
+        try {
+            for (Future<Object3ds> future : POOL.invokeAll(tasks)) {
+                result.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while decoding", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) throw (IOException) e.getCause();
+            throw new RuntimeException(e.getCause());
+        }
+        return result;
+    }
+
+    private static Object3ds decodeObject(ByteBuffer data, ChunkIndex3ds index, int i) throws IOException {
+        ArrayList<Object3ds> models = new ArrayList<>(1);
+        index.readObject(new BufferChunkInput(data), index.getObject(i), new ModelBuilder3ds(models, null));
+        Object3ds model = models.get(0);
+        if (model.getVertices() != null) {
+            model.prepareModel();
+        }
+        return model;
+    }
+}
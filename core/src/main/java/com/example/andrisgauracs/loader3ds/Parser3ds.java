@@ -0,0 +1,443 @@
+package com.example.andrisgauracs.loader3ds;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Created by andrisgauracs on 23/10/2016.
+ *
+ * Does not depend on Android: textures are found through a TextureResolver and the model is loaded into
+ * OpenGL through a ModelUploader, which the app implements.
+ */
+public class Parser3ds {
+
+    private final TextureResolver textures;
+    /** Only set, when the objects are loaded on demand */
+    private ChunkIndex3ds index;
+    private ChunkInput input;
+    private HashMap<String, Object3ds> loadedObjects;
+    private int defaultTextureID;
+    private String defaultTextureName;
+    private float scaleFactor = 0.0f;
+    private float initialScaleFactor = 0.0f;
+    /** The user's zoom, as set by changeScale */
+    private float zoom = 0.0f;
+    /** Null, when the file has no keyframer, or nothing in it moves */
+    private Animation3ds animation;
+
+    ArrayList<Object3ds> models = new ArrayList<Object3ds>();
+    MaterialTable3ds materials = new MaterialTable3ds();
+
+    public boolean objReady = false;
+    /** Set, when all the textures are loaded into OpenGL */
+    private boolean uploaded = false;
+    /** Set by compactVertices, so objects, that are loaded on demand later, are compact as well */
+    private boolean compact = false;
+
+    /**
+     * This is the constructor, when a texture is specified, or no texture is specified, in which case, we use our gray "default_texture"
+     * @param file - the 3ds object from "raw" resource folder
+     * @param textures - Finds the texture resources by name
+     */
+    public Parser3ds(InputStream file, TextureResolver textures) {
+        this.textures = textures;
+        setDefaultTexture(null);
+
+        loadFile(openFile(file));
+    }
+
+    /**
+     *
+     * @param file - the 3ds object from "raw" resource folder
+     * @param textures - Finds the texture resources by name
+     * @param model_texture - Since the original file has not specified a texture filename, we will "force" it to use this texture
+     */
+    public Parser3ds(InputStream file, TextureResolver textures,String model_texture) {
+        this.textures = textures;
+        setDefaultTexture(model_texture);
+
+        //Read through the file
+        loadFile(openFile(file));
+    }
+
+    /**
+     * Reads the model from an already loaded or memory-mapped file (see BufferChunkInput.map)
+     * @param data - the whole 3ds file
+     * @param textures - Finds the texture resources by name
+     */
+    public Parser3ds(ByteBuffer data, TextureResolver textures) {
+        this.textures = textures;
+        setDefaultTexture(null);
+
+        loadFile(data);
+    }
+
+    /**
+     * @param data - the whole 3ds file
+     * @param textures - Finds the texture resources by name
+     * @param model_texture - Since the original file has not specified a texture filename, we will "force" it to use this texture
+     */
+    public Parser3ds(ByteBuffer data, TextureResolver textures, String model_texture) {
+        this.textures = textures;
+        setDefaultTexture(model_texture);
+
+        loadFile(data);
+    }
+
+    /**
+     * Uses objects, that are already prepared for drawing, e.g. read from MeshCache
+     * @param prepared - Objects with their buffers and texture names set
+     * @param textures - Finds the texture resources by name
+     */
+    public Parser3ds(List<Object3ds> prepared, TextureResolver textures) {
+        this.textures = textures;
+        setDefaultTexture(null);
+        for (Object3ds model : prepared) {
+            if (model.getTextureName() != null) {
+                model.setTextureResource(textures.getTextureResource(model.getTextureName()));
+            }
+            for (Submesh3ds submesh : model.getSubmeshes()) {
+                if (submesh.getTextureName() != null) {
+                    submesh.setTextureResource(textures.getTextureResource(submesh.getTextureName()));
+                }
+            }
+        }
+        models.addAll(prepared);
+        updateScaleFactor(models);
+    }
+
+    private void setDefaultTexture(String model_texture) {
+        if (model_texture == null) model_texture = "default_texture";
+        switch (model_texture) {
+            case "red_car":
+            case "fighter":
+                defaultTextureName = model_texture;
+                break;
+            default:
+                defaultTextureName = "default_texture";
+                break;
+        }
+        defaultTextureID = textures.getTextureResource(defaultTextureName);
+    }
+
+    /**
+     * Only reads the geometry, without loading textures or preparing the buffers for drawing.
+     * Used by ParserBenchmark, so it can run outside of the GL thread.
+     */
+    Parser3ds(ChunkInput in) {
+        textures = null;
+        readFile(in);
+    }
+
+    /**
+     * Only reads the materials. No object is decoded, until it is requested with loadObject or loadObjects,
+     * so large multi-object scenes can be opened quickly and only the displayed objects pay for decoding.
+     * @param data - the whole 3ds file
+     * @param index - Index of the same file, built with ChunkIndex3ds.build. It can be shared by several parsers
+     * @param textures - Finds the texture resources by name
+     */
+    public Parser3ds(ByteBuffer data, ChunkIndex3ds index, TextureResolver textures) {
+        this.textures = textures;
+        setDefaultTexture(null);
+        this.index = index;
+        input = new BufferChunkInput(data);
+        loadedObjects = new HashMap<>();
+
+        try {
+            index.readMaterials(input, new ModelBuilder3ds(models, materials));
+            readAnimation(index, input);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        objReady = true;
+    }
+
+    /**
+     * Decodes and prepares a single object. This must be called on the GL thread, since draw reads the same object list.
+     * @param name - Object name, as listed by ChunkIndex3ds.getObjectNames
+     * @return - The object, or null if the file has no object with this name. Objects are only decoded once.
+     */
+    public Object3ds loadObject(String name) {
+        if (index == null) {
+            //Everything was loaded in the constructor
+            for (Object3ds model : models) {
+                if (name.equals(model.getName())) return model;
+            }
+            return null;
+        }
+        Object3ds model = loadedObjects.get(name);
+        if (model != null) return model;
+
+        ChunkIndex3ds.ObjectEntry entry = index.getObject(name);
+        if (entry == null) return null;
+
+        int first = models.size();
+        try {
+            index.readObject(input, entry, new ModelBuilder3ds(models, materials));
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        if (models.size() == first) return null;
+
+        List<Object3ds> added = models.subList(first, models.size());
+        prepareModels(added);
+        if (compact) {
+            for (Object3ds object : added) object.compactVertices();
+        }
+        resolveTextures(added);
+        uploaded = false;
+        model = models.get(first);
+        loadedObjects.put(name, model);
+        return model;
+    }
+
+    /**
+     * @see #loadObject(String)
+     */
+    public void loadObjects(Collection<String> names) {
+        for (String name : names) {
+            loadObject(name);
+        }
+    }
+
+    /**
+     * @return - The index, when the objects are loaded on demand, otherwise null
+     */
+    public ChunkIndex3ds getIndex() { return index; }
+
+    /**
+     * The whole file is loaded into memory first, so the vertex, face and UV arrays can be decoded in bulk.
+     */
+    private static ByteBuffer openFile(InputStream file) {
+        try {
+            return ByteBuffer.wrap(BufferChunkInput.readFully(file));
+        } catch (IOException e) {
+            e.printStackTrace();
+            return ByteBuffer.allocate(0);
+        }
+    }
+
+    /**
+     * Indexes the file first, so that its objects can be decoded and prepared in parallel (see ParallelDecoder3ds)
+     */
+    private void loadFile(ByteBuffer data) {
+        try {
+            ChunkIndex3ds fileIndex = ChunkIndex3ds.build(data);
+            fileIndex.readMaterials(new BufferChunkInput(data), new ModelBuilder3ds(models, materials));
+            models.addAll(ParallelDecoder3ds.decode(data, fileIndex));
+            readAnimation(fileIndex, new BufferChunkInput(data));
+            resolveTextures();
+            updateScaleFactor(models);
+        } catch (IOException e) {
+            //A broken file can not be indexed, so read as much of it as possible, one chunk after another
+            e.printStackTrace();
+            models.clear();
+            materials.clear();
+            readFile(new BufferChunkInput(data));
+            prepareModels();
+            resolveTextures();
+        }
+    }
+
+    private void readFile(ChunkInput in) {
+        try {
+            ChunkReader3ds.read(in, new ModelBuilder3ds(models, materials));
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void resolveTextures() {
+        resolveTextures(models);
+    }
+
+    /**
+     * Reads and samples the keyframer tracks. The tracks are only read from the index, so a broken file, that
+     * can not be indexed, is not animated.
+     */
+    private void readAnimation(ChunkIndex3ds fileIndex, ChunkInput in) throws IOException {
+        KeyframerBuilder3ds keyframer = new KeyframerBuilder3ds();
+        fileIndex.readKeyframer(in, keyframer);
+        animation = keyframer.build();
+    }
+
+    /**
+     * Finds the texture resource of each object and each of its submeshes. Must be called after the objects are
+     * prepared, since that is when the submeshes are built. The textures themselves are loaded by upload(), on the GL thread.
+     */
+    private void resolveTextures(List<Object3ds> list) {
+        for (Object3ds model : list) {
+            //The animation finds the objects by name, like the textures
+            if (animation != null) {
+                model.setAnimationNode(animation.findNode(model.getName()));
+            }
+            if (model.getMaterialNames().isEmpty()) continue;
+            //The last material with a texture file wins
+            int rID = 0;
+            String textureName = null;
+            for (String name : model.getMaterialNames()) {
+                int id = findTexture(name);
+                if (id != 0) {
+                    rID = id;
+                    textureName = materials.getTextureFile(name).toLowerCase();
+                }
+            }
+            if (rID != 0) {
+                model.setTextureResource(rID);
+                model.setTextureName(textureName);
+                model.setHasTexture();
+            }
+            if (!model.hasTexture()) {
+
+                model.setTextureResource(defaultTextureID);
+                model.setTextureName(defaultTextureName);
+            }
+            //The faces of a textured material get its texture, all the others use the object's texture
+            for (Submesh3ds submesh : model.getSubmeshes()) {
+                int id = findTexture(submesh.getMaterial());
+                if (id != 0) {
+                    submesh.setTextureResource(id);
+                    submesh.setTextureName(materials.getTextureFile(submesh.getMaterial()).toLowerCase());
+                } else {
+                    submesh.setTextureResource(model.getTextureResource());
+                    submesh.setTextureName(model.getTextureName());
+                }
+            }
+        }
+    }
+
+    /**
+     * @return - Resource of the material's texture, or 0 if the material or its texture does not exist
+     */
+    private int findTexture(String material) {
+        if (material == null) return 0;
+        String file = materials.getTextureFile(material);
+        return file == null ? 0 : textures.getTextureResource(file.toLowerCase());
+    }
+
+    /**
+     * Loads the textures and vertex buffers of all the objects into OpenGL. This must be called on the GL thread,
+     * everything else about the model can be loaded on any thread (see ModelLoader).
+     * @param uploader - Does the OpenGL calls
+     */
+    public void upload(ModelUploader uploader) {
+        for (Object3ds model : models) {
+            for (Submesh3ds submesh : model.getSubmeshes()) {
+                if (submesh.getTextureResource() != 0 && submesh.getTextureHandle() == 0) {
+                    submesh.setTextureHandle(uploader.loadTexture(submesh.getTextureResource()));
+                }
+            }
+            if (model.isPrepared() && model.getVertexBufferHandle() == 0) {
+                uploader.uploadBuffers(model);
+            }
+        }
+        uploaded = true;
+    }
+
+    /**
+     * Gives the textures and buffers of all the objects back to the uploader. The objects keep their prepared data,
+     * so the model can be uploaded again later. Must be called on the GL thread.
+     */
+    public void release(ModelUploader uploader) {
+        for (Object3ds model : models) {
+            for (Submesh3ds submesh : model.getSubmeshes()) {
+                if (submesh.getTextureHandle() != 0) {
+                    uploader.releaseTexture(submesh.getTextureResource());
+                    submesh.setTextureHandle(0);
+                }
+            }
+            if (model.getVertexBufferHandle() != 0) {
+                uploader.releaseBuffers(model);
+            }
+        }
+        uploaded = false;
+    }
+
+    /**
+     * Merges the objects into as few vertex and index buffers as possible, with one draw call per texture
+     * (see ObjectBatcher). Must be called before upload. Objects, that are loaded on demand, are not merged,
+     * since loadObject finds them by name, and neither are the objects of an animated model.
+     */
+    public void batchObjects() {
+        //The objects of an animation move separately, so they can not share a buffer
+        if (index != null || uploaded || animation != null) return;
+        List<Object3ds> batched = ObjectBatcher.batch(models);
+        models.clear();
+        models.addAll(batched);
+    }
+
+    /**
+     * Stores the vertices of the objects in the compact layout, with half of the memory of floats (see
+     * VertexQuantizer). Must be called before upload, and after batchObjects, which only merges float vertices.
+     */
+    public void compactVertices() {
+        if (uploaded) return;
+        compact = true;
+        for (Object3ds model : models) {
+            model.compactVertices();
+        }
+    }
+
+    /**
+     * @return - False, until upload is called, and again after new objects are loaded with loadObject or after release
+     */
+    public boolean isUploaded() { return uploaded; }
+
+    /**
+     * @return - All the objects, in file order. Objects without geometry are included, but never prepared.
+     */
+    public List<Object3ds> getModels() { return models; }
+
+    /**
+     * @return - The keyframer animation of the objects, or null if nothing in the file moves. See SceneNode.setAnimationTime
+     */
+    public Animation3ds getAnimation() { return animation; }
+
+    /**
+     * @return - The uniform scale, that fits the largest object into the view, with the user's zoom applied
+     */
+    public float getScaleFactor() { return scaleFactor; }
+
+    private void prepareModels() {
+        prepareModels(models);
+    }
+
+    private void prepareModels(List<Object3ds> list) {
+        for (Object3ds model : list) {
+            if (model.getVertices() != null) {
+                model.prepareModel();
+            }
+        }
+        updateScaleFactor(list);
+    }
+
+    /**
+     * @param list - Newly prepared objects
+     */
+    private void updateScaleFactor(List<Object3ds> list) {
+        for (Object3ds model : list) {
+            //We must choose one scale factor (if there is more than one object), get each object's scale factor
+            if (model.isPrepared() && model.getScaleFactor() > initialScaleFactor) {
+                initialScaleFactor = model.getScaleFactor();
+            }
+        }
+        //Objects, that are loaded on demand, only change the base scale, the zoom stays as the user set it
+        scaleFactor = initialScaleFactor + initialScaleFactor * zoom;
+        //Object is ready for drawing
+        objReady = true;
+    }
+
+    /**
+     * This function is executed, when the seek bar value is changed.
+     */
+    public void changeScale(float val) {
+        zoom = val;
+        scaleFactor = initialScaleFactor + initialScaleFactor * val;
+    }
+
+}
@@ -0,0 +1,749 @@
+package com.example.andrisgauracs.loader3ds;
+
+import java.nio.Buffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * A GL, that does not draw anything. It keeps the state, that the calls set, counts the calls, draw calls,
+ * uploaded bytes and state changes, and checks for call sequences, that real GL rejects or that are bugs,
+ * e.g. drawing without a program, an enabled attribute array without a pointer, or indices past the end of
+ * the index buffer.
+ *
+ * Errors are reported through glGetError like in GL, and are also collected in getErrors. Unlike GL, binding
+ * a name, that was not generated or was deleted, is an error, since the renderer never means to do that.
+ * Shaders always compile and programs always link. Not thread safe, like a GL context.
+ */
+public class RecordingGL implements GL {
+
+    private static final int MAX_ATTRIBUTES = 16;
+    private static final int MAX_TEXTURE_UNITS = 8;
+
+    private static class Program {
+        final HashMap<String, Integer> boundAttributes = new HashMap<>();
+        final HashMap<String, Integer> attributes = new HashMap<>();
+        final HashMap<String, Integer> uniforms = new HashMap<>();
+        /** Last value of each uniform, by location */
+        final HashMap<Integer, float[]> uniformValues = new HashMap<>();
+        boolean linked;
+    }
+
+    /** Null, when the calls are only counted */
+    private final List<String> log;
+    /** Throw on the first error, instead of only collecting it */
+    private final boolean strict;
+    private final List<String> errors = new ArrayList<>();
+    private int pendingError = GL_NO_ERROR;
+
+    private int nextName = 1;
+    /** Size of each buffer's data in bytes, by buffer name */
+    private final HashMap<Integer, Integer> buffers = new HashMap<>();
+    private final HashSet<Integer> textures = new HashSet<>();
+    private final HashMap<Integer, Boolean> shaders = new HashMap<>();
+    private final HashMap<Integer, Program> programs = new HashMap<>();
+
+    private int currentProgram;
+    private int activeTexture;
+    private final int[] boundTextures = new int[MAX_TEXTURE_UNITS];
+    private int arrayBuffer;
+    private int elementArrayBuffer;
+    private final boolean[] attributeEnabled = new boolean[MAX_ATTRIBUTES];
+    /** The buffer, that each attribute pointer reads from, or 0 while it has no pointer */
+    private final int[] attributeBuffers = new int[MAX_ATTRIBUTES];
+    private final float[] scratch = new float[4];
+
+    private long calls;
+    private long drawCalls;
+    private long drawnVertices;
+    private long uploadedBytes;
+    private long stateChanges;
+    private long redundantChanges;
+
+    /**
+     * Counts and checks the calls, without keeping them
+     */
+    public RecordingGL() {
+        this(false, false);
+    }
+
+    /**
+     * @param record - Keep a log of all the calls, see getLog
+     * @param strict - Throw an IllegalStateException on the first error
+     */
+    public RecordingGL(boolean record, boolean strict) {
+        log = record ? new ArrayList<String>() : null;
+        this.strict = strict;
+    }
+
+    private void record(String name, Object... args) {
+        StringBuilder call = new StringBuilder(name).append('(');
+        for (int i = 0; i < args.length; i++) {
+            if (i > 0) call.append(", ");
+            call.append(args[i]);
+        }
+        log.add(call.append(')').toString());
+    }
+
+    private void error(int code, String message) {
+        if (pendingError == GL_NO_ERROR) {
+            pendingError = code;
+        }
+        String error = "call " + calls + ": " + message;
+        errors.add(error);
+        if (strict) {
+            throw new IllegalStateException(error);
+        }
+    }
+
+    private void stateChange(boolean changed) {
+        if (changed) {
+            stateChanges++;
+        } else {
+            redundantChanges++;
+        }
+    }
+
+    private boolean validAttribute(int index) {
+        if (index < 0 || index >= MAX_ATTRIBUTES) {
+            error(GL_INVALID_VALUE, "attribute index " + index + " out of range");
+            return false;
+        }
+        return true;
+    }
+
+    private boolean textureBound(int target) {
+        if (target != GL_TEXTURE_2D) {
+            error(GL_INVALID_ENUM, "texture target " + target);
+            return false;
+        }
+        if (boundTextures[activeTexture] == 0) {
+            error(GL_INVALID_OPERATION, "no texture bound to unit " + activeTexture);
+            return false;
+        }
+        return true;
+    }
+
+    private Program program(int program) {
+        Program p = programs.get(program);
+        if (p == null) {
+            error(GL_INVALID_VALUE, "program " + program + " does not exist");
+        }
+        return p;
+    }
+
+    @Override
+    public void glActiveTexture(int texture) {
+        calls++;
+        if (log != null) record("glActiveTexture", texture);
+        int unit = texture - GL_TEXTURE0;
+        if (unit < 0 || unit >= MAX_TEXTURE_UNITS) {
+            error(GL_INVALID_ENUM, "texture unit " + texture);
+            return;
+        }
+        stateChange(activeTexture != unit);
+        activeTexture = unit;
+    }
+
+    @Override
+    public void glAttachShader(int program, int shader) {
+        calls++;
+        if (log != null) record("glAttachShader", program, shader);
+        if (program(program) != null && !shaders.containsKey(shader)) {
+            error(GL_INVALID_VALUE, "shader " + shader + " does not exist");
+        }
+    }
+
+    @Override
+    public void glBindAttribLocation(int program, int index, String name) {
+        calls++;
+        if (log != null) record("glBindAttribLocation", program, index, name);
+        Program p = program(program);
+        if (p != null && validAttribute(index)) {
+            p.boundAttributes.put(name, index);
+        }
+    }
+
+    @Override
+    public void glBindBuffer(int target, int buffer) {
+        calls++;
+        if (log != null) record("glBindBuffer", target, buffer);
+        if (target != GL_ARRAY_BUFFER && target != GL_ELEMENT_ARRAY_BUFFER) {
+            error(GL_INVALID_ENUM, "buffer target " + target);
+            return;
+        }
+        if (buffer != 0 && !buffers.containsKey(buffer)) {
+            error(GL_INVALID_OPERATION, "buffer " + buffer + " was not generated or was deleted");
+            return;
+        }
+        if (target == GL_ARRAY_BUFFER) {
+            stateChange(arrayBuffer != buffer);
+            arrayBuffer = buffer;
+        } else {
+            stateChange(elementArrayBuffer != buffer);
+            elementArrayBuffer = buffer;
+        }
+    }
+
+    @Override
+    public void glBindTexture(int target, int texture) {
+        calls++;
+        if (log != null) record("glBindTexture", target, texture);
+        if (target != GL_TEXTURE_2D) {
+            error(GL_INVALID_ENUM, "texture target " + target);
+            return;
+        }
+        if (texture != 0 && !textures.contains(texture)) {
+            error(GL_INVALID_OPERATION, "texture " + texture + " was not generated or was deleted");
+            return;
+        }
+        stateChange(boundTextures[activeTexture] != texture);
+        boundTextures[activeTexture] = texture;
+    }
+
+    @Override
+    public void glBufferData(int target, int size, Buffer data, int usage) {
+        calls++;
+        if (log != null) record("glBufferData", target, size, data, usage);
+        int buffer = target == GL_ARRAY_BUFFER ? arrayBuffer : target == GL_ELEMENT_ARRAY_BUFFER ? elementArrayBuffer : -1;
+        if (buffer < 0) {
+            error(GL_INVALID_ENUM, "buffer target " + target);
+        } else if (buffer == 0) {
+            error(GL_INVALID_OPERATION, "no buffer bound to " + target);
+        } else if (size < 0) {
+            error(GL_INVALID_VALUE, "buffer size " + size);
+        } else {
+            buffers.put(buffer, size);
+            uploadedBytes += size;
+        }
+    }
+
+    @Override
+    public void glClear(int mask) {
+        calls++;
+        if (log != null) record("glClear", mask);
+    }
+
+    @Override
+    public void glClearColor(float red, float green, float blue, float alpha) {
+        calls++;
+        if (log != null) record("glClearColor", red, green, blue, alpha);
+    }
+
+    @Override
+    public void glCompileShader(int shader) {
+        calls++;
+        if (log != null) record("glCompileShader", shader);
+        if (!shaders.containsKey(shader)) {
+            error(GL_INVALID_VALUE, "shader " + shader + " does not exist");
+            return;
+        }
+        shaders.put(shader, true);
+    }
+
+    @Override
+    public void glCompressedTexImage2D(int target, int level, int internalformat, int width, int height, int border,
+                                       int imageSize, Buffer data) {
+        calls++;
+        if (log != null) record("glCompressedTexImage2D", target, level, internalformat, width, height, border, imageSize, data);
+        if (textureBound(target)) {
+            uploadedBytes += imageSize;
+        }
+    }
+
+    @Override
+    public int glCreateProgram() {
+        calls++;
+        if (log != null) record("glCreateProgram");
+        int name = nextName++;
+        programs.put(name, new Program());
+        return name;
+    }
+
+    @Override
+    public int glCreateShader(int type) {
+        calls++;
+        if (log != null) record("glCreateShader", type);
+        if (type != GL_VERTEX_SHADER && type != GL_FRAGMENT_SHADER) {
+            error(GL_INVALID_ENUM, "shader type " + type);
+            return 0;
+        }
+        int name = nextName++;
+        shaders.put(name, false);
+        return name;
+    }
+
+    @Override
+    public void glDeleteBuffers(int n, int[] buffers, int offset) {
+        calls++;
+        if (log != null) record("glDeleteBuffers", n, Arrays.toString(Arrays.copyOfRange(buffers, offset, offset + n)));
+        for (int i = 0; i < n; i++) {
+            int buffer = buffers[offset + i];
+            //Deleting 0 or an unknown name is ignored, like in GL
+            if (buffer == 0 || this.buffers.remove(buffer) == null) continue;
+            if (arrayBuffer == buffer) arrayBuffer = 0;
+            if (elementArrayBuffer == buffer) elementArrayBuffer = 0;
+        }
+    }
+
+    @Override
+    public void glDeleteProgram(int program) {
+        calls++;
+        if (log != null) record("glDeleteProgram", program);
+        programs.remove(program);
+        if (currentProgram == program) currentProgram = 0;
+    }
+
+    @Override
+    public void glDeleteShader(int shader) {
+        calls++;
+        if (log != null) record("glDeleteShader", shader);
+        shaders.remove(shader);
+    }
+
+    @Override
+    public void glDeleteTextures(int n, int[] textures, int offset) {
+        calls++;
+        if (log != null) record("glDeleteTextures", n, Arrays.toString(Arrays.copyOfRange(textures, offset, offset + n)));
+        for (int i = 0; i < n; i++) {
+            int texture = textures[offset + i];
+            if (texture == 0 || !this.textures.remove(texture)) continue;
+            for (int unit = 0; unit < MAX_TEXTURE_UNITS; unit++) {
+                if (boundTextures[unit] == texture) boundTextures[unit] = 0;
+            }
+        }
+    }
+
+    @Override
+    public void glDisableVertexAttribArray(int index) {
+        calls++;
+        if (log != null) record("glDisableVertexAttribArray", index);
+        if (validAttribute(index)) {
+            stateChange(attributeEnabled[index]);
+            attributeEnabled[index] = false;
+        }
+    }
+
+    /**
+     * Checks, that a draw call can read all the attributes, that it uses
+     */
+    private boolean canDraw(int mode, int count) {
+        if (mode < GL_POINTS || mode > 0x0006) {
+            error(GL_INVALID_ENUM, "draw mode " + mode);
+            return false;
+        }
+        if (count < 0) {
+            error(GL_INVALID_VALUE, "draw count " + count);
+            return false;
+        }
+        if (currentProgram == 0) {
+            error(GL_INVALID_OPERATION, "draw without a program");
+            return false;
+        }
+        for (int i = 0; i < MAX_ATTRIBUTES; i++) {
+            if (!attributeEnabled[i]) continue;
+            if (attributeBuffers[i] == 0) {
+                error(GL_INVALID_OPERATION, "attribute array " + i + " is enabled, but has no pointer");
+                return false;
+            }
+            if (!buffers.containsKey(attributeBuffers[i])) {
+                error(GL_INVALID_OPERATION, "attribute array " + i + " reads a deleted buffer");
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void glDrawArrays(int mode, int first, int count) {
+        calls++;
+        if (log != null) record("glDrawArrays", mode, first, count);
+        if (first < 0) {
+            error(GL_INVALID_VALUE, "first vertex " + first);
+            return;
+        }
+        if (canDraw(mode, count)) {
+            drawCalls++;
+            drawnVertices += count;
+        }
+    }
+
+    @Override
+    public void glDrawElements(int mode, int count, int type, int offset) {
+        calls++;
+        if (log != null) record("glDrawElements", mode, count, type, offset);
+        //OpenGL ES 2.0 has no 32 bit indices
+        if (type != GL_UNSIGNED_SHORT && type != GL_UNSIGNED_BYTE) {
+            error(GL_INVALID_ENUM, "index type " + type);
+            return;
+        }
+        if (!canDraw(mode, count)) return;
+        if (elementArrayBuffer == 0) {
+            error(GL_INVALID_OPERATION, "indices by offset, but no index buffer bound");
+            return;
+        }
+        long end = offset + (long) count * (type == GL_UNSIGNED_SHORT ? 2 : 1);
+        if (offset < 0 || end > buffers.get(elementArrayBuffer)) {
+            error(GL_INVALID_OPERATION, "indices " + offset + ".." + end + " past the end of index buffer "
+                    + elementArrayBuffer + " (" + buffers.get(elementArrayBuffer) + " bytes)");
+            return;
+        }
+        drawCalls++;
+        drawnVertices += count;
+    }
+
+    @Override
+    public void glEnable(int cap) {
+        calls++;
+        if (log != null) record("glEnable", cap);
+    }
+
+    @Override
+    public void glEnableVertexAttribArray(int index) {
+        calls++;
+        if (log != null) record("glEnableVertexAttribArray", index);
+        if (validAttribute(index)) {
+            stateChange(!attributeEnabled[index]);
+            attributeEnabled[index] = true;
+        }
+    }
+
+    @Override
+    public void glGenBuffers(int n, int[] buffers, int offset) {
+        calls++;
+        if (log != null) record("glGenBuffers", n);
+        for (int i = 0; i < n; i++) {
+            buffers[offset + i] = nextName;
+            this.buffers.put(nextName++, 0);
+        }
+    }
+
+    @Override
+    public void glGenTextures(int n, int[] textures, int offset) {
+        calls++;
+        if (log != null) record("glGenTextures", n);
+        for (int i = 0; i < n; i++) {
+            textures[offset + i] = nextName;
+            this.textures.add(nextName++);
+        }
+    }
+
+    @Override
+    public void glGenerateMipmap(int target) {
+        calls++;
+        if (log != null) record("glGenerateMipmap", target);
+        textureBound(target);
+    }
+
+    @Override
+    public int glGetAttribLocation(int program, String name) {
+        calls++;
+        if (log != null) record("glGetAttribLocation", program, name);
+        Program p = program(program);
+        if (p == null) return -1;
+        if (!p.linked) {
+            error(GL_INVALID_OPERATION, "program " + program + " is not linked");
+            return -1;
+        }
+        Integer location = p.attributes.get(name);
+        if (location == null) {
+            //Attributes, that were not bound, get the first free location
+            location = 0;
+            while (p.attributes.containsValue(location)) location++;
+            p.attributes.put(name, location);
+        }
+        return location;
+    }
+
+    @Override
+    public int glGetError() {
+        calls++;
+        if (log != null) record("glGetError");
+        int error = pendingError;
+        pendingError = GL_NO_ERROR;
+        return error;
+    }
+
+    @Override
+    public String glGetProgramInfoLog(int program) {
+        calls++;
+        if (log != null) record("glGetProgramInfoLog", program);
+        return "";
+    }
+
+    @Override
+    public void glGetProgramiv(int program, int pname, int[] params, int offset) {
+        calls++;
+        if (log != null) record("glGetProgramiv", program, pname);
+        Program p = program(program);
+        if (p == null) return;
+        if (pname != GL_LINK_STATUS) {
+            error(GL_INVALID_ENUM, "program parameter " + pname);
+            return;
+        }
+        params[offset] = p.linked ? 1 : 0;
+    }
+
+    @Override
+    public String glGetShaderInfoLog(int shader) {
+        calls++;
+        if (log != null) record("glGetShaderInfoLog", shader);
+        return "";
+    }
+
+    @Override
+    public void glGetShaderiv(int shader, int pname, int[] params, int offset) {
+        calls++;
+        if (log != null) record("glGetShaderiv", shader, pname);
+        Boolean compiled = shaders.get(shader);
+        if (compiled == null) {
+            error(GL_INVALID_VALUE, "shader " + shader + " does not exist");
+            return;
+        }
+        if (pname != GL_COMPILE_STATUS) {
+            error(GL_INVALID_ENUM, "shader parameter " + pname);
+            return;
+        }
+        params[offset] = compiled ? 1 : 0;
+    }
+
+    @Override
+    public int glGetUniformLocation(int program, String name) {
+        calls++;
+        if (log != null) record("glGetUniformLocation", program, name);
+        Program p = program(program);
+        if (p == null) return -1;
+        if (!p.linked) {
+            error(GL_INVALID_OPERATION, "program " + program + " is not linked");
+            return -1;
+        }
+        Integer location = p.uniforms.get(name);
+        if (location == null) {
+            location = p.uniforms.size();
+            p.uniforms.put(name, location);
+        }
+        return location;
+    }
+
+    @Override
+    public void glLinkProgram(int program) {
+        calls++;
+        if (log != null) record("glLinkProgram", program);
+        Program p = program(program);
+        if (p == null) return;
+        p.linked = true;
+        p.attributes.clear();
+        p.attributes.putAll(p.boundAttributes);
+        p.uniforms.clear();
+        p.uniformValues.clear();
+    }
+
+    @Override
+    public void glShaderSource(int shader, String string) {
+        calls++;
+        if (log != null) record("glShaderSource", shader, string.length() + " chars");
+        if (!shaders.containsKey(shader)) {
+            error(GL_INVALID_VALUE, "shader " + shader + " does not exist");
+        }
+    }
+
+    @Override
+    public void glTexImage2D(int target, int level, int internalformat, int width, int height, int border, int format,
+                             int type, Buffer pixels) {
+        calls++;
+        if (log != null) record("glTexImage2D", target, level, internalformat, width, height, border, format, type, pixels);
+        if (textureBound(target)) {
+            int bytesPerPixel = type == GL_UNSIGNED_SHORT_5_6_5 ? 2 : format == GL_RGB ? 3 : 4;
+            uploadedBytes += (long) width * height * bytesPerPixel;
+        }
+    }
+
+    @Override
+    public void glTexParameteri(int target, int pname, int param) {
+        calls++;
+        if (log != null) record("glTexParameteri", target, pname, param);
+        textureBound(target);
+    }
+
+    /**
+     * Stores the uniform value in the program, that is in use
+     */
+    private void uniform(int location, float[] value, int offset, int count) {
+        if (currentProgram == 0) {
+            error(GL_INVALID_OPERATION, "uniform without a program");
+            return;
+        }
+        //Location -1 is ignored, like in GL
+        if (location == -1) return;
+        Program p = programs.get(currentProgram);
+        if (!p.uniforms.containsValue(location)) {
+            error(GL_INVALID_OPERATION, "uniform location " + location + " is not in program " + currentProgram);
+            return;
+        }
+        float[] last = p.uniformValues.get(location);
+        if (last != null && last.length == count) {
+            boolean changed = false;
+            for (int i = 0; i < count; i++) {
+                changed |= last[i] != value[offset + i];
+                last[i] = value[offset + i];
+            }
+            stateChange(changed);
+        } else {
+            p.uniformValues.put(location, Arrays.copyOfRange(value, offset, offset + count));
+            stateChange(true);
+        }
+    }
+
+    @Override
+    public void glUniform1i(int location, int x) {
+        calls++;
+        if (log != null) record("glUniform1i", location, x);
+        scratch[0] = x;
+        uniform(location, scratch, 0, 1);
+    }
+
+    @Override
+    public void glUniform3f(int location, float x, float y, float z) {
+        calls++;
+        if (log != null) record("glUniform3f", location, x, y, z);
+        scratch[0] = x;
+        scratch[1] = y;
+        scratch[2] = z;
+        uniform(location, scratch, 0, 3);
+    }
+
+    @Override
+    public void glUniform4f(int location, float x, float y, float z, float w) {
+        calls++;
+        if (log != null) record("glUniform4f", location, x, y, z, w);
+        scratch[0] = x;
+        scratch[1] = y;
+        scratch[2] = z;
+        scratch[3] = w;
+        uniform(location, scratch, 0, 4);
+    }
+
+    @Override
+    public void glUniformMatrix4fv(int location, int count, boolean transpose, float[] value, int offset) {
+        calls++;
+        if (log != null) record("glUniformMatrix4fv", location, count, transpose, Arrays.toString(Arrays.copyOfRange(value, offset, offset + 16 * count)));
+        //OpenGL ES 2.0 does not support transposing
+        if (transpose) {
+            error(GL_INVALID_VALUE, "transposed matrix");
+            return;
+        }
+        uniform(location, value, offset, 16 * count);
+    }
+
+    @Override
+    public void glUseProgram(int program) {
+        calls++;
+        if (log != null) record("glUseProgram", program);
+        if (program != 0) {
+            Program p = program(program);
+            if (p == null) return;
+            if (!p.linked) {
+                error(GL_INVALID_OPERATION, "program " + program + " is not linked");
+                return;
+            }
+        }
+        stateChange(currentProgram != program);
+        currentProgram = program;
+    }
+
+    @Override
+    public void glVertexAttrib3f(int indx, float x, float y, float z) {
+        calls++;
+        if (log != null) record("glVertexAttrib3f", indx, x, y, z);
+        validAttribute(indx);
+    }
+
+    @Override
+    public void glVertexAttribPointer(int indx, int size, int type, boolean normalized, int stride, int offset) {
+        calls++;
+        if (log != null) record("glVertexAttribPointer", indx, size, type, normalized, stride, offset);
+        if (!validAttribute(indx)) return;
+        if (size < 1 || size > 4 || stride < 0) {
+            error(GL_INVALID_VALUE, "attribute size " + size + " stride " + stride);
+            return;
+        }
+        //OpenGL ES 2.0 has no 32 bit integer attributes
+        if (type != GL_BYTE && type != GL_UNSIGNED_BYTE && type != GL_SHORT && type != GL_UNSIGNED_SHORT
+                && type != GL_FLOAT) {
+            error(GL_INVALID_ENUM, "attribute type " + type);
+            return;
+        }
+        //A pointer by offset reads the bound buffer. Client side arrays would need a Buffer instead.
+        if (arrayBuffer == 0) {
+            error(GL_INVALID_OPERATION, "attribute pointer by offset, but no vertex buffer bound");
+            return;
+        }
+        attributeBuffers[indx] = arrayBuffer;
+    }
+
+    @Override
+    public void glViewport(int x, int y, int width, int height) {
+        calls++;
+        if (log != null) record("glViewport", x, y, width, height);
+    }
+
+    /**
+     * @return - All GL calls, including glGetError
+     */
+    public long getCallCount() { return calls; }
+
+    public long getDrawCallCount() { return drawCalls; }
+
+    /**
+     * @return - Vertices or indices, that the draw calls read
+     */
+    public long getDrawnVertexCount() { return drawnVertices; }
+
+    /**
+     * @return - Bytes of buffer and texture data, including compressed textures at their compressed size
+     */
+    public long getUploadedBytes() { return uploadedBytes; }
+
+    /**
+     * @return - Binds, enables and uniform calls, that changed the state
+     */
+    public long getStateChangeCount() { return stateChanges; }
+
+    /**
+     * @return - Binds, enables and uniform calls, that set the value, which was already set
+     */
+    public long getRedundantChangeCount() { return redundantChanges; }
+
+    /**
+     * @return - Every error since the last reset, with the number of the call, that caused it
+     */
+    public List<String> getErrors() { return errors; }
+
+    /**
+     * @return - The calls since the last reset, or null if they are not recorded
+     */
+    public List<String> getLog() { return log; }
+
+    /**
+     * Resets the counters, errors and log, e.g. at the start of a frame. The GL state stays.
+     */
+    public void reset() {
+        calls = 0;
+        drawCalls = 0;
+        drawnVertices = 0;
+        uploadedBytes = 0;
+        stateChanges = 0;
+        redundantChanges = 0;
+        errors.clear();
+        pendingError = GL_NO_ERROR;
+        if (log != null) log.clear();
+    }
+
+    @Override
+    public String toString() {
+        return "calls=" + calls + " draws=" + drawCalls + " vertices=" + drawnVertices + " uploaded=" + uploadedBytes
+                + " stateChanges=" + stateChanges + " redundant=" + redundantChanges + " errors=" + errors.size();
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.andrisgauracs.loader3ds;
+
+/**
+ * Many placed models, drawn together with one camera (see ModelDrawer.draw(Scene, ...)). The models are
+ * placed with a tree of SceneNodes under the root node.
+ */
+public class Scene {
+
+    private final SceneNode root = new SceneNode();
+    private final float[] view = new float[16];
+    private final float[] projection = new float[16];
+    /** Increased, whenever the view or projection matrix changes */
+    private int cameraVersion;
+
+    public Scene() {
+        GeometryKernel.setIdentityM(view, 0);
+        GeometryKernel.setIdentityM(projection, 0);
+    }
+
+    public SceneNode getRoot() { return root; }
+
+    /**
+     * @param m - The view matrix, e.g. from android.opengl.Matrix.setLookAtM
+     */
+    public void setView(float[] m, int offset) {
+        if (copy(m, offset, view)) cameraVersion++;
+    }
+
+    /**
+     * @param m - The projection matrix, e.g. from android.opengl.Matrix.frustumM
+     */
+    public void setProjection(float[] m, int offset) {
+        if (copy(m, offset, projection)) cameraVersion++;
+    }
+
+    public float[] getView() { return view; }
+
+    public float[] getProjection() { return projection; }
+
+    int getCameraVersion() { return cameraVersion; }
+
+    /**
+     * Computes the world matrices of the nodes, that moved since the last update
+     * @return - Number of world matrices, that were computed
+     */
+    public int update() {
+        return root.update(false);
+    }
+
+    /**
+     * @return - True, if the matrix was different
+     */
+    private static boolean copy(float[] m, int offset, float[] target) {
+        for (int i = 0; i < 16; i++) {
+            if (target[i] != m[offset + i]) {
+                System.arraycopy(m, offset, target, 0, 16);
+                return true;
+            }
+        }
+        return false;
+    }
+}
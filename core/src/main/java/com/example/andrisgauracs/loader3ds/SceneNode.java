@@ -0,0 +1,194 @@
+package com.example.andrisgauracs.loader3ds;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A node of a Scene: a transform relative to its parent, an optional model and child nodes.
+ *
+ * The world matrix is cached, and only computed again, after the node's own transform or one of its parents'
+ * changed. The model-view and model-view-projection matrices for drawing are cached the same way, so a frame,
+ * in which nothing moves, does not multiply any matrix.
+ */
+public class SceneNode {
+
+    private final float[] local = new float[16];
+    private final float[] world = new float[16];
+    private final ArrayList<SceneNode> children = new ArrayList<>();
+    private SceneNode parent;
+    private Parser3ds model;
+    /** Set, when the local transform or the parent changed, until the world matrix is computed again */
+    private boolean dirty = true;
+    /** Increased every time the world matrix is computed */
+    private int worldVersion;
+
+    /** The matrices for drawing, and the world matrix, camera and scale, that they were computed from */
+    final float[] modelView = new float[16];
+    final float[] modelViewProjection = new float[16];
+    private int drawnWorldVersion = -1;
+    private int drawnCameraVersion = -1;
+    private float drawnScale;
+
+    /** Time of the model's animation, and the matrices of its nodes at that time */
+    private float animationTime;
+    private boolean animationDirty = true;
+    private float[] animationWorld;
+    private float[] animationMatrices;
+
+    public SceneNode() {
+        GeometryKernel.setIdentityM(local, 0);
+        GeometryKernel.setIdentityM(world, 0);
+    }
+
+    /**
+     * @param model - Drawn with the node's transform. The same model can be placed in many nodes.
+     */
+    public SceneNode(Parser3ds model) {
+        this();
+        this.model = model;
+    }
+
+    public void setModel(Parser3ds model) {
+        if (model == this.model) return;
+        this.model = model;
+        animationDirty = true;
+    }
+
+    public Parser3ds getModel() { return model; }
+
+    /**
+     * Each node plays the animation of its model at its own time, so instances of the same model can be in
+     * different poses
+     * @param seconds - Time in the animation, which loops
+     */
+    public void setAnimationTime(float seconds) {
+        if (seconds == animationTime) return;
+        animationTime = seconds;
+        animationDirty = true;
+    }
+
+    public float getAnimationTime() { return animationTime; }
+
+    /**
+     * Moves the child from its old parent, if it has one
+     */
+    public void addChild(SceneNode child) {
+        if (child.parent != null) child.parent.removeChild(child);
+        child.parent = this;
+        child.dirty = true;
+        children.add(child);
+    }
+
+    public void removeChild(SceneNode child) {
+        if (children.remove(child)) {
+            child.parent = null;
+            child.dirty = true;
+        }
+    }
+
+    public List<SceneNode> getChildren() { return children; }
+
+    public SceneNode getParent() { return parent; }
+
+    /**
+     * The node is only marked dirty, when the matrix is different from the current one
+     * @param m - Transform relative to the parent, column-major as in android.opengl.Matrix
+     */
+    public void setLocalMatrix(float[] m, int offset) {
+        for (int i = 0; i < 16; i++) {
+            if (local[i] != m[offset + i]) {
+                System.arraycopy(m, offset, local, 0, 16);
+                dirty = true;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Replaces the translation of the local transform, and keeps its rotation and scale
+     */
+    public void setTranslation(float x, float y, float z) {
+        if (local[12] == x && local[13] == y && local[14] == z) return;
+        local[12] = x;
+        local[13] = y;
+        local[14] = z;
+        dirty = true;
+    }
+
+    /**
+     * @return - Transform relative to the parent. Change it with setLocalMatrix or setTranslation.
+     */
+    public float[] getLocalMatrix() { return local; }
+
+    /**
+     * @return - Transform relative to the scene, as of the last Scene.update
+     */
+    public float[] getWorldMatrix() { return world; }
+
+    /**
+     * Computes the world matrices of this node and its children, where they changed
+     * @param parentChanged - The parent's world matrix was computed again
+     * @return - Number of world matrices, that were computed
+     */
+    int update(boolean parentChanged) {
+        int updated = 0;
+        boolean changed = dirty || parentChanged;
+        if (changed) {
+            if (parent == null) {
+                System.arraycopy(local, 0, world, 0, 16);
+            } else {
+                GeometryKernel.multiplyMM(world, 0, parent.world, 0, local, 0);
+            }
+            worldVersion++;
+            dirty = false;
+            updated++;
+        }
+        //Indexed, so no iterator is allocated every frame
+        for (int i = 0; i < children.size(); i++) {
+            updated += children.get(i).update(changed);
+        }
+        return updated;
+    }
+
+    /**
+     * Evaluates the animation of the model, if the time changed since the last call. The matrices are only
+     * allocated, when the node gets a model with another number of animation nodes.
+     * @return - The matrix of each node of the animation (see Animation3ds.evaluate), or null if the model
+     * is not animated
+     */
+    float[] updateAnimation() {
+        Animation3ds animation = model != null ? model.getAnimation() : null;
+        if (animation == null) return null;
+        int size = animation.getNodeCount() * 16;
+        if (animationMatrices == null || animationMatrices.length != size) {
+            animationWorld = new float[size];
+            animationMatrices = new float[size];
+            animationDirty = true;
+        }
+        if (animationDirty) {
+            animation.evaluate(animationTime, animationWorld, animationMatrices);
+            animationDirty = false;
+        }
+        return animationMatrices;
+    }
+
+    /**
+     * Computes the model-view and model-view-projection matrices, unless they were computed from the same
+     * world matrix, camera and scale before
+     * @param cameraVersion - Changes, whenever the view or projection matrix changes
+     * @param scale - The scale factor of the model, which is applied to the model-view-projection matrix only
+     * @return - True, if the matrices were computed
+     */
+    boolean updateDrawMatrices(float[] view, float[] projection, int cameraVersion, float scale) {
+        if (drawnWorldVersion == worldVersion && drawnCameraVersion == cameraVersion && drawnScale == scale) {
+            return false;
+        }
+        GeometryKernel.multiplyMM(modelView, 0, view, 0, world, 0);
+        GeometryKernel.multiplyMM(modelViewProjection, 0, projection, 0, modelView, 0);
+        GeometryKernel.scaleM(modelViewProjection, 0, scale, scale, scale);
+        drawnWorldVersion = worldVersion;
+        drawnCameraVersion = cameraVersion;
+        drawnScale = scale;
+        return true;
+    }
+}
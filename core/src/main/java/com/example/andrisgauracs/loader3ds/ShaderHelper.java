@@ -1,47 +1,44 @@
 package com.example.andrisgauracs.loader3ds;
 
-import android.opengl.GLES20;
-import android.util.Log;
-
 public class ShaderHelper
 {
-    private static final String TAG = "ShaderHelper";
-
     /**
      * Helper function to compile a shader.
      *
+     * @param gl The GL of the current context.
      * @param shaderType The shader type.
      * @param shaderSource The shader source code.
      * @return An OpenGL handle to the shader.
      */
-    public static int compileShader(final int shaderType, final String shaderSource)
+    public static int compileShader(final GL gl, final int shaderType, final String shaderSource)
     {
-        int shaderHandle = GLES20.glCreateShader(shaderType);
+        int shaderHandle = gl.glCreateShader(shaderType);
+        String error = "";
 
         if (shaderHandle != 0)
         {
             // Pass in the shader source.
-            GLES20.glShaderSource(shaderHandle, shaderSource);
+            gl.glShaderSource(shaderHandle, shaderSource);
 
             // Compile the shader.
-            GLES20.glCompileShader(shaderHandle);
+            gl.glCompileShader(shaderHandle);
 
             // Get the compilation status.
             final int[] compileStatus = new int[1];
-            GLES20.glGetShaderiv(shaderHandle, GLES20.GL_COMPILE_STATUS, compileStatus, 0);
+            gl.glGetShaderiv(shaderHandle, GL.GL_COMPILE_STATUS, compileStatus, 0);
 
             // If the compilation failed, delete the shader.
             if (compileStatus[0] == 0)
             {
-                Log.e(TAG, "Error compiling shader: " + GLES20.glGetShaderInfoLog(shaderHandle));
-                GLES20.glDeleteShader(shaderHandle);
+                error = ": " + gl.glGetShaderInfoLog(shaderHandle);
+                gl.glDeleteShader(shaderHandle);
                 shaderHandle = 0;
             }
         }
 
         if (shaderHandle == 0)
         {
-            throw new RuntimeException("Error creating shader.");
+            throw new RuntimeException("Error creating shader" + error);
         }
 
         return shaderHandle;
@@ -50,22 +47,24 @@ public class ShaderHelper
     /**
      * Helper function to compile and link a program.
      *
+     * @param gl The GL of the current context.
      * @param vertexShaderHandle An OpenGL handle to an already-compiled vertex shader.
      * @param fragmentShaderHandle An OpenGL handle to an already-compiled fragment shader.
      * @param attributes Attributes that need to be bound to the program.
      * @return An OpenGL handle to the program.
      */
-    public static int createAndLinkProgram(final int vertexShaderHandle, final int fragmentShaderHandle, final String[] attributes)
+    public static int createAndLinkProgram(final GL gl, final int vertexShaderHandle, final int fragmentShaderHandle, final String[] attributes)
     {
-        int programHandle = GLES20.glCreateProgram();
+        int programHandle = gl.glCreateProgram();
+        String error = "";
 
         if (programHandle != 0)
         {
             // Bind the vertex shader to the program.
-            GLES20.glAttachShader(programHandle, vertexShaderHandle);
+            gl.glAttachShader(programHandle, vertexShaderHandle);
 
             // Bind the fragment shader to the program.
-            GLES20.glAttachShader(programHandle, fragmentShaderHandle);
+            gl.glAttachShader(programHandle, fragmentShaderHandle);
 
             // Bind attributes
             if (attributes != null)
@@ -73,29 +72,29 @@ public class ShaderHelper
                 final int size = attributes.length;
                 for (int i = 0; i < size; i++)
                 {
-                    GLES20.glBindAttribLocation(programHandle, i, attributes[i]);
+                    gl.glBindAttribLocation(programHandle, i, attributes[i]);
                 }
             }
 
             // Link the two shaders together into a program.
-            GLES20.glLinkProgram(programHandle);
+            gl.glLinkProgram(programHandle);
 
             // Get the link status.
             final int[] linkStatus = new int[1];
-            GLES20.glGetProgramiv(programHandle, GLES20.GL_LINK_STATUS, linkStatus, 0);
+            gl.glGetProgramiv(programHandle, GL.GL_LINK_STATUS, linkStatus, 0);
 
             // If the link failed, delete the program.
             if (linkStatus[0] == 0)
             {
-                Log.e(TAG, "Error compiling program: " + GLES20.glGetProgramInfoLog(programHandle));
-                GLES20.glDeleteProgram(programHandle);
+                error = ": " + gl.glGetProgramInfoLog(programHandle);
+                gl.glDeleteProgram(programHandle);
                 programHandle = 0;
             }
         }
 
         if (programHandle == 0)
         {
-            throw new RuntimeException("Error creating program.");
+            throw new RuntimeException("Error creating program" + error);
         }
 
         return programHandle;
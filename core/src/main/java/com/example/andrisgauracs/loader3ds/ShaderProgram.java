@@ -0,0 +1,91 @@
+package com.example.andrisgauracs.loader3ds;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * A linked shader program, whose attribute and uniform locations are looked up once, right after linking,
+ * instead of on every frame.
+ *
+ * It also remembers the last value sent to each uniform, since a program keeps its uniforms between draws,
+ * so GLStateCache can skip uploading the same value again.
+ */
+public class ShaderProgram {
+
+    /** Uniforms at higher locations are always uploaded, so the value table stays small */
+    private static final int MAX_CACHED_LOCATION = 256;
+
+    private final int handle;
+    private final HashMap<String, Integer> attributes = new HashMap<>();
+    private final HashMap<String, Integer> uniforms = new HashMap<>();
+    /** Last value of each uniform, indexed by location. Null, until the uniform is first set. */
+    private final float[][] uniformValues;
+
+    /**
+     * @param gl - The GL of the current context
+     * @param attributes - Attribute names. They are bound to the locations 0, 1, 2... in this order.
+     * @param uniforms - Uniform names, whose locations are looked up
+     */
+    public ShaderProgram(GL gl, String vertexSource, String fragmentSource, String[] attributes, String[] uniforms) {
+        final int vertexShaderHandle = ShaderHelper.compileShader(gl, GL.GL_VERTEX_SHADER, vertexSource);
+        final int fragmentShaderHandle = ShaderHelper.compileShader(gl, GL.GL_FRAGMENT_SHADER, fragmentSource);
+        handle = ShaderHelper.createAndLinkProgram(gl, vertexShaderHandle, fragmentShaderHandle, attributes);
+
+        for (String name : attributes) {
+            this.attributes.put(name, gl.glGetAttribLocation(handle, name));
+        }
+        int maxLocation = -1;
+        for (String name : uniforms) {
+            int location = gl.glGetUniformLocation(handle, name);
+            this.uniforms.put(name, location);
+            if (location < MAX_CACHED_LOCATION) maxLocation = Math.max(maxLocation, location);
+        }
+        uniformValues = new float[maxLocation + 1][];
+    }
+
+    public int getHandle() { return handle; }
+
+    /**
+     * @return - Location of the attribute, or -1 if the program does not use it
+     */
+    public int getAttribute(String name) {
+        Integer location = attributes.get(name);
+        return location != null ? location : -1;
+    }
+
+    /**
+     * @return - Location of the uniform, or -1 if the program does not use it
+     */
+    public int getUniform(String name) {
+        Integer location = uniforms.get(name);
+        return location != null ? location : -1;
+    }
+
+    /**
+     * Stores the value as the uniform's last value
+     * @return - False, if the uniform already has this value, so it does not need to be uploaded
+     */
+    boolean updateUniform(int location, float[] value, int offset, int count) {
+        if (location < 0 || location >= uniformValues.length) return true;
+        float[] last = uniformValues[location];
+        if (last == null || last.length != count) {
+            uniformValues[location] = Arrays.copyOfRange(value, offset, offset + count);
+            return true;
+        }
+        boolean changed = false;
+        for (int i = 0; i < count; i++) {
+            if (last[i] != value[offset + i]) {
+                last[i] = value[offset + i];
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Forgets the uniform values, e.g. after the program was used without GLStateCache
+     */
+    void invalidateUniforms() {
+        Arrays.fill(uniformValues, null);
+    }
+}
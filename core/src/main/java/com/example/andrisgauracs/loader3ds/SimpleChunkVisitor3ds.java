@@ -0,0 +1,55 @@
+package com.example.andrisgauracs.loader3ds;
+
+import java.io.IOException;
+
+/**
+ * Empty implementation of ChunkVisitor3ds, that enters every chunk and ignores all the data.
+ * Extend this, if only a few of the callbacks are needed.
+ */
+public class SimpleChunkVisitor3ds implements ChunkVisitor3ds {
+
+    @Override
+    public boolean enterChunk(int type, int size) throws IOException { return true; }
+
+    @Override
+    public boolean onObject(String name) throws IOException { return true; }
+
+    @Override
+    public void onVertices(int count, ChunkInput data) throws IOException { }
+
+    @Override
+    public void onFaces(int count, ChunkInput data) throws IOException { }
+
+    @Override
+    public void onFaceMaterial(String material, int count, ChunkInput data) throws IOException { }
+
+    @Override
+    public void onSmoothingGroups(int count, ChunkInput data) throws IOException { }
+
+    @Override
+    public void onUV(int count, ChunkInput data) throws IOException { }
+
+    @Override
+    public void onMaterial(String name) throws IOException { }
+
+    @Override
+    public void onTextureFilename(String filename) throws IOException { }
+
+    @Override
+    public void onKeyframerSegment(int start, int end) throws IOException { }
+
+    @Override
+    public void onKeyframerFrame(int frame) throws IOException { }
+
+    @Override
+    public void onNodeId(int id) throws IOException { }
+
+    @Override
+    public void onNodeHeader(String name, int parent) throws IOException { }
+
+    @Override
+    public void onTrack(int type, int keyCount, ChunkInput data) throws IOException { }
+
+    @Override
+    public void onUnknownChunk(int type, int size, ChunkInput data) throws IOException { }
+}
@@ -0,0 +1,130 @@
+package com.example.andrisgauracs.loader3ds;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads the file one byte at a time from an InputStream.
+ * Kept for sources, that can not be loaded into memory first, and as a reference for ParserBenchmark.
+ * It can not seek backwards, so it can not be used for loading objects from a ChunkIndex3ds.
+ */
+public class StreamChunkInput implements ChunkInput {
+
+    private final BufferedInputStream stream;
+    private int pos;
+
+    public StreamChunkInput(InputStream file) {
+        stream = new BufferedInputStream(file);
+        pos = 0;
+    }
+
+    @Override
+    public int position() { return pos; }
+
+    @Override
+    public byte getByte() throws IOException {
+        int read = stream.read();
+        if (read == -1) {
+            throw new EOFException();
+        }
+        pos++;
+        return (byte) read;
+    }
+
+    @Override
+    public short getShort() throws IOException {
+        byte b0 = getByte();
+        byte b1 = getByte();
+        return makeShort(b1, b0);
+    }
+
+    @Override
+    public int getInt() throws IOException {
+        byte b0 = getByte();
+        byte b1 = getByte();
+        byte b2 = getByte();
+        byte b3 = getByte();
+        return makeInt(b3, b2, b1, b0);
+    }
+
+    @Override
+    public float getFloat() throws IOException {
+        return Float.intBitsToFloat(getInt());
+    }
+
+    static private short makeShort(byte b1, byte b0) {
+        return (short)((b1 << 8) | (b0 & 0xff));
+    }
+
+    static private int makeInt(byte b3, byte b2, byte b1, byte b0) {
+        return (((b3       ) << 24) |
+                ((b2 & 0xff) << 16) |
+                ((b1 & 0xff) <<  8) |
+                ((b0 & 0xff)      ));
+    }
+
+    @Override
+    public String readString() throws IOException {
+        StringBuilder sb = new StringBuilder(64);
+        byte ch = getByte();
+        while (ch != 0) {
+            sb.append((char)ch);
+            ch = getByte();
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public void skip(int i) throws IOException {
+        int skipped = 0;
+        do {
+            skipped += stream.skip(i - skipped);
+        } while (skipped < i);
+
+        pos += i;
+    }
+
+    /**
+     * A stream can only move forward, so seeking back throws an IOException
+     */
+    @Override
+    public void seek(int position) throws IOException {
+        if (position < pos) {
+            throw new IOException("Can not seek back to " + position + " in a stream");
+        }
+        skip(position - pos);
+    }
+
+    @Override
+    public void readFloats(float[] dst, int offset, int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            dst[offset + i] = getFloat();
+        }
+    }
+
+    @Override
+    public void readInts(int[] dst, int offset, int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            dst[offset + i] = getInt();
+        }
+    }
+
+    @Override
+    public void readUnsignedShorts(int[] dst, int offset, int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            dst[offset + i] = getShort() & 0xffff;
+        }
+    }
+
+    @Override
+    public void readFaces(int[] dst, int numFaces) throws IOException {
+        for (int i = 0; i < numFaces; i++) {
+            dst[i*3] = getShort() & 0xffff;
+            dst[i*3 + 1] = getShort() & 0xffff;
+            dst[i*3 + 2] = getShort() & 0xffff;
+            getShort(); // Discard face flag
+        }
+    }
+}
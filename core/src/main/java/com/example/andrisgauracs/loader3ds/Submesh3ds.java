@@ -0,0 +1,70 @@
+package com.example.andrisgauracs.loader3ds;
+
+import java.util.Arrays;
+
+/**
+ * A contiguous range of an object's faces, that share one material. Each range is drawn with one call and its own
+ * texture.
+ */
+public class Submesh3ds {
+
+    private final String material;
+    private final int firstFace;
+    private final int faceCount;
+    /** First face and face count of each coarser level of detail, after the full one */
+    private int[] lodRanges = new int[0];
+    private int textureResource;
+    private String textureName;
+    private int textureHandle;
+
+    /**
+     * @param material - Material name from the 0x4130 chunk, or null for the faces, that no chunk lists
+     * @param firstFace - First face of the range, in the order of the object's index buffer
+     */
+    public Submesh3ds(String material, int firstFace, int faceCount) {
+        this.material = material;
+        this.firstFace = firstFace;
+        this.faceCount = faceCount;
+    }
+
+    public String getMaterial() { return material; }
+
+    public int getFirstFace() { return firstFace; }
+
+    public int getFaceCount() { return faceCount; }
+
+    /**
+     * @param level - Level of detail, 0 for the full one (see Object3ds.getLodCount)
+     * @return - First face of the range in that level
+     */
+    public int getFirstFace(int level) { return level == 0 ? firstFace : lodRanges[(level - 1) * 2]; }
+
+    /**
+     * @return - Faces of the range in that level. Can be 0, when all of them were collapsed away.
+     */
+    public int getFaceCount(int level) { return level == 0 ? faceCount : lodRanges[(level - 1) * 2 + 1]; }
+
+    void addLod(int lodFirstFace, int lodFaceCount) {
+        int n = lodRanges.length;
+        lodRanges = Arrays.copyOf(lodRanges, n + 2);
+        lodRanges[n] = lodFirstFace;
+        lodRanges[n + 1] = lodFaceCount;
+    }
+
+    void clearLods() { lodRanges = new int[0]; }
+
+    public void setTextureResource(int resourceId) { textureResource = resourceId; }
+
+    /**
+     * @return - Resource of the texture, that Parser3ds.upload loads into the texture handle, or 0 for no texture
+     */
+    public int getTextureResource() { return textureResource; }
+
+    public void setTextureName(String drawableName) { textureName = drawableName; }
+
+    public String getTextureName() { return textureName; }
+
+    public void setTextureHandle(int handle) { textureHandle = handle; }
+
+    public int getTextureHandle() { return textureHandle; }
+}
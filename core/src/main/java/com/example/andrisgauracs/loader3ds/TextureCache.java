@@ -0,0 +1,166 @@
+package com.example.andrisgauracs.loader3ds;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Shares one texture between all the objects, that use the same texture resource, so each image is decoded
+ * and uploaded only once.
+ *
+ * Every acquire must be paired with a release. Textures, that are no longer referenced, stay loaded while they
+ * fit into the memory budget, and the least recently used ones are deleted first, when they do not.
+ * Referenced textures are never deleted, so the budget can be exceeded while they are in use.
+ *
+ * Not thread safe, it is meant to be used on the GL thread only.
+ */
+public class TextureCache {
+
+    /**
+     * Creates and deletes the actual textures
+     */
+    public interface Loader {
+
+        /**
+         * @param textureResource - ID, returned by the TextureResolver
+         * @param bytes - Receives the memory size of the texture at index 0
+         * @return - Texture handle
+         */
+        int loadTexture(int textureResource, int[] bytes);
+
+        void deleteTexture(int handle);
+    }
+
+    private static class Entry {
+        int handle;
+        int bytes;
+        int references;
+    }
+
+    private final Loader loader;
+    private final long budget;
+    /** In access order, so the first entry is the least recently used one */
+    private final LinkedHashMap<Integer, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final int[] loadedBytes = new int[1];
+
+    private long bytes;
+    private int hits;
+    private int misses;
+    private int evictions;
+
+    /**
+     * @param loader - Loads the textures, that are not in the cache yet
+     * @param budget - Memory in bytes, above which unused textures are deleted
+     */
+    public TextureCache(Loader loader, long budget) {
+        this.loader = loader;
+        this.budget = budget;
+    }
+
+    /**
+     * @return - Handle of the texture, loaded now or shared with the earlier users of the same resource
+     */
+    public int acquire(int textureResource) {
+        Entry entry = entries.get(textureResource);
+        if (entry != null) {
+            hits++;
+            entry.references++;
+            return entry.handle;
+        }
+        misses++;
+        entry = new Entry();
+        entry.handle = loader.loadTexture(textureResource, loadedBytes);
+        entry.bytes = loadedBytes[0];
+        //Referenced before trimming, so the new texture itself is not deleted
+        entry.references = 1;
+        entries.put(textureResource, entry);
+        bytes += entry.bytes;
+        trim();
+        return entry.handle;
+    }
+
+    /**
+     * Gives up one reference, taken by acquire. The texture stays cached, while it fits into the budget.
+     */
+    public void release(int textureResource) {
+        Entry entry = entries.get(textureResource);
+        if (entry == null || entry.references == 0) return;
+        entry.references--;
+        if (entry.references == 0) {
+            trim();
+        }
+    }
+
+    /**
+     * @return - Handle of the cached texture, or 0 if the resource is not cached. Does not count as a use.
+     */
+    public int getHandle(int textureResource) {
+        Entry entry = peek(textureResource);
+        return entry != null ? entry.handle : 0;
+    }
+
+    /**
+     * Updates the memory size of a texture, whose data was replaced, e.g. by a higher resolution version
+     */
+    public void resize(int textureResource, int newBytes) {
+        Entry entry = peek(textureResource);
+        if (entry == null) return;
+        bytes += newBytes - entry.bytes;
+        entry.bytes = newBytes;
+        trim();
+    }
+
+    /**
+     * Finds the entry without moving it in the access order, as get would
+     */
+    private Entry peek(int textureResource) {
+        for (Map.Entry<Integer, Entry> cached : entries.entrySet()) {
+            if (cached.getKey() == textureResource) return cached.getValue();
+        }
+        return null;
+    }
+
+    /**
+     * Deletes unused textures, least recently used first, until the cache fits into the budget
+     */
+    private void trim() {
+        Iterator<Entry> it = entries.values().iterator();
+        while (bytes > budget && it.hasNext()) {
+            Entry entry = it.next();
+            if (entry.references > 0) continue;
+            loader.deleteTexture(entry.handle);
+            bytes -= entry.bytes;
+            evictions++;
+            it.remove();
+        }
+    }
+
+    /**
+     * Forgets all the textures without deleting them. Used, when the GL context was lost together with them.
+     */
+    public void clear() {
+        entries.clear();
+        bytes = 0;
+    }
+
+    public int getHitCount() { return hits; }
+
+    public int getMissCount() { return misses; }
+
+    public int getEvictionCount() { return evictions; }
+
+    /**
+     * @return - Memory used by the cached textures, in bytes
+     */
+    public long getBytes() { return bytes; }
+
+    public long getBudget() { return budget; }
+
+    public int size() { return entries.size(); }
+
+    @Override
+    public String toString() {
+        return "textures=" + entries.size() + " bytes=" + bytes + "/" + budget
+                + " hits=" + hits + " misses=" + misses + " evictions=" + evictions;
+    }
+}
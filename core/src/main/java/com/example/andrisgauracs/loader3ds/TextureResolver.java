@@ -0,0 +1,13 @@
+package com.example.andrisgauracs.loader3ds;
+
+/**
+ * Finds a texture by the name, that a 3ds material refers to. On Android, the textures are drawable resources.
+ */
+public interface TextureResolver {
+
+    /**
+     * @param name - Texture file name, in lower case and without the extension
+     * @return - ID of the texture resource, or 0 if there is no such texture
+     */
+    int getTextureResource(String name);
+}
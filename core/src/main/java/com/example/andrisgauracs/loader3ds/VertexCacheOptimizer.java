@@ -0,0 +1,251 @@
+package com.example.andrisgauracs.loader3ds;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Reorders the triangles of an index list, so the GPU transforms fewer vertices and shades fewer hidden pixels
+ * (Sander, Nehab and Barczak, "Fast Triangle Reordering for Vertex Locality and Reduced Overdraw").
+ *
+ * Tipsify first orders the triangles as fans around vertices, that are still in the post-transform cache. The result
+ * is then cut into clusters, that keep a good cache hit rate on their own, and the clusters are drawn from the outside
+ * of the mesh inwards, so the faces in front tend to be drawn first and hide the ones behind them by the depth test.
+ *
+ * Only the order of the triangles changes. Each triangle keeps its vertices and its winding.
+ */
+class VertexCacheOptimizer {
+
+    /** Entries of the simulated post-transform cache. Mobile GPUs have at least 16. */
+    static final int CACHE_SIZE = 16;
+    /**
+     * A cluster may end, once its cache misses per triangle are at most this multiple of the whole range's. Lower
+     * values give fewer, longer clusters: fewer cache misses, but less freedom to reduce overdraw.
+     */
+    private static final float CLUSTER_THRESHOLD = 0.9f;
+
+    private VertexCacheOptimizer() { }
+
+    /**
+     * @param indices - Triangle list, of which the range is reordered in place
+     * @param firstFace - First triangle of the range
+     * @param faceCount - Triangles in the range
+     * @param vertexCount - The indices are below this
+     * @param data - Interleaved vertices, the position is the first 3 floats of each
+     * @param stride - Floats per vertex
+     */
+    static void optimize(int[] indices, int firstFace, int faceCount, int vertexCount, float[] data, int stride) {
+        if (faceCount < 2) return;
+        int first = firstFace * 3;
+
+        //The triangles around each vertex, and how many of them are not drawn yet
+        int[] live = new int[vertexCount];
+        for (int i = first; i < first + faceCount * 3; i++) {
+            live[indices[i]]++;
+        }
+        int[] offsets = new int[vertexCount + 1];
+        for (int v = 0; v < vertexCount; v++) {
+            offsets[v + 1] = offsets[v] + live[v];
+        }
+        int[] adjacency = new int[faceCount * 3];
+        int[] filled = Arrays.copyOf(offsets, vertexCount);
+        for (int face = 0; face < faceCount; face++) {
+            for (int corner = 0; corner < 3; corner++) {
+                adjacency[filled[indices[first + face * 3 + corner]]++] = face;
+            }
+        }
+
+        int[] order = new int[faceCount];
+        int ordered = 0;
+        boolean[] emitted = new boolean[faceCount];
+        //When each vertex last entered the cache, in cache misses
+        int[] cacheTime = new int[vertexCount];
+        int time = CACHE_SIZE + 1;
+        int[] deadEnds = new int[faceCount * 3];
+        int deadEndCount = 0;
+        int[] candidates = new int[faceCount * 3];
+        int cursor = 0;
+        //Where the cache is cold, since the fanning vertex was not taken from it
+        boolean[] hardBoundary = new boolean[faceCount + 1];
+
+        int fan = indices[first];
+        hardBoundary[0] = true;
+        while (fan >= 0) {
+            int candidateCount = 0;
+            for (int a = offsets[fan]; a < offsets[fan + 1]; a++) {
+                int face = adjacency[a];
+                if (emitted[face]) continue;
+                emitted[face] = true;
+                order[ordered++] = face;
+                for (int corner = 0; corner < 3; corner++) {
+                    int v = indices[first + face * 3 + corner];
+                    deadEnds[deadEndCount++] = v;
+                    candidates[candidateCount++] = v;
+                    live[v]--;
+                    if (time - cacheTime[v] > CACHE_SIZE) {
+                        cacheTime[v] = time++;
+                    }
+                }
+            }
+
+            //The candidate, that stays in the cache, while all of its triangles are drawn, and entered it first
+            int next = -1;
+            int best = -1;
+            for (int c = 0; c < candidateCount; c++) {
+                int v = candidates[c];
+                if (live[v] <= 0) continue;
+                int priority = 0;
+                if (time - cacheTime[v] + 2 * live[v] <= CACHE_SIZE) {
+                    priority = time - cacheTime[v];
+                }
+                if (priority > best) {
+                    best = priority;
+                    next = v;
+                }
+            }
+            if (next < 0) {
+                //A dead end: take the most recent vertex, that still has triangles, or any vertex
+                while (deadEndCount > 0 && next < 0) {
+                    int v = deadEnds[--deadEndCount];
+                    if (live[v] > 0) next = v;
+                }
+                while (next < 0 && cursor < vertexCount) {
+                    if (live[cursor] > 0) next = cursor;
+                    cursor++;
+                }
+                hardBoundary[ordered] = true;
+            }
+            fan = next;
+        }
+
+        sortClusters(indices, first, order, hardBoundary, vertexCount, data, stride);
+    }
+
+    /**
+     * Cuts the order into clusters and writes them into the range, outside clusters first
+     */
+    private static void sortClusters(int[] indices, int first, int[] order, boolean[] hardBoundary, int vertexCount,
+                                     float[] data, int stride) {
+        int faceCount = order.length;
+        int[] original = Arrays.copyOfRange(indices, first, first + faceCount * 3);
+        int[] tipsified = new int[faceCount * 3];
+        for (int i = 0; i < faceCount; i++) {
+            System.arraycopy(original, order[i] * 3, tipsified, i * 3, 3);
+        }
+        float target = acmr(tipsified, 0, faceCount) * CLUSTER_THRESHOLD;
+
+        //A cluster starts with a cold cache, so it only ends, where its own misses are as low as the target
+        int[] clusterStarts = new int[faceCount + 1];
+        int clusters = 0;
+        int clusterStart = 0;
+        int misses = 0;
+        int[] cacheTime = new int[vertexCount];
+        int time = CACHE_SIZE + 1;
+        for (int i = 0; i < faceCount; i++) {
+            if (i == clusterStart) {
+                clusterStarts[clusters++] = i;
+                misses = 0;
+                time += CACHE_SIZE;
+            }
+            for (int corner = 0; corner < 3; corner++) {
+                int v = tipsified[i * 3 + corner];
+                if (time - cacheTime[v] > CACHE_SIZE) {
+                    cacheTime[v] = time++;
+                    misses++;
+                }
+            }
+            if (hardBoundary[i + 1] || misses <= target * (i + 1 - clusterStart)) {
+                clusterStart = i + 1;
+            }
+        }
+        clusterStarts[clusters] = faceCount;
+
+        //The center of the range, and the center and normal of each cluster, weighted by the area of the faces
+        float[] center = new float[3];
+        float[] clusterCenters = new float[clusters * 3];
+        float[] clusterNormals = new float[clusters * 3];
+        float[] normal = new float[3];
+        float totalArea = 0;
+        for (int c = 0; c < clusters; c++) {
+            float clusterArea = 0;
+            for (int i = clusterStarts[c]; i < clusterStarts[c + 1]; i++) {
+                int a = tipsified[i * 3] * stride, b = tipsified[i * 3 + 1] * stride, d = tipsified[i * 3 + 2] * stride;
+                faceNormal(data, a, b, d, normal);
+                float area = (float) Math.sqrt(normal[0] * normal[0] + normal[1] * normal[1] + normal[2] * normal[2]);
+                for (int k = 0; k < 3; k++) {
+                    float centroid = (data[a + k] + data[b + k] + data[d + k]) / 3;
+                    clusterCenters[c * 3 + k] += centroid * area;
+                    clusterNormals[c * 3 + k] += normal[k];
+                    center[k] += centroid * area;
+                }
+                clusterArea += area;
+            }
+            for (int k = 0; k < 3; k++) {
+                clusterCenters[c * 3 + k] = clusterArea > 0 ? clusterCenters[c * 3 + k] / clusterArea : 0;
+            }
+            totalArea += clusterArea;
+        }
+        for (int k = 0; k < 3; k++) {
+            center[k] = totalArea > 0 ? center[k] / totalArea : 0;
+        }
+
+        //Clusters far out along their own normal are in front of the others from most directions
+        final float[] keys = new float[clusters];
+        Integer[] sorted = new Integer[clusters];
+        for (int c = 0; c < clusters; c++) {
+            float nx = clusterNormals[c * 3], ny = clusterNormals[c * 3 + 1], nz = clusterNormals[c * 3 + 2];
+            float length = (float) Math.sqrt(nx * nx + ny * ny + nz * nz);
+            if (length > 0) {
+                keys[c] = ((clusterCenters[c * 3] - center[0]) * nx + (clusterCenters[c * 3 + 1] - center[1]) * ny
+                        + (clusterCenters[c * 3 + 2] - center[2]) * nz) / length;
+            }
+            sorted[c] = c;
+        }
+        Arrays.sort(sorted, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                return Float.compare(keys[b], keys[a]);
+            }
+        });
+
+        int position = first;
+        for (int c : sorted) {
+            int length = (clusterStarts[c + 1] - clusterStarts[c]) * 3;
+            System.arraycopy(tipsified, clusterStarts[c] * 3, indices, position, length);
+            position += length;
+        }
+    }
+
+    /**
+     * The cross product of two edges: its length is twice the area of the face
+     */
+    private static void faceNormal(float[] data, int a, int b, int c, float[] out) {
+        float ux = data[b] - data[a], uy = data[b + 1] - data[a + 1], uz = data[b + 2] - data[a + 2];
+        float vx = data[c] - data[a], vy = data[c + 1] - data[a + 1], vz = data[c + 2] - data[a + 2];
+        out[0] = uy * vz - uz * vy;
+        out[1] = uz * vx - ux * vz;
+        out[2] = ux * vy - uy * vx;
+    }
+
+    /**
+     * Average cache miss ratio: the vertices, that a FIFO cache of CACHE_SIZE entries misses, per triangle.
+     * 3 is the worst, about 0.5 the best for a large regular mesh.
+     */
+    static float acmr(int[] indices, int firstFace, int faceCount) {
+        if (faceCount == 0) return 0;
+        int vertexCount = 0;
+        for (int i = firstFace * 3; i < (firstFace + faceCount) * 3; i++) {
+            vertexCount = Math.max(vertexCount, indices[i] + 1);
+        }
+        //A vertex is in the cache, while fewer than CACHE_SIZE other vertices entered it after it
+        int[] cacheTime = new int[vertexCount];
+        int time = CACHE_SIZE + 1;
+        int misses = 0;
+        for (int i = firstFace * 3; i < (firstFace + faceCount) * 3; i++) {
+            if (time - cacheTime[indices[i]] > CACHE_SIZE) {
+                cacheTime[indices[i]] = time++;
+                misses++;
+            }
+        }
+        return (float) misses / faceCount;
+    }
+}
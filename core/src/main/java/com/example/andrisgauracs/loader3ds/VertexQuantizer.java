@@ -0,0 +1,95 @@
+package com.example.andrisgauracs.loader3ds;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+
+/**
+ * Packs the interleaved float vertices of an object (see Object3ds.STRIDE) into the compact layout (see
+ * Object3ds.COMPACT_STRIDE): positions and texture coordinates as normalized shorts within their bounding box,
+ * and normals as normalized bytes.
+ *
+ * OpenGL ES 2.0 turns a normalized value c of b bits into (2c + 1) / (2^b - 1), so the whole range of the type
+ * covers -1 to 1. The transforms, that quantize returns, turn that range back into the bounding box, so the
+ * shader gets the values in their own units again.
+ */
+class VertexQuantizer {
+
+    private static final int SHORT_STEPS = 65535;
+    private static final int BYTE_STEPS = 255;
+
+    private VertexQuantizer() { }
+
+    /**
+     * @param vertices - vertexCount vertices, Object3ds.STRIDE floats each
+     * @param dequantization - Receives the matrix, that turns the quantized positions into the ones of the vertices
+     * @param textureTransform - Receives the scale u, v and the offset u, v, that turn the quantized texture
+     *                         coordinates into the ones of the vertices
+     * @return - The compact vertices, in native byte order
+     */
+    static ByteBuffer quantize(FloatBuffer vertices, int vertexCount, float[] dequantization, float[] textureTransform) {
+        float[] data = new float[vertexCount * Object3ds.STRIDE];
+        FloatBuffer source = vertices.duplicate();
+        source.position(0);
+        source.get(data);
+
+        //The center and half size of the box of the 3 position and 2 texture coordinate values
+        int[] offsets = {Object3ds.POSITION_OFFSET, Object3ds.POSITION_OFFSET + 1, Object3ds.POSITION_OFFSET + 2,
+                Object3ds.TEXTURE_OFFSET, Object3ds.TEXTURE_OFFSET + 1};
+        float[] center = new float[offsets.length];
+        float[] half = new float[offsets.length];
+        for (int c = 0; c < offsets.length; c++) {
+            float min = Float.POSITIVE_INFINITY, max = Float.NEGATIVE_INFINITY;
+            for (int i = offsets[c]; i < data.length; i += Object3ds.STRIDE) {
+                min = Math.min(min, data[i]);
+                max = Math.max(max, data[i]);
+            }
+            if (vertexCount == 0) min = max = 0;
+            center[c] = (min + max) * 0.5f;
+            half[c] = (max - min) * 0.5f;
+            //A flat box still needs a size, so the transform can be inverted
+            if (!(half[c] > 0)) half[c] = Math.max(Math.abs(center[c]) * 1e-6f, 1e-6f);
+        }
+
+        ByteBuffer out = ByteBuffer.allocateDirect(vertexCount * Object3ds.COMPACT_STRIDE).order(ByteOrder.nativeOrder());
+        for (int v = 0; v < vertexCount; v++) {
+            int i = v * Object3ds.STRIDE;
+            for (int c = 0; c < 3; c++) {
+                out.putShort((short) quantize((data[i + offsets[c]] - center[c]) / half[c], SHORT_STEPS));
+            }
+            out.putShort((short) 0);
+            for (int c = 0; c < 3; c++) {
+                out.put((byte) quantize(data[i + Object3ds.NORMAL_OFFSET + c], BYTE_STEPS));
+            }
+            out.put((byte) 0);
+            for (int c = 3; c < 5; c++) {
+                out.putShort((short) quantize((data[i + offsets[c]] - center[c]) / half[c], SHORT_STEPS));
+            }
+        }
+        out.position(0);
+
+        GeometryKernel.setIdentityM(dequantization, 0);
+        dequantization[0] = half[0];
+        dequantization[5] = half[1];
+        dequantization[10] = half[2];
+        dequantization[12] = center[0];
+        dequantization[13] = center[1];
+        dequantization[14] = center[2];
+        textureTransform[0] = half[3];
+        textureTransform[1] = half[4];
+        textureTransform[2] = center[3];
+        textureTransform[3] = center[4];
+        return out;
+    }
+
+    /**
+     * @param value - From -1 to 1
+     * @param steps - 2^b - 1 for a type of b bits
+     * @return - The signed integer, that GL turns into the value nearest to it
+     */
+    private static int quantize(float value, int steps) {
+        int max = steps / 2;
+        int q = Math.round((value * steps - 1) * 0.5f);
+        return Math.max(-max - 1, Math.min(max, q));
+    }
+}
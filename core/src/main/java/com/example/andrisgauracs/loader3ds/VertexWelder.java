@@ -0,0 +1,82 @@
+package com.example.andrisgauracs.loader3ds;
+
+import java.util.Arrays;
+
+/**
+ * Merges identical vertices of an interleaved vertex array into one, so the mesh can be drawn from a compact
+ * vertex buffer with an index buffer.
+ *
+ * Uses an open addressing hash table of ints, so no object is allocated per vertex.
+ */
+class VertexWelder {
+
+    private VertexWelder() { }
+
+    /**
+     * Finds the unique vertices. Two vertices are the same, if all of their stride floats are equal.
+     * @param data - count vertices, stride floats each
+     * @param indices - Receives the unique vertex of every input vertex. Unique vertices are numbered
+     *                in the order of their first occurrence.
+     * @return - The number of unique vertices
+     */
+    static int weld(float[] data, int stride, int[] indices) {
+        int count = indices.length;
+        int capacity = Integer.highestOneBit(Math.max(count * 2 - 1, 1)) << 1;
+        int mask = capacity - 1;
+        //Holds the first occurrence of each unique vertex
+        int[] table = new int[capacity];
+        Arrays.fill(table, -1);
+
+        int unique = 0;
+        for (int v = 0; v < count; v++) {
+            int slot = hash(data, v * stride, stride) & mask;
+            int found;
+            while ((found = table[slot]) != -1 && !equal(data, found * stride, v * stride, stride)) {
+                slot = (slot + 1) & mask;
+            }
+            if (found == -1) {
+                table[slot] = v;
+                indices[v] = unique++;
+            } else {
+                indices[v] = indices[found];
+            }
+        }
+        return unique;
+    }
+
+    /**
+     * Moves the unique vertices found by weld to the front of the array, in place
+     */
+    static void compact(float[] data, int stride, int[] indices) {
+        int next = 0;
+        for (int v = 0; v < indices.length; v++) {
+            if (indices[v] == next) {
+                //next <= v, so the vertex is moved to a slot, that has already been read
+                System.arraycopy(data, v * stride, data, next * stride, stride);
+                next++;
+            }
+        }
+    }
+
+    /**
+     * Adding 0 turns -0.0 into 0.0, so both weld together
+     */
+    private static int bits(float value) {
+        return Float.floatToIntBits(value + 0.0f);
+    }
+
+    private static int hash(float[] data, int offset, int stride) {
+        int h = 0;
+        for (int i = 0; i < stride; i++) {
+            h = h * 31 + bits(data[offset + i]);
+        }
+        return h ^ (h >>> 16);
+    }
+
+    private static boolean equal(float[] data, int a, int b, int stride) {
+        for (int i = 0; i < stride; i++) {
+            if (bits(data[a + i]) != bits(data[b + i])) return false;
+        }
+        return true;
+    }
+}
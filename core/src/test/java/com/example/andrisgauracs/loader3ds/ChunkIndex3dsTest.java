@@ -0,0 +1,68 @@
+package com.example.andrisgauracs.loader3ds;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class ChunkIndex3dsTest {
+
+    @Test
+    public void skipsMeshChunksBeforeTheFirstObject() throws Exception {
+        //A mesh without an object, then an object with one triangle
+        ByteBuffer out = ByteBuffer.allocate(512).order(ByteOrder.LITTLE_ENDIAN);
+        int main = begin(out, 0x4d4d);
+        int editor = begin(out, 0x3d3d);
+        writeMesh(out);
+        int object = begin(out, 0x4000);
+        out.put("triangle".getBytes()).put((byte) 0);
+        writeMesh(out);
+        end(out, object);
+        end(out, editor);
+        end(out, main);
+        byte[] file = Arrays.copyOf(out.array(), out.position());
+
+        ChunkIndex3ds index = ChunkIndex3ds.build(ByteBuffer.wrap(file));
+        assertEquals(Arrays.asList("triangle"), index.getObjectNames());
+
+        //The serial parser, that Parser3ds falls back to, skips the same chunks
+        List<Object3ds> models = new ArrayList<>();
+        ChunkReader3ds.read(BufferChunkInput.wrap(file), new ModelBuilder3ds(models, new MaterialTable3ds()));
+        assertEquals(1, models.size());
+        assertEquals("triangle", models.get(0).getName());
+        assertEquals(1, models.get(0).getNumFaces());
+    }
+
+    private static void writeMesh(ByteBuffer out) {
+        int mesh = begin(out, 0x4100);
+        int vertices = begin(out, 0x4110);
+        out.putShort((short) 3);
+        out.putFloat(0).putFloat(0).putFloat(0).putFloat(1).putFloat(0).putFloat(0).putFloat(0).putFloat(1).putFloat(0);
+        end(out, vertices);
+        int faces = begin(out, 0x4120);
+        out.putShort((short) 1).putShort((short) 0).putShort((short) 1).putShort((short) 2).putShort((short) 0);
+        int material = begin(out, 0x4130);
+        out.put("material".getBytes()).put((byte) 0).putShort((short) 1).putShort((short) 0);
+        end(out, material);
+        end(out, faces);
+        end(out, mesh);
+    }
+
+    /**
+     * Writes a chunk header, whose size is filled in by end
+     */
+    private static int begin(ByteBuffer out, int type) {
+        int start = out.position();
+        out.putShort((short) type).putInt(0);
+        return start;
+    }
+
+    private static void end(ByteBuffer out, int start) {
+        out.putInt(start + 2, out.position() - start);
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.andrisgauracs.loader3ds;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class MeshCacheTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void readsBackWhatWasWritten() throws Exception {
+        MeshCache cache = new MeshCache(folder.getRoot());
+        for (String file : TestModels.BUNDLED) {
+            List<Object3ds> models = TestModels.prepared(TestModels.load(file));
+            cache.write(file, models);
+            assertSameObjects(models, cache.read(file));
+        }
+    }
+
+    @Test
+    public void readsBackCompactVertices() throws Exception {
+        MeshCache cache = new MeshCache(folder.getRoot());
+        for (String file : TestModels.BUNDLED) {
+            List<Object3ds> models = TestModels.prepared(TestModels.load(file));
+            for (Object3ds model : models) model.compactVertices();
+            cache.write(file, models);
+            assertSameObjects(models, cache.read(file));
+        }
+    }
+
+    @Test
+    public void missingFileIsAMiss() throws Exception {
+        assertNull(new MeshCache(folder.getRoot()).read("missing"));
+    }
+
+    @Test
+    public void truncatedFileIsAMiss() throws Exception {
+        MeshCache cache = new MeshCache(folder.getRoot());
+        cache.write("car", TestModels.prepared(TestModels.load("car.3DS")));
+        File file = new File(folder.getRoot(), "car.mesh");
+        long length = file.length();
+
+        //Every cut must be read as a miss, whether it falls into a count, a string or a buffer
+        for (long cut = 12; cut < length; cut += Math.max(1, length / 97)) {
+            cache.write("car", TestModels.prepared(TestModels.load("car.3DS")));
+            RandomAccessFile raf = new RandomAccessFile(file, "rw");
+            raf.setLength(cut);
+            raf.close();
+            assertNull("cut at " + cut, cache.read("car"));
+            assertFalse("cut at " + cut, file.exists());
+        }
+    }
+
+    @Test
+    public void corruptCountIsAMiss() throws Exception {
+        MeshCache cache = new MeshCache(folder.getRoot());
+        cache.write("crate", TestModels.prepared(TestModels.load("crate.3ds")));
+        File file = new File(folder.getRoot(), "crate.mesh");
+        assertNotNull(cache.read("crate"));
+
+        //The object count follows the magic, version and byte order check
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        raf.seek(12);
+        raf.writeInt(0x7fffffff);
+        raf.close();
+        assertNull(cache.read("crate"));
+        assertFalse(file.exists());
+    }
+
+    private static void assertSameObjects(List<Object3ds> expected, List<Object3ds> actual) {
+        assertNotNull(actual);
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            TestModels.assertSameObject(expected.get(i), actual.get(i));
+        }
+    }
+}
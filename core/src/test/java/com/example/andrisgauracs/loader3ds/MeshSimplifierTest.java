@@ -0,0 +1,85 @@
+package com.example.andrisgauracs.loader3ds;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class MeshSimplifierTest {
+
+    @Test
+    public void lodRangesStayInBoundsAndGetSmaller() throws Exception {
+        List<Object3ds> models = new ArrayList<>();
+        for (String file : TestModels.BUNDLED) {
+            models.addAll(TestModels.prepared(TestModels.load(file)));
+        }
+        Object3ds grid = TestModels.grid(40, 40);
+        grid.prepareModel();
+        models.add(grid);
+        assertTrue(grid.getLodCount() > 2);
+
+        for (Object3ds model : models) {
+            if (model.getIndexBuffer() == null) continue;
+            String name = model.getName();
+            int[] indices = TestModels.indices(model);
+            for (int index : indices) {
+                assertTrue(name, index < model.getVertexCount());
+            }
+
+            int levelEnd = 0;
+            int previousFaces = Integer.MAX_VALUE;
+            for (int level = 0; level < model.getLodCount(); level++) {
+                int levelStart = levelEnd;
+                int faces = 0;
+                for (Submesh3ds submesh : model.getSubmeshes()) {
+                    //Each level is stored after the one before it, its submeshes one after the other
+                    assertEquals(name, levelEnd, submesh.getFirstFace(level));
+                    levelEnd += submesh.getFaceCount(level);
+                    faces += submesh.getFaceCount(level);
+                }
+                assertTrue(name, levelEnd * 3 <= indices.length);
+                assertTrue(name + " level " + level, faces < previousFaces);
+                if (level == 0) {
+                    assertEquals(name, model.getNumFaces(), faces);
+                } else {
+                    assertTrue(name, model.getLodError(level) >= model.getLodError(level - 1));
+                }
+                assertEquals(name, levelStart + faces, levelEnd);
+                previousFaces = faces;
+            }
+            assertEquals(name, indices.length, levelEnd * 3);
+        }
+    }
+
+    @Test
+    public void simplifiedTrianglesUseTheOriginalVertices() {
+        Object3ds grid = TestModels.grid(30, 30);
+        grid.prepareModel();
+        float[] vertices = TestModels.vertices(grid);
+        int[] full = Arrays.copyOf(TestModels.indices(grid), grid.getNumFaces() * 3);
+
+        MeshSimplifier simplifier = new MeshSimplifier(vertices, Object3ds.STRIDE, grid.getVertexCount(), full);
+        int[] half = simplifier.simplify(grid.getNumFaces() / 2);
+        assertTrue(half.length / 3 <= grid.getNumFaces() / 2);
+        int[] quarter = simplifier.simplify(grid.getNumFaces() / 4);
+        assertTrue(quarter.length < half.length);
+
+        int removed = 0;
+        for (int face = 0; face < grid.getNumFaces(); face++) {
+            if (simplifier.isRemoved(face)) removed++;
+        }
+        assertEquals(grid.getNumFaces() - quarter.length / 3, removed);
+        for (int i = 0; i < quarter.length; i += 3) {
+            //No triangle collapses into a line
+            assertTrue(quarter[i] != quarter[i + 1] && quarter[i + 1] != quarter[i + 2] && quarter[i] != quarter[i + 2]);
+            for (int k = 0; k < 3; k++) {
+                assertTrue(quarter[i + k] >= 0 && quarter[i + k] < grid.getVertexCount());
+            }
+        }
+        assertTrue(simplifier.getError() > 0);
+    }
+}
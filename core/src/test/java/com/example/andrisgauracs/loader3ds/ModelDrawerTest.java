@@ -0,0 +1,94 @@
+package com.example.andrisgauracs.loader3ds;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Draws the bundled models on a RecordingGL, so invalid GL call sequences fail without a device
+ */
+public class ModelDrawerTest {
+
+    /** Uploads into the RecordingGL. Every texture is a 4x4 RGBA image without data. */
+    private static class RecordingUploader implements ModelUploader {
+        private final GL gl;
+
+        RecordingUploader(GL gl) {
+            this.gl = gl;
+        }
+
+        @Override
+        public int loadTexture(int textureResource) {
+            int[] handle = new int[1];
+            gl.glGenTextures(1, handle, 0);
+            gl.glBindTexture(GL.GL_TEXTURE_2D, handle[0]);
+            gl.glTexImage2D(GL.GL_TEXTURE_2D, 0, GL.GL_RGBA, 4, 4, 0, GL.GL_RGBA, GL.GL_UNSIGNED_BYTE, null);
+            return handle[0];
+        }
+
+        @Override
+        public void releaseTexture(int textureResource) {
+        }
+
+        @Override
+        public void uploadBuffers(Object3ds object) {
+            BufferHelper.upload(gl, object);
+        }
+
+        @Override
+        public void releaseBuffers(Object3ds object) {
+            BufferHelper.release(gl, object);
+        }
+    }
+
+    @Test
+    public void drawsEveryFaceOnce() throws Exception {
+        for (boolean compact : new boolean[] {false, true}) {
+            for (String file : TestModels.BUNDLED) {
+                String name = file + (compact ? " compact" : "");
+                RecordingGL gl = new RecordingGL(false, true);
+                GLStateCache state = new GLStateCache(gl);
+                //RecordingGL does not compile the sources, it only needs the names
+                ShaderProgram program = new ShaderProgram(gl, "", "",
+                        new String[] {"a_Position", "a_TexCoordinate", "a_Normal"},
+                        new String[] {"u_MVPMatrix", "u_MVMatrix", "u_LightPos", "u_Texture", "u_TextureTransform"});
+                Parser3ds model = new Parser3ds(ByteBuffer.wrap(TestModels.load(file)), new TextureResolver() {
+                    @Override
+                    public int getTextureResource(String texture) {
+                        return texture.hashCode() & 0x7fffffff | 1;
+                    }
+                }, "texture");
+                model.batchObjects();
+                if (compact) model.compactVertices();
+                model.upload(new RecordingUploader(gl));
+
+                long faces = 0;
+                for (Object3ds object : model.getModels()) {
+                    if (object.isPrepared()) faces += object.getNumFaces();
+                }
+                float[][] mvp = new float[5][16];
+                for (float[] matrix : mvp) {
+                    GeometryKernel.setIdentityM(matrix, 0);
+                }
+                //Without culling and without a viewport height, every object is drawn at full detail
+                ModelDrawer drawer = new ModelDrawer();
+                drawer.setCulling(false);
+
+                gl.reset();
+                state.useProgram(program);
+                drawer.draw(model, mvp, program, new float[] {0, 0, -3, 1}, state);
+                assertEquals(name, faces * 3, gl.getDrawnVertexCount());
+                assertTrue(name, gl.getErrors().isEmpty());
+
+                //GLStateCache skips every call of the second frame, that would not change the state
+                gl.reset();
+                drawer.draw(model, mvp, program, new float[] {0, 0, -3, 1}, state);
+                assertEquals(name, faces * 3, gl.getDrawnVertexCount());
+                assertEquals(name, 0, gl.getRedundantChangeCount());
+            }
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.andrisgauracs.loader3ds;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class ParallelDecoder3dsTest {
+
+    @Test
+    public void decodesTheSameObjectsAsTheSerialParser() throws Exception {
+        for (String file : TestModels.BUNDLED) {
+            byte[] data = TestModels.load(file);
+            List<Object3ds> serial = TestModels.parseSerial(data);
+            ByteBuffer buffer = ByteBuffer.wrap(data);
+            List<Object3ds> parallel = ParallelDecoder3ds.decode(buffer, ChunkIndex3ds.build(buffer));
+
+            assertEquals(file, serial.size(), parallel.size());
+            for (int i = 0; i < serial.size(); i++) {
+                TestModels.assertSameObject(serial.get(i), parallel.get(i));
+            }
+        }
+    }
+
+    @Test
+    public void returnsTheObjectsInFileOrder() throws Exception {
+        byte[] data = TestModels.load("car.3DS");
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        ChunkIndex3ds index = ChunkIndex3ds.build(buffer);
+        List<Object3ds> parallel = ParallelDecoder3ds.decode(buffer, index);
+
+        assertEquals(index.getObjectNames(), names(parallel));
+    }
+
+    private static List<String> names(List<Object3ds> models) {
+        ArrayList<String> names = new ArrayList<>();
+        for (Object3ds model : models) names.add(model.getName());
+        return names;
+    }
+}
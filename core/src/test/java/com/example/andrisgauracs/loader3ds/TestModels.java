@@ -0,0 +1,170 @@
+package com.example.andrisgauracs.loader3ds;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.ShortBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * Input data of the tests: the models bundled with the app, a synthetic height field, and checks, that two
+ * prepared objects are the same
+ */
+final class TestModels {
+
+    /** The bundled models, as in res/raw */
+    static final String[] BUNDLED = {"crate.3ds", "car.3DS", "fighter.3ds", "landlord.3DS", "mobile_nokia.3ds"};
+
+    private TestModels() { }
+
+    static byte[] load(String file) throws IOException {
+        InputStream in = TestModels.class.getResourceAsStream("/" + file);
+        assertNotNull("No such model: " + file, in);
+        return BufferChunkInput.readFully(in);
+    }
+
+    /**
+     * Reads the file one chunk after another, and prepares the objects, that have geometry
+     */
+    static List<Object3ds> parseSerial(byte[] file) throws IOException {
+        List<Object3ds> models = new ArrayList<>();
+        ChunkReader3ds.read(BufferChunkInput.wrap(file), new ModelBuilder3ds(models, new MaterialTable3ds()));
+        for (Object3ds model : models) {
+            if (model.getVertices() != null) {
+                model.prepareModel();
+            }
+        }
+        return models;
+    }
+
+    /**
+     * @return - The prepared objects of the file, without the ones, that have no geometry
+     */
+    static List<Object3ds> prepared(byte[] file) throws IOException {
+        List<Object3ds> meshes = new ArrayList<>();
+        for (Object3ds model : parseSerial(file)) {
+            if (model.isPrepared()) meshes.add(model);
+        }
+        return meshes;
+    }
+
+    /**
+     * A wavy height field of columns x rows quads, two triangles each, in row order
+     */
+    static Object3ds grid(int columns, int rows) {
+        float[] vertices = new float[(columns + 1) * (rows + 1) * 3];
+        float[] uv = new float[(columns + 1) * (rows + 1) * 2];
+        for (int r = 0, v = 0; r <= rows; r++) {
+            for (int c = 0; c <= columns; c++, v++) {
+                vertices[v * 3] = c;
+                vertices[v * 3 + 1] = r;
+                vertices[v * 3 + 2] = (float) (Math.sin(c * 0.3) * Math.cos(r * 0.3) * 2);
+                uv[v * 2] = (float) c / columns;
+                uv[v * 2 + 1] = (float) r / rows;
+            }
+        }
+        int[] faces = new int[columns * rows * 6];
+        int[] groups = new int[columns * rows * 2];
+        for (int r = 0, f = 0; r < rows; r++) {
+            for (int c = 0; c < columns; c++, f += 6) {
+                int a = r * (columns + 1) + c;
+                int b = a + columns + 1;
+                faces[f] = a;
+                faces[f + 1] = a + 1;
+                faces[f + 2] = b;
+                faces[f + 3] = a + 1;
+                faces[f + 4] = b + 1;
+                faces[f + 5] = b;
+                groups[f / 3] = groups[f / 3 + 1] = 1;
+            }
+        }
+        Object3ds model = new Object3ds();
+        model.setName("grid");
+        model.setVertices(vertices);
+        model.setFaces(faces);
+        model.setNumFaces(columns * rows * 2);
+        model.setSmoothingGroups(groups);
+        model.setTextures(uv);
+        return model;
+    }
+
+    /**
+     * @return - The indices of the object's index buffer
+     */
+    static int[] indices(Object3ds model) {
+        ShortBuffer buffer = model.getIndexBuffer().duplicate();
+        buffer.position(0);
+        int[] indices = new int[buffer.capacity()];
+        for (int i = 0; i < indices.length; i++) {
+            indices[i] = buffer.get() & 0xffff;
+        }
+        return indices;
+    }
+
+    /**
+     * @return - The float vertices of the object, see Object3ds.STRIDE
+     */
+    static float[] vertices(Object3ds model) {
+        FloatBuffer buffer = model.getVertexBuffer().duplicate();
+        buffer.position(0);
+        float[] vertices = new float[buffer.capacity()];
+        buffer.get(vertices);
+        return vertices;
+    }
+
+    /**
+     * Fails, unless both objects have the same buffers, submeshes, levels of detail, bounds and textures
+     */
+    static void assertSameObject(Object3ds expected, Object3ds actual) {
+        String name = expected.getName();
+        assertEquals(name, expected.getName(), actual.getName());
+        assertEquals(name, expected.getTextureName(), actual.getTextureName());
+        assertEquals(name, expected.isPrepared(), actual.isPrepared());
+        if (!expected.isPrepared()) return;
+
+        assertEquals(name, expected.getNumFaces(), actual.getNumFaces());
+        assertEquals(name, expected.getVertexCount(), actual.getVertexCount());
+        assertEquals(name, expected.getScaleFactor(), actual.getScaleFactor(), 0);
+        assertArrayEquals(name, expected.getBounds(), actual.getBounds(), 0);
+        assertArrayEquals(name, expected.getBoundingSphere(), actual.getBoundingSphere(), 0);
+        assertEquals(name, expected.isCompact(), actual.isCompact());
+        if (expected.isCompact()) {
+            assertEquals(name, bytes(expected.getCompactVertexBuffer()), bytes(actual.getCompactVertexBuffer()));
+            assertArrayEquals(name, expected.getDequantizationMatrix(), actual.getDequantizationMatrix(), 0);
+            assertArrayEquals(name, expected.getTextureTransform(), actual.getTextureTransform(), 0);
+        } else {
+            assertArrayEquals(name, vertices(expected), vertices(actual), 0);
+        }
+        assertEquals(name, expected.getIndexBuffer() != null, actual.getIndexBuffer() != null);
+        if (expected.getIndexBuffer() != null) {
+            assertArrayEquals(name, indices(expected), indices(actual));
+        }
+
+        assertEquals(name, expected.getLodCount(), actual.getLodCount());
+        for (int level = 0; level < expected.getLodCount(); level++) {
+            assertEquals(name, expected.getLodError(level), actual.getLodError(level), 0);
+        }
+        assertEquals(name, expected.getSubmeshes().size(), actual.getSubmeshes().size());
+        for (int i = 0; i < expected.getSubmeshes().size(); i++) {
+            Submesh3ds a = expected.getSubmeshes().get(i), b = actual.getSubmeshes().get(i);
+            assertEquals(name, a.getMaterial(), b.getMaterial());
+            assertEquals(name, a.getTextureName(), b.getTextureName());
+            for (int level = 0; level < expected.getLodCount(); level++) {
+                assertEquals(name, a.getFirstFace(level), b.getFirstFace(level));
+                assertEquals(name, a.getFaceCount(level), b.getFaceCount(level));
+            }
+        }
+    }
+
+    private static ByteBuffer bytes(ByteBuffer buffer) {
+        ByteBuffer all = buffer.duplicate();
+        all.clear();
+        return all;
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.andrisgauracs.loader3ds;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class VertexCacheOptimizerTest {
+
+    @Test
+    public void countsCacheMisses() {
+        assertEquals(3, VertexCacheOptimizer.acmr(new int[] {0, 1, 2}, 0, 1), 0);
+        assertEquals(2, VertexCacheOptimizer.acmr(new int[] {0, 1, 2, 2, 1, 3}, 0, 2), 0);
+        //Only the range is counted
+        assertEquals(3, VertexCacheOptimizer.acmr(new int[] {0, 1, 2, 2, 1, 3}, 1, 1), 0);
+    }
+
+    @Test
+    public void doesNotMakeTheFileOrderWorse() throws Exception {
+        for (Object3ds model : models()) {
+            if (model.getIndexBuffer() == null) continue;
+            assertTrue(model.getName(), model.getAcmr() <= model.getOriginalAcmr());
+        }
+    }
+
+    @Test
+    public void keepsTheTrianglesOfEachRange() throws Exception {
+        Random random = new Random(1);
+        for (Object3ds model : models()) {
+            if (model.getIndexBuffer() == null) continue;
+            String name = model.getName();
+            float[] vertices = TestModels.vertices(model);
+            int[] indices = TestModels.indices(model);
+
+            //Shuffled, so the optimizer has some work to do
+            for (Submesh3ds submesh : model.getSubmeshes()) {
+                for (int level = 0; level < model.getLodCount(); level++) {
+                    shuffle(indices, submesh.getFirstFace(level), submesh.getFaceCount(level), random);
+                }
+            }
+            int[] shuffled = indices.clone();
+            float before = VertexCacheOptimizer.acmr(indices, 0, model.getNumFaces());
+
+            for (Submesh3ds submesh : model.getSubmeshes()) {
+                for (int level = 0; level < model.getLodCount(); level++) {
+                    VertexCacheOptimizer.optimize(indices, submesh.getFirstFace(level), submesh.getFaceCount(level),
+                            model.getVertexCount(), vertices, Object3ds.STRIDE);
+                }
+            }
+            for (Submesh3ds submesh : model.getSubmeshes()) {
+                for (int level = 0; level < model.getLodCount(); level++) {
+                    int first = submesh.getFirstFace(level), count = submesh.getFaceCount(level);
+                    assertArrayEquals(name, triangles(shuffled, first, count), triangles(indices, first, count));
+                }
+            }
+            assertTrue(name, VertexCacheOptimizer.acmr(indices, 0, model.getNumFaces()) <= before);
+        }
+    }
+
+    private static List<Object3ds> models() throws Exception {
+        List<Object3ds> models = new ArrayList<>();
+        for (String file : TestModels.BUNDLED) {
+            models.addAll(TestModels.prepared(TestModels.load(file)));
+        }
+        Object3ds grid = TestModels.grid(60, 40);
+        grid.prepareModel();
+        models.add(grid);
+        return models;
+    }
+
+    private static void shuffle(int[] indices, int firstFace, int faceCount, Random random) {
+        for (int i = faceCount - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            for (int k = 0; k < 3; k++) {
+                int a = (firstFace + i) * 3 + k, b = (firstFace + j) * 3 + k;
+                int swap = indices[a];
+                indices[a] = indices[b];
+                indices[b] = swap;
+            }
+        }
+    }
+
+    /**
+     * @return - The triangles of the range in a canonical order. A triangle keeps its winding, but may start at any
+     * corner, so it is rotated to start at its smallest index.
+     */
+    private static long[] triangles(int[] indices, int firstFace, int faceCount) {
+        long[] triangles = new long[faceCount];
+        for (int i = 0; i < faceCount; i++) {
+            int a = indices[(firstFace + i) * 3], b = indices[(firstFace + i) * 3 + 1], c = indices[(firstFace + i) * 3 + 2];
+            while (a > b || a > c) {
+                int t = a;
+                a = b;
+                b = c;
+                c = t;
+            }
+            triangles[i] = ((long) a << 32) | ((long) b << 16) | c;
+        }
+        Arrays.sort(triangles);
+        return triangles;
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.andrisgauracs.loader3ds;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Decodes the compact vertices the way OpenGL ES 2.0 does, (2c + 1) / (2^b - 1) for a normalized value c of b
+ * bits, and compares them with the float vertices
+ */
+public class VertexQuantizerTest {
+
+    /** Half a step of a normalized short within the bounding box is the largest rounding error per axis */
+    private static final double SHORT_ERROR = 1.0 / 65535;
+    /** Half a step of a normalized byte on each of the 3 axes of a unit normal, as an angle */
+    private static final double NORMAL_ERROR = Math.toDegrees(Math.sqrt(3) / 255);
+
+    @Test
+    public void compactVerticesStayWithinTheirPrecision() throws Exception {
+        List<Object3ds> models = new ArrayList<>();
+        for (String file : TestModels.BUNDLED) {
+            models.addAll(TestModels.prepared(TestModels.load(file)));
+        }
+        models.add(TestModels.grid(40, 40));
+        models.get(models.size() - 1).prepareModel();
+
+        for (Object3ds model : models) {
+            String name = model.getName();
+            float[] expected = TestModels.vertices(model);
+            int vertexCount = model.getVertexCount();
+            model.compactVertices();
+            ByteBuffer compact = model.getCompactVertexBuffer();
+            float[] d = model.getDequantizationMatrix();
+            float[] uv = model.getTextureTransform();
+
+            assertEquals(name, vertexCount * Object3ds.COMPACT_STRIDE, compact.capacity());
+            assertEquals(name, expected.length * 4, compact.capacity() * 2);
+            //The dequantization matrix scales by half the size of the bounding box
+            double diagonal = Math.sqrt(d[0] * d[0] + d[5] * d[5] + d[10] * d[10]) * 2;
+
+            for (int v = 0; v < vertexCount; v++) {
+                int f = v * Object3ds.STRIDE, b = v * Object3ds.COMPACT_STRIDE;
+                double distance = 0;
+                for (int c = 0; c < 3; c++) {
+                    double position = d[c * 5] * normalized(compact.getShort(b + c * 2), 65535) + d[12 + c];
+                    double error = position - expected[f + Object3ds.POSITION_OFFSET + c];
+                    distance += error * error;
+                }
+                //At most half a step on every axis: half of the box's diagonal per step count
+                assertTrue(name, Math.sqrt(distance) <= diagonal / 2 * SHORT_ERROR * 1.001 + 1e-6);
+
+                double dot = 0, length = 0;
+                for (int c = 0; c < 3; c++) {
+                    double n = normalized(compact.get(b + Object3ds.COMPACT_NORMAL_OFFSET + c), 255);
+                    dot += n * expected[f + Object3ds.NORMAL_OFFSET + c];
+                    length += n * n;
+                }
+                if (length > 0.5) {
+                    double angle = Math.toDegrees(Math.acos(Math.min(1, dot / Math.sqrt(length))));
+                    assertTrue(name + " normal " + angle, angle <= NORMAL_ERROR);
+                }
+
+                for (int c = 0; c < 2; c++) {
+                    double value = uv[c] * normalized(compact.getShort(b + Object3ds.COMPACT_TEXTURE_OFFSET + c * 2),
+                            65535) + uv[2 + c];
+                    double error = Math.abs(value - expected[f + Object3ds.TEXTURE_OFFSET + c]);
+                    assertTrue(name, error <= uv[c] * SHORT_ERROR * 1.001 + 1e-6);
+                }
+            }
+        }
+    }
+
+    private static double normalized(int value, int steps) {
+        return (2.0 * value + 1) / steps;
+    }
+}
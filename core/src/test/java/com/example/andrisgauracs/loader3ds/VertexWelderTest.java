@@ -0,0 +1,60 @@
+package com.example.andrisgauracs.loader3ds;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class VertexWelderTest {
+
+    private static final int STRIDE = 5;
+
+    @Test
+    public void keepsEveryTriangle() {
+        //A grid of quads as a triangle list, position and texture coordinate per corner
+        int columns = 20, rows = 12;
+        float[] corners = new float[columns * rows * 6 * STRIDE];
+        int[][] quad = {{0, 0}, {1, 0}, {0, 1}, {1, 0}, {1, 1}, {0, 1}};
+        int corner = 0;
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < columns; c++) {
+                for (int[] offset : quad) {
+                    int x = c + offset[0], y = r + offset[1];
+                    float[] vertex = {x, y, x * y * 0.1f, (float) x / columns, (float) y / rows};
+                    System.arraycopy(vertex, 0, corners, corner++ * STRIDE, STRIDE);
+                }
+            }
+        }
+        float[] original = corners.clone();
+
+        int[] indices = new int[corner];
+        int unique = VertexWelder.weld(corners, STRIDE, indices);
+        VertexWelder.compact(corners, STRIDE, indices);
+
+        assertEquals((columns + 1) * (rows + 1), unique);
+        for (int i = 0; i < indices.length; i++) {
+            assertTrue(indices[i] < unique);
+            assertArrayEquals("corner " + i, Arrays.copyOfRange(original, i * STRIDE, (i + 1) * STRIDE),
+                    Arrays.copyOfRange(corners, indices[i] * STRIDE, (indices[i] + 1) * STRIDE), 0);
+        }
+    }
+
+    @Test
+    public void weldsOnlyEqualVertices() {
+        float[] data = {
+                0, 0, 0, 0, 0,
+                0, 0, 0, 0, 1,
+                -0f, 0, 0, 0, 0,
+                0, 0, 0, 0, 1,
+                1, 0, 0, 0, 0,
+        };
+        int[] indices = new int[5];
+
+        assertEquals(3, VertexWelder.weld(data, STRIDE, indices));
+        //-0 and 0 are the same position, a different texture coordinate is another vertex
+        assertArrayEquals(new int[] {0, 1, 0, 1, 2}, indices);
+    }
+}